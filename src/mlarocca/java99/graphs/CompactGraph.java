@@ -0,0 +1,916 @@
+package mlarocca.java99.graphs;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import mlarocca.java99.graphs.data.ColoringResult;
+import mlarocca.java99.graphs.data.ComponentsResult;
+import mlarocca.java99.graphs.data.MinDistanceResult;
+import mlarocca.java99.graphs.data.StructureResult;
+import mlarocca.java99.graphs.heaps.DaryHeap;
+import mlarocca.java99.graphs.heaps.IndexedPriorityQueue;
+import mlarocca.java99.graphs.unionfind.GrowableDisjointSet;
+
+/**
+ * Immutable snapshot of a graph, stored in compressed sparse row format.
+ *
+ * Vertices are numbered in the same order as the source graph's getVertices(), and
+ * the outgoing edges of vertex i are stored in targets[offsets[i] .. offsets[i+1]),
+ * sorted by destination, with their weights at the same positions in weights.
+ * Incoming edges are indexed the same way: sources[inOffsets[i] .. inOffsets[i+1])
+ * holds the sources of the edges entering i, and inEdges the position of each of
+ * those edges in targets/weights.
+ *
+ * All the algorithms run directly on these arrays; only toString() goes through a
+ * mutable copy, to share SimpleGraph's format.
+ */
+public class CompactGraph<T> implements IndexedGraph<T>, GraphSnapshot<T> {
+
+  private static final String IMMUTABLE_GRAPH_MESSAGE = "CompactGraph can't be modified";
+
+  private static Supplier<IllegalArgumentException> VERTEX_NOT_IN_GRAPH_EXCEPTION_SUPPLIER =
+    new Supplier<IllegalArgumentException>() {
+      @Override
+      public IllegalArgumentException get() {
+        return new IllegalArgumentException("Vertex not in graph");
+      }
+    };
+
+  private final List<Vertex<T>> vertices;
+  private final Map<String, Integer> labelToIndex;
+
+  private final int[] offsets;
+  private final int[] targets;
+  private final double[] weights;
+
+  private final int[] inOffsets;
+  private final int[] sources;
+  private final int[] inEdges;
+
+  //Lazily computed list of edges and hash (the graph is immutable, so they never need to be
+  //reset): volatile, so that a graph shared between threads never exposes a half built list
+  private volatile List<Edge<T>> edges;
+  private volatile Integer hashCode;
+  //Lazily computed weakly connected components (find() compresses paths, so it's guarded by itself)
+  private GrowableDisjointSet components;
+
+  //Creates the priority queues used by dijkstra, AStar and prim, given the number of vertices
+  private volatile IntFunction<IndexedPriorityQueue> priorityQueueFactory = DaryHeap::new;
+
+  /**
+   * Creates a compact copy of a graph: a graph that can change meanwhile is copied
+   * through one of its snapshots.
+   *
+   * @param graph The graph to copy.
+   * @return An immutable graph with the same vertices and edges.
+   */
+  public static <T> CompactGraph<T> fromGraph(Graph<T> graph) {
+    if (graph instanceof CompactGraph) {
+      return (CompactGraph<T>) graph;
+    }
+    if (!(graph instanceof GraphSnapshot)) {
+      //Degrees and edges are read in separate calls: they must not change in between
+      try (GraphSnapshot<T> snapshot = graph.snapshot()) {
+        return copyOf(snapshot);
+      }
+    }
+    return copyOf(graph);
+  }
+
+  private static <T> CompactGraph<T> copyOf(Graph<T> graph) {
+    List<Vertex<T>> graphVertices = graph.getVertices();
+    int n = graphVertices.size();
+    List<Vertex<T>> vertices = new ArrayList<>(n);
+    Map<String, Integer> labelToIndex = new HashMap<>(2 * n);
+    for (int i = 0; i < n; i++) {
+      Vertex<T> v = graphVertices.get(i);
+      vertices.add(new SimpleVertex<T>(v));
+      labelToIndex.put(v.getLabel(), i);
+    }
+
+    int[] offsets = new int[n + 1];
+    for (int i = 0; i < n; i++) {
+      offsets[i + 1] = offsets[i] + graph.outDegree(graphVertices.get(i));
+    }
+    int[] targets = new int[offsets[n]];
+    double[] weights = new double[offsets[n]];
+    for (int i = 0; i < n; i++) {
+      int k = offsets[i];
+      for (Edge<T> e : graph.getEdgesFrom(graphVertices.get(i))) {
+        targets[k] = labelToIndex.get(e.getDestination().getLabel());
+        weights[k] = e.getWeight();
+        k += 1;
+      }
+      sortRow(targets, weights, offsets[i], offsets[i + 1]);
+    }
+    return new CompactGraph<>(vertices, labelToIndex, offsets, targets, weights);
+  }
+
+  /**
+   * Sorts the edges in [from, to) by destination, moving weights along.
+   */
+  private static void sortRow(int[] targets, double[] weights, int from, int to) {
+    boolean sorted = true;
+    for (int k = from + 1; k < to && sorted; k++) {
+      sorted = targets[k - 1] <= targets[k];
+    }
+    if (sorted) {
+      return;
+    }
+    //Pack (destination, position) pairs so that a primitive sort can be used
+    long[] keys = new long[to - from];
+    for (int k = from; k < to; k++) {
+      keys[k - from] = ((long) targets[k] << 32) | (k - from);
+    }
+    Arrays.sort(keys);
+    double[] rowWeights = Arrays.copyOfRange(weights, from, to);
+    for (int k = from; k < to; k++) {
+      long key = keys[k - from];
+      targets[k] = (int) (key >>> 32);
+      weights[k] = rowWeights[(int) key];
+    }
+  }
+
+  private CompactGraph(
+      List<Vertex<T>> vertices,
+      Map<String, Integer> labelToIndex,
+      int[] offsets,
+      int[] targets,
+      double[] weights) {
+    int n = vertices.size();
+    this.vertices = Collections.unmodifiableList(vertices);
+    this.labelToIndex = labelToIndex;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+
+    //Counting sort of the edges by destination: rows come out sorted by source
+    inOffsets = new int[n + 1];
+    for (int t : targets) {
+      inOffsets[t + 1] += 1;
+    }
+    for (int i = 0; i < n; i++) {
+      inOffsets[i + 1] += inOffsets[i];
+    }
+    sources = new int[targets.length];
+    inEdges = new int[targets.length];
+    int[] next = Arrays.copyOf(inOffsets, n);
+    for (int i = 0; i < n; i++) {
+      for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+        int position = next[targets[k]]++;
+        sources[position] = i;
+        inEdges[position] = k;
+      }
+    }
+  }
+
+  /**
+   * @return A mutable copy of this graph.
+   */
+  public SimpleGraph<T> thaw() {
+    SimpleGraph<T> graph = new SimpleGraph<>();
+    vertices.forEach(v -> graph.addVertex(v));
+    List<Edge<T>> edges = new ArrayList<>(targets.length);
+    for (int i = 0; i < vertices.size(); i++) {
+      for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+        edges.add(new SimpleEdge<>(vertices.get(i), vertices.get(targets[k]), weights[k]));
+      }
+    }
+    graph.addEdges(edges);
+    return graph;
+  }
+
+  @Override
+  public CompactGraph<T> freeze() {
+    return this;
+  }
+
+  /**
+   * A CompactGraph is immutable, so it's its own snapshot.
+   */
+  @Override
+  public CompactGraph<T> snapshot() {
+    return this;
+  }
+
+  /**
+   * Nothing to release: a CompactGraph can still be read after it's closed.
+   */
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public ContractionHierarchy<T> contractionHierarchy() throws IllegalArgumentException {
+    return ContractionHierarchy.fromGraph(this);
+  }
+
+  /**
+   * Sets the priority queue used by dijkstra, AStar and prim (a binary heap by default).
+   * For instance, for integer weights not larger than C, a bucket queue can be used with
+   * {@code graph.setPriorityQueueFactory(n -> new DialHeap(n, C))}.
+   * 
+   * @param priorityQueueFactory Creates a queue for keys in [0, n), given n.
+   */
+  public void setPriorityQueueFactory(IntFunction<IndexedPriorityQueue> priorityQueueFactory) {
+    this.priorityQueueFactory = Objects.requireNonNull(priorityQueueFactory);
+  }
+
+  /* IndexedGraph */
+
+  @Override
+  public int indexOf(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    return indexOf(v.getLabel());
+  }
+
+  private int indexOf(String label) throws NullPointerException, IllegalArgumentException {
+    Integer index = labelToIndex.get(Objects.requireNonNull(label));
+    if (index == null) {
+      throw VERTEX_NOT_IN_GRAPH_EXCEPTION_SUPPLIER.get();
+    }
+    return index;
+  }
+
+  @Override
+  public Vertex<T> vertexAt(int index) {
+    return vertices.get(index);
+  }
+
+  @Override
+  public int outDegreeAt(int index) {
+    return offsets[index + 1] - offsets[index];
+  }
+
+  @Override
+  public int targetAt(int index, int k) {
+    return targets[offsets[index] + k];
+  }
+
+  @Override
+  public double weightAt(int index, int k) {
+    return weights[offsets[index] + k];
+  }
+
+  @Override
+  public int inDegreeAt(int index) {
+    return inOffsets[index + 1] - inOffsets[index];
+  }
+
+  @Override
+  public int sourceAt(int index, int k) {
+    return sources[inOffsets[index] + k];
+  }
+
+  @Override
+  public double inWeightAt(int index, int k) {
+    return weights[inEdges[inOffsets[index] + k]];
+  }
+
+  /**
+   * @return The position of edge i -> j in targets, or a negative number if there is none.
+   */
+  private int edgePosition(int i, int j) {
+    return Arrays.binarySearch(targets, offsets[i], offsets[i + 1], j);
+  }
+
+  private Edge<T> edgeAt(int source, int position) {
+    return new SimpleEdge<T>(vertices.get(source), vertices.get(targets[position]), weights[position]);
+  }
+
+  /* Graph */
+
+  @Override
+  public List<Vertex<T>> getVertices() {
+    return vertices;
+  }
+
+  @Override
+  public List<Edge<T>> getEdges() {
+    List<Edge<T>> result = edges;
+    if (result == null) {
+      List<Edge<T>> allEdges = new ArrayList<>(targets.length);
+      for (int i = 0; i < vertices.size(); i++) {
+        allEdges.addAll(getEdgesFrom(i));
+      }
+      Collections.sort(allEdges);
+      result = Collections.unmodifiableList(allEdges);
+      edges = result;
+    }
+    return result;
+  }
+
+  @Override
+  public int size() {
+    return vertices.size();
+  }
+
+  @Override
+  public int edgesSize() {
+    return targets.length;
+  }
+
+  @Override
+  public Vertex<T> addVertex(String label) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException(IMMUTABLE_GRAPH_MESSAGE);
+  }
+
+  @Override
+  public Vertex<T> addVertex(String label, T value) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException(IMMUTABLE_GRAPH_MESSAGE);
+  }
+
+  @Override
+  public Vertex<T> addVertex(Vertex<T> v) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException(IMMUTABLE_GRAPH_MESSAGE);
+  }
+
+  @Override
+  public Vertex<T> getOrAddVertex(String label) throws UnsupportedOperationException {
+    return getOrAddVertex(label, Optional.empty());
+  }
+
+  @Override
+  public Vertex<T> getOrAddVertex(String label, Optional<T> value) throws UnsupportedOperationException {
+    return getVertex(label).orElseThrow(() -> new UnsupportedOperationException(IMMUTABLE_GRAPH_MESSAGE));
+  }
+
+  @Override
+  public Optional<Vertex<T>> getVertex(String label) {
+    Integer index = labelToIndex.get(label);
+    return index == null ? Optional.empty() : Optional.of(vertices.get(index));
+  }
+
+  @Override
+  public boolean hasVertex(String label) {
+    return labelToIndex.containsKey(label);
+  }
+
+  @Override
+  public boolean hasVertex(Vertex<T> v) {
+    return hasVertex(v.getLabel());
+  }
+
+  @Override
+  public Set<Vertex<T>> getNeighbours(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    int i = indexOf(v);
+    Set<Vertex<T>> neighbours = new HashSet<>();
+    for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+      if (targets[k] != i) {
+        neighbours.add(vertices.get(targets[k]));
+      }
+    }
+    return neighbours;
+  }
+
+  @Override
+  public Set<Vertex<T>> getAdjacentVertices(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    int i = indexOf(v);
+    Set<Vertex<T>> adjacent = getNeighbours(v);
+    for (int k = inOffsets[i]; k < inOffsets[i + 1]; k++) {
+      if (sources[k] != i) {
+        adjacent.add(vertices.get(sources[k]));
+      }
+    }
+    return adjacent;
+  }
+
+  private List<Edge<T>> getEdgesFrom(int i) {
+    return new AbstractList<Edge<T>>() {
+      @Override
+      public Edge<T> get(int k) {
+        return edgeAt(i, offsets[i] + k);
+      }
+
+      @Override
+      public int size() {
+        return offsets[i + 1] - offsets[i];
+      }
+    };
+  }
+
+  @Override
+  public List<Edge<T>> getEdgesFrom(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    return getEdgesFrom(indexOf(v));
+  }
+
+  @Override
+  public List<Edge<T>> getEdgesTo(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    int i = indexOf(v);
+    List<Edge<T>> edgesToV = new ArrayList<>(inDegreeAt(i));
+    for (int k = inOffsets[i]; k < inOffsets[i + 1]; k++) {
+      edgesToV.add(edgeAt(sources[k], inEdges[k]));
+    }
+    Collections.sort(edgesToV);
+    return edgesToV;
+  }
+
+  @Override
+  public Optional<Edge<T>> getEdgeBetween(Vertex<T> v, Vertex<T> u) throws NullPointerException, IllegalArgumentException {
+    int i = indexOf(v);
+    int position = edgePosition(i, indexOf(u));
+    return position < 0 ? Optional.empty() : Optional.of(edgeAt(i, position));
+  }
+
+  @Override
+  public int inDegree(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    return inDegreeAt(indexOf(v));
+  }
+
+  @Override
+  public int inDegree(String label) throws NullPointerException, IllegalArgumentException {
+    return inDegreeAt(indexOf(label));
+  }
+
+  @Override
+  public int outDegree(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    return outDegreeAt(indexOf(v));
+  }
+
+  @Override
+  public int outDegree(String label) throws NullPointerException, IllegalArgumentException {
+    return outDegreeAt(indexOf(label));
+  }
+
+  @Override
+  public Edge<T> addEdge(Edge<T> e) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException(IMMUTABLE_GRAPH_MESSAGE);
+  }
+
+  @Override
+  public Edge<T> addEdge(Vertex<T> source, Vertex<T> destination, double weight) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException(IMMUTABLE_GRAPH_MESSAGE);
+  }
+
+  @Override
+  public Edge<T> addEdge(Vertex<T> source, Vertex<T> destination) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException(IMMUTABLE_GRAPH_MESSAGE);
+  }
+
+  @Override
+  public void addEdges(Collection<? extends Edge<T>> edges) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException(IMMUTABLE_GRAPH_MESSAGE);
+  }
+
+  @Override
+  public StructureResult<T> dfs() {
+    return IndexedAlgorithms.dfs(this, IndexedAlgorithms.NONE);
+  }
+
+  @Override
+  public StructureResult<T> dfs(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.dfs(this, indexOf(source));
+  }
+
+  @Override
+  public List<Vertex<T>> topologicalOrder() {
+    return IndexedAlgorithms.toVertices(this, IndexedAlgorithms.topologicalOrder(this));
+  }
+
+  @Override
+  public List<Vertex<T>> dfs(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    int t = indexOf(target);
+    return IndexedAlgorithms.dfsPath(this, indexOf(source), t);
+  }
+
+  /**
+   * @return The index of target, or NONE when it's null or not in the graph,
+   *         in which case the search covers the whole graph and no path is returned.
+   */
+  private int targetIndex(Vertex<T> target) {
+    if (target == null) {
+      return IndexedAlgorithms.NONE;
+    }
+    return labelToIndex.getOrDefault(target.getLabel(), IndexedAlgorithms.NONE);
+  }
+
+  /**
+   * @throws IllegalArgumentException If source doesn't belong to the graph.
+   */
+  private int sourceIndex(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    Integer index = labelToIndex.get(source.getLabel());
+    if (index == null) {
+      throw new IllegalArgumentException("Source vertex doesn't belong to the graph");
+    }
+    return index;
+  }
+
+  @Override
+  public MinDistanceResult<T> bfs(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.bfs(this, sourceIndex(source), IndexedAlgorithms.NONE);
+  }
+
+  @Override
+  public MinDistanceResult<T> bfs(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    if (!hasVertex(target.getLabel())) {
+      throw new IllegalArgumentException("Target vertex doesn't belong to the graph");
+    }
+    return IndexedAlgorithms.bfs(this, sourceIndex(source), targetIndex(target));
+  }
+
+  @Override
+  public MinDistanceResult<T> bfsParallel(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.parallelBfs(this, sourceIndex(source));
+  }
+
+  @Override
+  public MinDistanceResult<T> dijkstra(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.aStar(this, sourceIndex(source), IndexedAlgorithms.NONE, null, priorityQueueFactory);
+  }
+
+  @Override
+  public MinDistanceResult<T> dijkstra(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.aStar(this, sourceIndex(source), targetIndex(target), null, priorityQueueFactory);
+  }
+
+  @Override
+  public MinDistanceResult<T> dijkstraParallel(Vertex<T> source, double delta) throws NullPointerException, IllegalArgumentException {
+    if (!(delta > 0)) {
+      throw new IllegalArgumentException("delta must be positive");
+    }
+    return IndexedAlgorithms.deltaStepping(this, sourceIndex(source), delta);
+  }
+
+  @Override
+  public MinDistanceResult<T> AStar(Vertex<T> source, Vertex<T> target, Function<Vertex<T>, Double> heuristic) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.aStar(this, sourceIndex(source), targetIndex(target), heuristic, priorityQueueFactory);
+  }
+
+  /**
+   * @throws IllegalArgumentException If target doesn't belong to the graph.
+   */
+  private int requiredTargetIndex(Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    Integer index = labelToIndex.get(target.getLabel());
+    if (index == null) {
+      throw new IllegalArgumentException("Target vertex doesn't belong to the graph");
+    }
+    return index;
+  }
+
+  @Override
+  public MinDistanceResult<T> bidirectionalDijkstra(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.bidirectionalAStar(this, sourceIndex(source), requiredTargetIndex(target), null, priorityQueueFactory);
+  }
+
+  @Override
+  public MinDistanceResult<T> bidirectionalAStar(Vertex<T> source, Vertex<T> target, BiFunction<Vertex<T>, Vertex<T>, Double> heuristic) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.bidirectionalAStar(this, sourceIndex(source), requiredTargetIndex(target), Objects.requireNonNull(heuristic), priorityQueueFactory);
+  }
+
+  @Override
+  public Graph<T> prim() throws UnsupportedOperationException {
+    if (!isUndirected()) {
+      throw new UnsupportedOperationException("Prim is defined for undirected graphs only");
+    }
+    if (size() == 0) {
+      return null;
+    }
+    //The tree grown from any vertex spans the graph iff the graph is connected:
+    //no need to check connectivity upfront
+    Graph<T> mst = IndexedAlgorithms.prim(this, 0, priorityQueueFactory);
+    return mst.size() == size() ? mst : null;
+  }
+
+  @Override
+  public Graph<T> boruvka() throws UnsupportedOperationException {
+    if (!isUndirected()) {
+      throw new UnsupportedOperationException("Boruvka is defined for undirected graphs only");
+    }
+    if (size() == 0) {
+      return null;
+    }
+    //Rooted at the same vertex as prim()
+    return IndexedAlgorithms.boruvka(this, 0);
+  }
+
+  @Override
+  public Graph<T> kruskal() throws UnsupportedOperationException {
+    Graph<T> forest = minimumSpanningForest();
+    return size() > 0 && forest.edgesSize() == size() - 1 ? forest : null;
+  }
+
+  @Override
+  public Graph<T> minimumSpanningForest() throws UnsupportedOperationException {
+    if (!isUndirected()) {
+      throw new UnsupportedOperationException("Kruskal is defined for undirected graphs only");
+    }
+    return IndexedAlgorithms.kruskal(this);
+  }
+
+
+  @Override
+  public boolean isConnected() {
+    return IndexedAlgorithms.isConnected(this);
+  }
+
+  @Override
+  public boolean isAcyclic() {
+    return dfs().isAcyclic();
+  }
+
+  @Override
+  public boolean sameComponent(Vertex<T> u, Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    int i = indexOf(u);
+    int j = indexOf(v);
+    GrowableDisjointSet c = components();
+    synchronized (c) {
+      return c.connected(i, j);
+    }
+  }
+
+  @Override
+  public int componentsCount() {
+    GrowableDisjointSet c = components();
+    synchronized (c) {
+      return c.count();
+    }
+  }
+
+  @Override
+  public int componentSize(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    int i = indexOf(v);
+    GrowableDisjointSet c = components();
+    synchronized (c) {
+      return c.setSize(i);
+    }
+  }
+
+  private synchronized GrowableDisjointSet components() {
+    if (components == null) {
+      components = IndexedAlgorithms.weakComponentSizes(this);
+    }
+    return components;
+  }
+
+  @Override
+  public boolean isTree() {
+    return isAcyclic() && isConnected() && (edgesSize() == size() - 1);
+  }
+
+  /**
+   * Rows are sorted, so the reverse of every edge is found with a binary search.
+   */
+  @Override
+  public boolean isUndirected() {
+    for (int i = 0; i < vertices.size(); i++) {
+      for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+        int j = targets[k];
+        if (j != i) {
+          int position = edgePosition(j, i);
+          if (position < 0 || weights[position] != weights[k]) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isBipartite() {
+    return IndexedAlgorithms.isBipartite(this);
+  }
+
+  /**
+   * The inverse graph has the incoming edges of this graph as outgoing edges.
+   */
+  @Override
+  public CompactGraph<T> inverse() {
+    double[] inWeights = new double[inEdges.length];
+    for (int k = 0; k < inEdges.length; k++) {
+      inWeights[k] = weights[inEdges[k]];
+    }
+    return new CompactGraph<>(
+      new ArrayList<>(vertices),
+      labelToIndex,
+      Arrays.copyOf(inOffsets, inOffsets.length),
+      Arrays.copyOf(sources, sources.length),
+      inWeights);
+  }
+
+  @Override
+  public Set<List<Vertex<T>>> allAcyclicPaths(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    return acyclicPaths(source, target).collect(Collectors.toSet());
+  }
+
+  @Override
+  public Set<List<Vertex<T>>> allCycles(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    return cycles(source).collect(Collectors.toSet());
+  }
+
+  @Override
+  public Stream<List<Vertex<T>>> acyclicPaths(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.acyclicPaths(this, sourceIndex(source), requiredTargetIndex(target));
+  }
+
+  @Override
+  public Stream<List<Vertex<T>>> cycles(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.cycles(this, sourceIndex(source));
+  }
+
+  @Override
+  public Stream<List<Vertex<T>>> allElementaryCycles() {
+    return IndexedAlgorithms.elementaryCycles(this);
+  }
+
+  @Override
+  public long countElementaryCycles() {
+    return IndexedAlgorithms.countElementaryCycles(this);
+  }
+
+  @Override
+  public boolean depthFirstTraversal(Vertex<T> source, DfsVisitor<T> visitor) throws NullPointerException, IllegalArgumentException {
+    return IndexedAlgorithms.depthFirstTraversal(this, sourceIndex(source), Objects.requireNonNull(visitor));
+  }
+
+  @Override
+  public boolean depthFirstTraversal(DfsVisitor<T> visitor) throws NullPointerException {
+    return IndexedAlgorithms.depthFirstTraversal(this, IndexedAlgorithms.NONE, Objects.requireNonNull(visitor));
+  }
+
+  @Override
+  public Set<Graph<T>> allSpanningTrees() {
+    //On undirected graphs, each tree is only listed rooted at the first vertex, like prim()
+    int root = size() > 0 && isUndirected() ? indexOf(getVertices().get(0)) : IndexedAlgorithms.NONE;
+    return IndexedAlgorithms.spanningTrees(this, root).collect(Collectors.toSet());
+  }
+
+  @Override
+  public Stream<Graph<T>> spanningTrees() {
+    return IndexedAlgorithms.spanningTrees(this, IndexedAlgorithms.NONE);
+  }
+
+  @Override
+  public BigInteger countSpanningTrees() {
+    return SpanningTrees.count(this);
+  }
+
+  @Override
+  public <R> boolean isIsomorphicTo(Graph<R> other) {
+    return Isomorphism.isomorphism(this, IndexedAlgorithms.indexed(other)) != null;
+  }
+
+  @Override
+  public long invariantHash() {
+    return Isomorphism.invariantHash(this);
+  }
+
+  /**
+   * Vertices sorted by total degree, descending (ties keep getVertices() order).
+   */
+  @Override
+  public List<Vertex<T>> verticesByDegree() {
+    int n = vertices.size();
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (i, j) -> (inDegreeAt(j) + outDegreeAt(j)) - (inDegreeAt(i) + outDegreeAt(i)));
+    return Arrays.stream(order).map(vertices::get).collect(Collectors.toList());
+  }
+
+  @Override
+  public List<Vertex<T>> verticesByDepthFrom(String label) throws NullPointerException, IllegalArgumentException {
+    List<Vertex<T>> reversePath = IndexedAlgorithms.preOrder(this, indexOf(label));
+    Collections.reverse(reversePath);
+    return reversePath;
+  }
+
+  @Override
+  public List<Vertex<T>> verticesByDepthFrom(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    return verticesByDepthFrom(v.getLabel());
+  }
+
+  @Override
+  public Graph<T> subGraph(Set<String> subset) throws IllegalArgumentException, NullPointerException {
+    Graph<T> newGraph = new SimpleGraph<T>();
+    int n = vertices.size();
+    boolean[] selected = new boolean[n];
+    for (String label : subset) {
+      int i = indexOf(label);
+      selected[i] = true;
+      newGraph.addVertex(vertices.get(i));
+    }
+    for (int i = 0; i < n; i++) {
+      if (selected[i]) {
+        for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+          if (selected[targets[k]]) {
+            newGraph.addEdge(vertices.get(i), vertices.get(targets[k]), weights[k]);
+          }
+        }
+      }
+    }
+    return newGraph;
+  }
+
+  @Override
+  public Graph<T> subGraph(List<String> subset) throws IllegalArgumentException, NullPointerException {
+    return subGraph(new HashSet<String>(subset));
+  }
+
+  @Override
+  public Graph<T> subGraph(SetVertexRef<T> subset) throws IllegalArgumentException, NullPointerException {
+    return subGraph(subset.get().stream().map(Vertex::getLabel).collect(Collectors.toSet()));
+  }
+
+  @Override
+  public Graph<T> subGraph(ListVertexRef<T> subset) throws IllegalArgumentException, NullPointerException {
+    return subGraph(subset.get().stream().map(Vertex::getLabel).collect(Collectors.toSet()));
+  }
+
+  @Override
+  public Set<Graph<T>> connectedComponents() throws UnsupportedOperationException {
+    return connectedComponentIds().subGraphs();
+  }
+
+  @Override
+  public Set<Graph<T>> stronglyConnectedComponents() {
+    return stronglyConnectedComponentIds().subGraphs();
+  }
+
+  @Override
+  public ComponentsResult<T> connectedComponentIds() throws UnsupportedOperationException {
+    if (!isUndirected()) {
+      throw new UnsupportedOperationException("For directed graphs, check Strongly Connected Components");
+    }
+    return IndexedAlgorithms.wrapComponents(this, IndexedAlgorithms.componentIds(this, IndexedAlgorithms.weakComponents(this)));
+  }
+
+  @Override
+  public ComponentsResult<T> stronglyConnectedComponentIds() {
+    return IndexedAlgorithms.wrapComponents(this, IndexedAlgorithms.stronglyConnectedComponents(this));
+  }
+
+  @Override
+  public Map<Vertex<T>, Byte> vertexColoring() {
+    return VertexColoring.welshPowell(this);
+  }
+
+  @Override
+  public ColoringResult<T> dsaturColoring() {
+    return IndexedAlgorithms.wrapColoring(this, VertexColoring.dsatur(this));
+  }
+
+  @Override
+  public ColoringResult<T> parallelColoring() {
+    return IndexedAlgorithms.wrapColoring(this, VertexColoring.jonesPlassmann(this, VertexColoring.DEFAULT_SEED));
+  }
+
+
+  @Override
+  public String toString() {
+    return thaw().toString();
+  }
+
+  /**
+   * Same definition as SimpleGraph's, computed once since the graph can't change.
+   */
+  @Override
+  public int hashCode() {
+    Integer result = hashCode;
+    if (result == null) {
+      int hash = 0;
+      for (Vertex<T> v : vertices) {
+        hash += IndexedAlgorithms.elementHash(v.hashCode());
+      }
+      for (Edge<T> e : getEdges()) {
+        hash += IndexedAlgorithms.elementHash(e.hashCode());
+      }
+      result = hash;
+      hashCode = result;
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object otherGraph) {
+    if (otherGraph == this) {
+      return true;
+    }
+    if (otherGraph == null || !otherGraph.getClass().equals(this.getClass())) {
+      return false;
+    }
+    @SuppressWarnings("unchecked")
+    CompactGraph<T> other = (CompactGraph<T>) otherGraph;
+    return other.size() == size() &&
+      other.edgesSize() == edgesSize() &&
+      other.hashCode() == hashCode() &&
+      IndexedAlgorithms.sameStructure(this, other);
+  }
+}
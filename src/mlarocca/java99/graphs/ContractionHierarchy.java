@@ -0,0 +1,618 @@
+package mlarocca.java99.graphs;
+
+import static mlarocca.java99.graphs.IndexedAlgorithms.NONE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import mlarocca.java99.graphs.data.MinDistanceResult;
+import mlarocca.java99.graphs.heaps.DaryHeap;
+import mlarocca.java99.graphs.heaps.IndexedPriorityQueue;
+
+/**
+ * Contraction hierarchy built on an immutable snapshot of a graph, answering
+ * point-to-point shortest path queries much faster than dijkstra(source, target).
+ *
+ * Preprocessing contracts the vertices one at a time, least important first, adding a
+ * shortcut u-&gt;w whenever the path u-&gt;v-&gt;w through the contracted vertex v is the
+ * only shortest path between u and w among the vertices left (witness search).
+ * Vertices are ranked by contraction order, and a query is a bidirectional Dijkstra
+ * search that only follows edges towards higher ranked vertices: the forward search
+ * from the source on outgoing edges, and the backward search from the target on
+ * incoming edges. Each shortcut remembers the vertex it bypasses, so that paths can be
+ * unpacked back to the edges of the original graph.
+ *
+ * Queries don't modify the hierarchy and can be run concurrently: each thread reuses
+ * its own search buffers, so that a query only touches the vertices it settles.
+ */
+public final class ContractionHierarchy<T> {
+
+  //Witness searches give up after settling this many vertices, adding a (possibly redundant) shortcut
+  private static final int WITNESS_SETTLED_LIMIT = 500;
+
+  private final CompactGraph<T> graph;
+  //rank[v] is the position of v in the contraction order
+  private final int[] rank;
+
+  //Edges from each vertex to higher ranked vertices, in CSR format:
+  //the edges leaving v are upTargets[upOffsets[v] .. upOffsets[v+1])
+  private final int[] upOffsets;
+  private final int[] upTargets;
+  private final double[] upWeights;
+  //The vertex bypassed by each shortcut, NONE for the edges of the original graph
+  private final int[] upMiddles;
+
+  //Edges entering each vertex from higher ranked vertices, in the same format
+  private final int[] downOffsets;
+  private final int[] downSources;
+  private final double[] downWeights;
+  private final int[] downMiddles;
+
+  private final ThreadLocal<QueryBuffers> buffers;
+
+  /**
+   * Builds the contraction hierarchy of a graph.
+   * Parallel edges and self loops don't affect shortest paths, and are dropped.
+   *
+   * @param graph The graph to preprocess: later changes to the graph won't be
+   *        reflected in the hierarchy.
+   * @throws IllegalArgumentException If any edge has a negative weight.
+   */
+  public static <T> ContractionHierarchy<T> fromGraph(Graph<T> graph) throws IllegalArgumentException {
+    return new ContractionHierarchy<>(CompactGraph.fromGraph(graph));
+  }
+
+  private ContractionHierarchy(CompactGraph<T> graph) throws IllegalArgumentException {
+    this.graph = graph;
+    int n = graph.size();
+    Arcs[] out = new Arcs[n];
+    Arcs[] in = new Arcs[n];
+    for (int v = 0; v < n; v++) {
+      out[v] = new Arcs();
+      in[v] = new Arcs();
+    }
+    for (int v = 0; v < n; v++) {
+      for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+        int u = graph.targetAt(v, k);
+        double w = graph.weightAt(v, k);
+        if (w < 0) {
+          throw new IllegalArgumentException("Contraction hierarchies require non-negative weights");
+        }
+        if (u != v) {
+          out[v].put(u, w, NONE);
+          in[u].put(v, w, NONE);
+        }
+      }
+    }
+
+    rank = contract(n, out, in);
+
+    //Once v is contracted, its arcs only lead to vertices contracted later
+    upOffsets = new int[n + 1];
+    downOffsets = new int[n + 1];
+    for (int v = 0; v < n; v++) {
+      upOffsets[v + 1] = upOffsets[v] + out[v].size;
+      downOffsets[v + 1] = downOffsets[v] + in[v].size;
+    }
+    upTargets = new int[upOffsets[n]];
+    upWeights = new double[upOffsets[n]];
+    upMiddles = new int[upOffsets[n]];
+    downSources = new int[downOffsets[n]];
+    downWeights = new double[downOffsets[n]];
+    downMiddles = new int[downOffsets[n]];
+    for (int v = 0; v < n; v++) {
+      out[v].copyTo(upOffsets[v], upTargets, upWeights, upMiddles);
+      in[v].copyTo(downOffsets[v], downSources, downWeights, downMiddles);
+    }
+
+    buffers = ThreadLocal.withInitial(() -> new QueryBuffers(n));
+  }
+
+  /**
+   * Contracts all the vertices, choosing each time the one with the smallest
+   * edge difference (shortcuts added minus arcs removed) plus number of neighbours
+   * already contracted. Priorities are only updated when a vertex is extracted
+   * (lazy updates): if it got worse than the next candidate, it's put back.
+   * When vertex v is contracted, its arcs are removed from its neighbours' lists,
+   * but not from its own.
+   *
+   * @return The rank of each vertex in the contraction order.
+   */
+  private static int[] contract(int n, Arcs[] out, Arcs[] in) {
+    WitnessSearch witness = new WitnessSearch(n, out);
+    int[] contractedNeighbours = new int[n];
+    IndexedPriorityQueue queue = new DaryHeap(n);
+    for (int v = 0; v < n; v++) {
+      queue.add(v, priority(v, out, in, contractedNeighbours, witness));
+    }
+
+    int[] rank = new int[n];
+    int order = 0;
+    while (!queue.isEmpty()) {
+      int v = queue.poll();
+      if (!queue.isEmpty()) {
+        double p = priority(v, out, in, contractedNeighbours, witness);
+        if (p > queue.priority(queue.peek())) {
+          queue.add(v, p);
+          continue;
+        }
+      }
+      addShortcuts(v, out, in, witness, false);
+      for (int k = 0; k < out[v].size; k++) {
+        int w = out[v].vertices[k];
+        in[w].remove(v);
+        contractedNeighbours[w]++;
+      }
+      for (int k = 0; k < in[v].size; k++) {
+        int u = in[v].vertices[k];
+        out[u].remove(v);
+        contractedNeighbours[u]++;
+      }
+      rank[v] = order++;
+    }
+    return rank;
+  }
+
+  private static double priority(int v, Arcs[] out, Arcs[] in, int[] contractedNeighbours, WitnessSearch witness) {
+    int shortcuts = addShortcuts(v, out, in, witness, true);
+    return shortcuts - out[v].size - in[v].size + contractedNeighbours[v];
+  }
+
+  /**
+   * For each pair of arcs u-&gt;v-&gt;w, looks for a witness path from u to w avoiding v
+   * that is no longer than the path through v, and adds a shortcut u-&gt;w if none is found.
+   *
+   * @param simulate If true, shortcuts are only counted.
+   * @return The number of shortcuts needed to contract v.
+   */
+  private static int addShortcuts(int v, Arcs[] out, Arcs[] in, WitnessSearch witness, boolean simulate) {
+    Arcs vIn = in[v];
+    Arcs vOut = out[v];
+    int shortcuts = 0;
+    for (int i = 0; i < vIn.size; i++) {
+      int u = vIn.vertices[i];
+      double dU = vIn.weights[i];
+      double maxDistance = 0;
+      for (int j = 0; j < vOut.size; j++) {
+        if (vOut.vertices[j] != u) {
+          maxDistance = Math.max(maxDistance, dU + vOut.weights[j]);
+        }
+      }
+      witness.run(u, v, maxDistance);
+      for (int j = 0; j < vOut.size; j++) {
+        int w = vOut.vertices[j];
+        double d = dU + vOut.weights[j];
+        if (w != u && witness.distanceTo(w) > d) {
+          shortcuts++;
+          if (!simulate) {
+            out[u].put(w, d, v);
+            in[w].put(u, d, v);
+          }
+        }
+      }
+      witness.reset();
+    }
+    return shortcuts;
+  }
+
+  /**
+   * Shortest distance from source to target.
+   *
+   * @return The distance, or positive infinity if target can't be reached from source.
+   * @throws NullPointerException If source or target is null.
+   * @throws IllegalArgumentException If source or target doesn't belong to the graph.
+   */
+  public double distance(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    QueryBuffers b = buffers.get();
+    try {
+      int meet = search(sourceIndex(source), targetIndex(target), b);
+      return meet == NONE ? Double.POSITIVE_INFINITY : b.forward[meet] + b.backward[meet];
+    } finally {
+      b.reset();
+    }
+  }
+
+  /**
+   * Shortest path from source to target.
+   *
+   * @return Distances and predecessors for the vertices on the (unpacked) shortest path,
+   *         plus the path itself; if target can't be reached, the path is null and only
+   *         the source is reported.
+   * @throws NullPointerException If source or target is null.
+   * @throws IllegalArgumentException If source or target doesn't belong to the graph.
+   */
+  public MinDistanceResult<T> query(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    int s = sourceIndex(source);
+    int t = targetIndex(target);
+    QueryBuffers b = buffers.get();
+    int[] hierarchyPath;
+    try {
+      int meet = search(s, t, b);
+      hierarchyPath = meet == NONE ? null : hierarchyPath(meet, b);
+    } finally {
+      b.reset();
+    }
+
+    Map<Vertex<T>, Double> distances = new HashMap<>();
+    Map<Vertex<T>, Vertex<T>> predecessors = new HashMap<>();
+    distances.put(graph.vertexAt(s), 0.0);
+    predecessors.put(graph.vertexAt(s), null);
+    List<Vertex<T>> path = null;
+    if (hierarchyPath != null) {
+      path = new ArrayList<>();
+      path.add(graph.vertexAt(s));
+      double distance = 0.0;
+      for (int i = 1; i < hierarchyPath.length; i++) {
+        distance = unpack(hierarchyPath[i - 1], hierarchyPath[i], distance, path, distances, predecessors);
+      }
+      path = Collections.unmodifiableList(path);
+    }
+    return wrapResult(distances, predecessors, path);
+  }
+
+  private int sourceIndex(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    if (!graph.hasVertex(Objects.requireNonNull(source))) {
+      throw new IllegalArgumentException("Source vertex doesn't belong to the graph");
+    }
+    return graph.indexOf(source);
+  }
+
+  private int targetIndex(Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    if (!graph.hasVertex(Objects.requireNonNull(target))) {
+      throw new IllegalArgumentException("Target vertex doesn't belong to the graph");
+    }
+    return graph.indexOf(target);
+  }
+
+  /**
+   * Bidirectional search on the upward edges, always advancing the side with the
+   * smallest key, until both keys reach the length of the best path found.
+   * The vertex where the two searches meet on the shortest path is the highest
+   * ranked vertex on it.
+   *
+   * @return The meeting vertex, or NONE if target can't be reached from source.
+   */
+  private int search(int source, int target, QueryBuffers b) {
+    b.touch(source);
+    b.touch(target);
+    b.forward[source] = 0.0;
+    b.backward[target] = 0.0;
+    b.forwardQueue.add(source, 0.0);
+    b.backwardQueue.add(target, 0.0);
+
+    double best = Double.POSITIVE_INFINITY;
+    int meet = NONE;
+    while (true) {
+      double topF = b.forwardQueue.isEmpty() ? Double.POSITIVE_INFINITY : b.forwardQueue.priority(b.forwardQueue.peek());
+      double topB = b.backwardQueue.isEmpty() ? Double.POSITIVE_INFINITY : b.backwardQueue.priority(b.backwardQueue.peek());
+      if (Math.min(topF, topB) >= best) {
+        break;
+      }
+      boolean isForward = topF <= topB;
+      IndexedPriorityQueue queue = isForward ? b.forwardQueue : b.backwardQueue;
+      double[] distances = isForward ? b.forward : b.backward;
+      int[] predecessors = isForward ? b.forwardPredecessors : b.backwardPredecessors;
+      int[] offsets = isForward ? upOffsets : downOffsets;
+      int[] neighbours = isForward ? upTargets : downSources;
+      double[] weights = isForward ? upWeights : downWeights;
+
+      int v = queue.poll();
+      double dV = distances[v];
+      double[] otherDistances = isForward ? b.backward : b.forward;
+      if (dV + otherDistances[v] < best) {
+        best = dV + otherDistances[v];
+        meet = v;
+      }
+      for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+        int u = neighbours[k];
+        double dU = dV + weights[k];
+        if (dU < distances[u]) {
+          b.touch(u);
+          distances[u] = dU;
+          predecessors[u] = v;
+          queue.addOrDecreasePriority(u, dU);
+        }
+      }
+    }
+    return meet;
+  }
+
+  //Vertices on the shortest path in the hierarchy, from source to target through meet
+  private int[] hierarchyPath(int meet, QueryBuffers b) {
+    List<Integer> path = new ArrayList<>();
+    for (int v = meet; v != NONE; v = b.forwardPredecessors[v]) {
+      path.add(v);
+    }
+    Collections.reverse(path);
+    for (int v = b.backwardPredecessors[meet]; v != NONE; v = b.backwardPredecessors[v]) {
+      path.add(v);
+    }
+    return path.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Replaces the hierarchy arc from-&gt;to with the original edges it stands for,
+   * appending them to path and recording distances and predecessors along the way.
+   * Shortcuts are expanded with an explicit stack: the arc u-&gt;w bypassing v is
+   * replaced by u-&gt;v and v-&gt;w, which are respectively the arcs entering and
+   * leaving v when v was contracted.
+   *
+   * @return The distance of to from the source.
+   */
+  private double unpack(
+      int from,
+      int to,
+      double distance,
+      List<Vertex<T>> path,
+      Map<Vertex<T>, Double> distances,
+      Map<Vertex<T>, Vertex<T>> predecessors) {
+    //Each pending arc is packed as (from, to) in a long
+    long[] stack = new long[16];
+    int top = 0;
+    stack[top++] = pack(from, to);
+    while (top > 0) {
+      long arc = stack[--top];
+      int u = (int) (arc >>> 32);
+      int w = (int) arc;
+      int k = arcPosition(u, w);
+      boolean isUp = rank[w] > rank[u];
+      int middle = isUp ? upMiddles[k] : downMiddles[k];
+      if (middle == NONE) {
+        distance += isUp ? upWeights[k] : downWeights[k];
+        Vertex<T> vertexW = graph.vertexAt(w);
+        path.add(vertexW);
+        distances.put(vertexW, distance);
+        predecessors.put(vertexW, graph.vertexAt(u));
+      } else {
+        if (top + 2 > stack.length) {
+          stack = Arrays.copyOf(stack, 2 * stack.length);
+        }
+        stack[top++] = pack(middle, w);
+        stack[top++] = pack(u, middle);
+      }
+    }
+    return distance;
+  }
+
+  private static long pack(int from, int to) {
+    return ((long) from << 32) | (to & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Position of the arc u-&gt;w among the upward arcs of u, if w is ranked higher,
+   * or among the downward arcs of w otherwise.
+   */
+  private int arcPosition(int u, int w) {
+    if (rank[w] > rank[u]) {
+      for (int k = upOffsets[u]; k < upOffsets[u + 1]; k++) {
+        if (upTargets[k] == w) {
+          return k;
+        }
+      }
+    } else {
+      for (int k = downOffsets[w]; k < downOffsets[w + 1]; k++) {
+        if (downSources[k] == u) {
+          return k;
+        }
+      }
+    }
+    throw new IllegalStateException("Missing arc in the hierarchy");
+  }
+
+  private static <T> MinDistanceResult<T> wrapResult(
+      Map<Vertex<T>, Double> distances,
+      Map<Vertex<T>, Vertex<T>> predecessors,
+      List<Vertex<T>> path) {
+    return new MinDistanceResult<T>() {
+      @Override
+      public Map<Vertex<T>, Vertex<T>> predecessors() {
+        return predecessors;
+      }
+
+      @Override
+      public Map<Vertex<T>, Double> distances() {
+        return distances;
+      }
+
+      @Override
+      public List<Vertex<T>> path() {
+        return path;
+      }
+    };
+  }
+
+  /**
+   * @return The number of shortcuts added by preprocessing.
+   */
+  public int shortcutsCount() {
+    int count = 0;
+    for (int middle : upMiddles) {
+      count += middle == NONE ? 0 : 1;
+    }
+    for (int middle : downMiddles) {
+      count += middle == NONE ? 0 : 1;
+    }
+    return count;
+  }
+
+  /**
+   * Arcs leaving (or entering) a vertex during contraction, at most one per neighbour:
+   * only the shortest one is kept.
+   */
+  private static final class Arcs {
+    private int[] vertices = new int[4];
+    private double[] weights = new double[4];
+    private int[] middles = new int[4];
+    private int size = 0;
+
+    private int indexOf(int v) {
+      for (int k = 0; k < size; k++) {
+        if (vertices[k] == v) {
+          return k;
+        }
+      }
+      return NONE;
+    }
+
+    void put(int v, double weight, int middle) {
+      int k = indexOf(v);
+      if (k == NONE) {
+        if (size == vertices.length) {
+          vertices = Arrays.copyOf(vertices, 2 * size);
+          weights = Arrays.copyOf(weights, 2 * size);
+          middles = Arrays.copyOf(middles, 2 * size);
+        }
+        vertices[size] = v;
+        weights[size] = weight;
+        middles[size] = middle;
+        size++;
+      } else if (weight < weights[k]) {
+        weights[k] = weight;
+        middles[k] = middle;
+      }
+    }
+
+    void remove(int v) {
+      int k = indexOf(v);
+      if (k != NONE) {
+        size--;
+        vertices[k] = vertices[size];
+        weights[k] = weights[size];
+        middles[k] = middles[size];
+      }
+    }
+
+    void copyTo(int offset, int[] vertices, double[] weights, int[] middles) {
+      System.arraycopy(this.vertices, 0, vertices, offset, size);
+      System.arraycopy(this.weights, 0, weights, offset, size);
+      System.arraycopy(this.middles, 0, middles, offset, size);
+    }
+  }
+
+  /**
+   * Dijkstra's search among the vertices not yet contracted, reusing its arrays
+   * between runs: reset() only clears the entries touched by the last run.
+   */
+  private static final class WitnessSearch {
+    private final Arcs[] out;
+    private final double[] distances;
+    private final int[] touched;
+    private int touchedSize = 0;
+    private final IndexedPriorityQueue queue;
+
+    WitnessSearch(int n, Arcs[] out) {
+      this.out = out;
+      distances = new double[n];
+      touched = new int[n];
+      Arrays.fill(distances, Double.POSITIVE_INFINITY);
+      queue = new DaryHeap(n);
+    }
+
+    /**
+     * Settles vertices reachable from source without going through excluded, until
+     * the next distance exceeds maxDistance or too many vertices have been settled.
+     */
+    void run(int source, int excluded, double maxDistance) {
+      distances[source] = 0.0;
+      touched[touchedSize++] = source;
+      queue.add(source, 0.0);
+      int settled = 0;
+      while (!queue.isEmpty() && settled < WITNESS_SETTLED_LIMIT) {
+        int v = queue.poll();
+        double dV = distances[v];
+        if (dV > maxDistance) {
+          break;
+        }
+        settled++;
+        Arcs arcs = out[v];
+        for (int k = 0; k < arcs.size; k++) {
+          int u = arcs.vertices[k];
+          double dU = dV + arcs.weights[k];
+          if (u != excluded && dU < distances[u]) {
+            if (distances[u] == Double.POSITIVE_INFINITY) {
+              touched[touchedSize++] = u;
+            }
+            distances[u] = dU;
+            queue.addOrDecreasePriority(u, dU);
+          }
+        }
+      }
+    }
+
+    double distanceTo(int v) {
+      return distances[v];
+    }
+
+    void reset() {
+      while (!queue.isEmpty()) {
+        queue.poll();
+      }
+      for (int i = 0; i < touchedSize; i++) {
+        distances[touched[i]] = Double.POSITIVE_INFINITY;
+      }
+      touchedSize = 0;
+    }
+  }
+
+  /**
+   * Per-thread arrays used by queries. Like WitnessSearch, only the entries touched
+   * by a query are cleared after it, so that a query's cost doesn't depend on the
+   * size of the graph.
+   */
+  private static final class QueryBuffers {
+    private final double[] forward;
+    private final double[] backward;
+    private final int[] forwardPredecessors;
+    private final int[] backwardPredecessors;
+    private final boolean[] isTouched;
+    private final int[] touched;
+    private int touchedSize = 0;
+    private final IndexedPriorityQueue forwardQueue;
+    private final IndexedPriorityQueue backwardQueue;
+
+    QueryBuffers(int n) {
+      forward = new double[n];
+      backward = new double[n];
+      forwardPredecessors = new int[n];
+      backwardPredecessors = new int[n];
+      isTouched = new boolean[n];
+      touched = new int[n];
+      Arrays.fill(forward, Double.POSITIVE_INFINITY);
+      Arrays.fill(backward, Double.POSITIVE_INFINITY);
+      Arrays.fill(forwardPredecessors, NONE);
+      Arrays.fill(backwardPredecessors, NONE);
+      forwardQueue = new DaryHeap(n);
+      backwardQueue = new DaryHeap(n);
+    }
+
+    void touch(int v) {
+      if (!isTouched[v]) {
+        isTouched[v] = true;
+        touched[touchedSize++] = v;
+      }
+    }
+
+    void reset() {
+      while (!forwardQueue.isEmpty()) {
+        forwardQueue.poll();
+      }
+      while (!backwardQueue.isEmpty()) {
+        backwardQueue.poll();
+      }
+      for (int i = 0; i < touchedSize; i++) {
+        int v = touched[i];
+        forward[v] = Double.POSITIVE_INFINITY;
+        backward[v] = Double.POSITIVE_INFINITY;
+        forwardPredecessors[v] = NONE;
+        backwardPredecessors[v] = NONE;
+        isTouched[v] = false;
+      }
+      touchedSize = 0;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package mlarocca.java99.graphs;
+
+/**
+ * Callbacks for {@link Graph#depthFirstTraversal(Vertex, DfsVisitor)}.
+ * All methods do nothing by default.
+ *
+ * Every edge u-&gt;v examined is reported exactly once, as:
+ * - a tree edge, if v is entered for the first time through it (treeEdge is called
+ *   before preVisit(v));
+ * - a back edge, if v is still on the stack (self loops included);
+ * - a forward edge, if v is a descendant of u that has already been left;
+ * - a cross edge, otherwise.
+ * On undirected graphs, the edge back to the parent is reported as a back edge.
+ */
+public interface DfsVisitor<T> {
+  /**
+   * Called when v is entered.
+   *
+   * @return False to skip the edges leaving v: v is left right away.
+   */
+  public default boolean preVisit(Vertex<T> v) {
+    return true;
+  }
+
+  //Called when v is left, after all the vertices reachable through tree edges from it
+  public default void postVisit(Vertex<T> v) {
+  }
+
+  public default void treeEdge(Vertex<T> u, Vertex<T> v) {
+  }
+
+  public default void backEdge(Vertex<T> u, Vertex<T> v) {
+  }
+
+  public default void forwardEdge(Vertex<T> u, Vertex<T> v) {
+  }
+
+  public default void crossEdge(Vertex<T> u, Vertex<T> v) {
+  }
+
+  /**
+   * Checked once per step of the traversal, before the step: a step either enters a new
+   * root (preVisit), examines one edge (one of the edge callbacks, followed by preVisit
+   * for tree edges) or leaves one vertex (postVisit). Once it returns true, no further
+   * callback is made.
+   */
+  public default boolean isDone() {
+    return false;
+  }
+}
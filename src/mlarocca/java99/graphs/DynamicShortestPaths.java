@@ -0,0 +1,210 @@
+package mlarocca.java99.graphs;
+
+import static mlarocca.java99.graphs.IndexedAlgorithms.NONE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import mlarocca.java99.graphs.data.MinDistanceResult;
+import mlarocca.java99.graphs.heaps.DaryHeap;
+import mlarocca.java99.graphs.heaps.IndexedPriorityQueue;
+
+/**
+ * Shortest path tree from a fixed source, kept up to date as edges are added to a graph.
+ *
+ * When an edge u-&gt;v is added, or its weight decreases, only the vertices whose distance
+ * gets shorter are visited (Ramalingam-Reps): if the edge doesn't improve v's distance,
+ * nothing changes; otherwise a Dijkstra search starts from v, and stops at the vertices
+ * that aren't improved. Each update costs O(E' log V) for the E' edges leaving the
+ * vertices improved, instead of a search of the whole graph.
+ * Increasing the weight of an edge only matters if the edge is in the tree, in which
+ * case the tree is computed again from scratch.
+ *
+ * Edges must be added through this object (vertices can be added to the graph directly):
+ * after any other change to the graph, recompute() must be called. Weights can't be
+ * negative. Not thread safe.
+ */
+public final class DynamicShortestPaths<T> {
+
+  private final SimpleGraph<T> graph;
+  private final int source;
+
+  //Indexed by the vertices' indices in graph; grown as vertices are added to it
+  private double[] distances;
+  private int[] predecessors;
+  //Reused by each update: only the vertices improved go through it
+  private IndexedPriorityQueue queue;
+
+  /**
+   * Computes the shortest path tree of source in graph.
+   *
+   * @throws IllegalArgumentException If source doesn't belong to the graph, or if any edge
+   *         has a negative weight.
+   */
+  public static <T> DynamicShortestPaths<T> fromSource(SimpleGraph<T> graph, Vertex<T> source)
+      throws NullPointerException, IllegalArgumentException {
+    if (!graph.hasVertex(Objects.requireNonNull(source))) {
+      throw new IllegalArgumentException("Source vertex doesn't belong to the graph");
+    }
+    for (int v = 0, n = graph.size(); v < n; v++) {
+      for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+        checkWeight(graph.weightAt(v, k));
+      }
+    }
+    return new DynamicShortestPaths<>(graph, graph.indexOf(source));
+  }
+
+  private DynamicShortestPaths(SimpleGraph<T> graph, int source) {
+    this.graph = graph;
+    this.source = source;
+    distances = new double[0];
+    predecessors = new int[0];
+    recompute();
+  }
+
+  private static void checkWeight(double weight) throws IllegalArgumentException {
+    if (weight < 0) {
+      throw new IllegalArgumentException("Dynamic shortest paths require non-negative weights");
+    }
+  }
+
+  /**
+   * Adds an edge to the graph, or replaces the edge between the same vertices, and
+   * updates the shortest path tree.
+   *
+   * @return The edge added.
+   * @throws IllegalArgumentException If either vertex doesn't belong to the graph, or if
+   *         weight is negative.
+   */
+  public Edge<T> addEdge(Vertex<T> from, Vertex<T> to, double weight) throws NullPointerException, IllegalArgumentException {
+    checkWeight(weight);
+    Optional<Edge<T>> old = graph.getEdgeBetween(Objects.requireNonNull(from), Objects.requireNonNull(to));
+    Edge<T> edge = graph.addEdge(from, to, weight);
+    ensureCapacity();
+    int u = graph.indexOf(from);
+    int v = graph.indexOf(to);
+    if (old.isPresent() && old.get().getWeight() < weight) {
+      //Only the paths through a tree edge can get longer
+      if (predecessors[v] == u) {
+        recompute();
+      }
+    } else if (distances[u] + weight < distances[v]) {
+      distances[v] = distances[u] + weight;
+      predecessors[v] = u;
+      queue.add(v, distances[v]);
+      relax();
+    }
+    return edge;
+  }
+
+  /**
+   * Computes the shortest path tree from scratch: needed after the graph is changed
+   * without going through this object.
+   */
+  public void recompute() {
+    ensureCapacity();
+    Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    Arrays.fill(predecessors, NONE);
+    distances[source] = 0.0;
+    queue.add(source, 0.0);
+    relax();
+  }
+
+  /**
+   * Dijkstra's search from the vertices in the queue, whose distances have been lowered.
+   * With non-negative weights, a vertex polled has its final distance, and only the
+   * vertices that it improves enter the queue.
+   */
+  private void relax() {
+    while (!queue.isEmpty()) {
+      int v = queue.poll();
+      double dV = distances[v];
+      for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+        int u = graph.targetAt(v, k);
+        double dU = dV + graph.weightAt(v, k);
+        if (dU < distances[u]) {
+          distances[u] = dU;
+          predecessors[u] = v;
+          queue.addOrDecreasePriority(u, dU);
+        }
+      }
+    }
+  }
+
+  //Vertices can be added to the graph at any time: they can't be reached until an edge is added
+  private void ensureCapacity() {
+    int n = graph.size();
+    if (n > distances.length) {
+      int oldSize = distances.length;
+      int capacity = Math.max(n, 2 * oldSize);
+      distances = Arrays.copyOf(distances, capacity);
+      predecessors = Arrays.copyOf(predecessors, capacity);
+      Arrays.fill(distances, oldSize, capacity, Double.POSITIVE_INFINITY);
+      Arrays.fill(predecessors, oldSize, capacity, NONE);
+      queue = new DaryHeap(capacity);
+    }
+  }
+
+  private int indexOrNone(Vertex<T> v) throws NullPointerException {
+    if (!graph.hasVertex(Objects.requireNonNull(v))) {
+      return NONE;
+    }
+    int i = graph.indexOf(v);
+    return i < distances.length ? i : NONE;
+  }
+
+  public Vertex<T> source() {
+    return graph.vertexAt(source);
+  }
+
+  /**
+   * @return The distance of v from the source, or positive infinity if v can't be reached
+   *         (or doesn't belong to the graph).
+   */
+  public double distanceTo(Vertex<T> v) throws NullPointerException {
+    int i = indexOrNone(v);
+    return i == NONE ? Double.POSITIVE_INFINITY : distances[i];
+  }
+
+  /**
+   * @return The vertex preceding v on the shortest path from the source, or null if v is
+   *         the source or it can't be reached.
+   */
+  public Vertex<T> predecessorOf(Vertex<T> v) throws NullPointerException {
+    int i = indexOrNone(v);
+    return i == NONE || predecessors[i] == NONE ? null : graph.vertexAt(predecessors[i]);
+  }
+
+  /**
+   * @return The shortest path from the source to v, or null if v can't be reached.
+   */
+  public List<Vertex<T>> pathTo(Vertex<T> v) throws NullPointerException {
+    int i = indexOrNone(v);
+    if (i == NONE || distances[i] == Double.POSITIVE_INFINITY) {
+      return null;
+    }
+    List<Vertex<T>> path = new ArrayList<>();
+    for (; i != NONE; i = predecessors[i]) {
+      path.add(graph.vertexAt(i));
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+  /**
+   * @return A copy of the current shortest path tree, which later updates won't change.
+   */
+  public MinDistanceResult<T> shortestPaths() {
+    int n = graph.size();
+    ensureCapacity();
+    return IndexedAlgorithms.wrapMinDistanceResults(
+        graph,
+        NONE,
+        Arrays.copyOf(distances, n),
+        Arrays.copyOf(predecessors, n));
+  }
+}
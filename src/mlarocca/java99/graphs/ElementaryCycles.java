@@ -0,0 +1,280 @@
+package mlarocca.java99.graphs;
+
+import static mlarocca.java99.graphs.IndexedAlgorithms.NONE;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Johnson's algorithm for the elementary cycles of a directed graph, in
+ * O((V + E)(C + 1)) time for C cycles, run as an iterator so that cycles are only
+ * found as they are consumed.
+ *
+ * Vertices are processed in index order: the cycles whose least vertex is s are
+ * searched from s within the strongly connected component of the subgraph induced by
+ * the vertices from s onwards, and vertices s can't currently reach a cycle through
+ * are kept blocked until a vertex they lead to is unblocked. Each cycle is reported
+ * once, starting and ending at its least vertex.
+ * Both the search and the unblocking use explicit stacks.
+ */
+final class ElementaryCycles<T> implements Iterator<List<Vertex<T>>> {
+
+  private final IndexedGraph<T> graph;
+  private final int n;
+
+  //The least vertex of the cycles being searched, and the component they are searched in
+  private int start = -1;
+  private final boolean[] inComponent;
+
+  private final boolean[] blocked;
+  //blockedBy[w][0 .. blockedBySize[w]) lists the vertices to unblock when w is unblocked
+  private final int[][] blockedBy;
+  private final int[] blockedBySize;
+
+  //Current path from start, with the next edge to follow from each vertex and whether
+  //a cycle was found through it
+  private final int[] path;
+  private final int[] cursors;
+  private final boolean[] found;
+  private int length = 0;
+
+  //True when path holds a cycle that hasn't been returned by next() yet
+  private boolean hasCycle = false;
+  private boolean isFinished = false;
+
+  ElementaryCycles(IndexedGraph<T> graph) {
+    this.graph = graph;
+    n = graph.size();
+    inComponent = new boolean[n];
+    blocked = new boolean[n];
+    blockedBy = new int[n][];
+    blockedBySize = new int[n];
+    path = new int[n];
+    cursors = new int[n];
+    found = new boolean[n];
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (!hasCycle && !isFinished) {
+      hasCycle = advance();
+      isFinished = !hasCycle;
+    }
+    return hasCycle;
+  }
+
+  @Override
+  public List<Vertex<T>> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    hasCycle = false;
+    int[] cycle = Arrays.copyOf(path, length + 1);
+    cycle[length] = start;
+    return IndexedAlgorithms.toVertices(graph, cycle);
+  }
+
+  /**
+   * Counts the cycles left, without building them.
+   */
+  long count() {
+    long count = hasCycle ? 1 : 0;
+    hasCycle = false;
+    while (!isFinished && advance()) {
+      count++;
+    }
+    isFinished = true;
+    return count;
+  }
+
+  /**
+   * Resumes the search until the next cycle: when it returns true, the cycle is
+   * path[0 .. length) followed by start.
+   */
+  private boolean advance() {
+    while (true) {
+      if (length == 0) {
+        start = nextStart(start + 1);
+        if (start == NONE) {
+          return false;
+        }
+        for (int v = start; v < n; v++) {
+          if (inComponent[v]) {
+            blocked[v] = false;
+            blockedBySize[v] = 0;
+          }
+        }
+        push(start);
+      }
+
+      int v = path[length - 1];
+      if (cursors[length - 1] < graph.outDegreeAt(v)) {
+        int w = graph.targetAt(v, cursors[length - 1]++);
+        if (!inComponent[w]) {
+          continue;
+        }
+        if (w == start) {
+          found[length - 1] = true;
+          return true;
+        } else if (!blocked[w]) {
+          push(w);
+        }
+      } else {
+        //All the edges out of v have been followed: backtrack
+        boolean foundThroughV = found[length - 1];
+        if (foundThroughV) {
+          unblock(v);
+        } else {
+          for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+            int w = graph.targetAt(v, k);
+            if (inComponent[w]) {
+              addBlockedBy(w, v);
+            }
+          }
+        }
+        length -= 1;
+        if (length > 0 && foundThroughV) {
+          found[length - 1] = true;
+        }
+      }
+    }
+  }
+
+  private void push(int v) {
+    path[length] = v;
+    cursors[length] = 0;
+    found[length] = false;
+    blocked[v] = true;
+    length += 1;
+  }
+
+  private void addBlockedBy(int w, int v) {
+    int[] list = blockedBy[w];
+    int size = blockedBySize[w];
+    for (int k = 0; k < size; k++) {
+      if (list[k] == v) {
+        return;
+      }
+    }
+    if (list == null) {
+      list = blockedBy[w] = new int[4];
+    } else if (size == list.length) {
+      list = blockedBy[w] = Arrays.copyOf(list, 2 * size);
+    }
+    list[size] = v;
+    blockedBySize[w] = size + 1;
+  }
+
+  //Unblocks u, and transitively the vertices waiting for it
+  private void unblock(int u) {
+    int[] stack = new int[] { u };
+    int top = 1;
+    blocked[u] = false;
+    while (top > 0) {
+      int x = stack[--top];
+      for (int k = 0; k < blockedBySize[x]; k++) {
+        int w = blockedBy[x][k];
+        if (blocked[w]) {
+          blocked[w] = false;
+          if (top == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * top);
+          }
+          stack[top++] = w;
+        }
+      }
+      blockedBySize[x] = 0;
+    }
+  }
+
+  /**
+   * Iterative Tarjan's algorithm on the subgraph induced by the vertices from first onwards:
+   * marks in inComponent the strongly connected component with the least vertex among those
+   * containing a cycle (more than one vertex, or a self loop).
+   *
+   * @return The least vertex of that component, or NONE if the subgraph is acyclic.
+   */
+  private int nextStart(int first) {
+    int[] order = new int[n];
+    int[] low = new int[n];
+    int[] component = new int[n];
+    int[] stack = new int[n];
+    int[] callStack = new int[n];
+    int[] callCursors = new int[n];
+    boolean[] onStack = new boolean[n];
+    Arrays.fill(order, NONE);
+    Arrays.fill(component, NONE);
+    int clock = 0;
+    int top = 0;
+    int components = 0;
+    int best = NONE;
+    int bestComponent = NONE;
+
+    for (int root = first; root < n; root++) {
+      if (order[root] != NONE) {
+        continue;
+      }
+      int calls = 0;
+      order[root] = low[root] = clock++;
+      stack[top++] = root;
+      onStack[root] = true;
+      callStack[calls] = root;
+      callCursors[calls++] = 0;
+      while (calls > 0) {
+        int v = callStack[calls - 1];
+        if (callCursors[calls - 1] < graph.outDegreeAt(v)) {
+          int w = graph.targetAt(v, callCursors[calls - 1]++);
+          if (w < first) {
+            continue;
+          }
+          if (order[w] == NONE) {
+            order[w] = low[w] = clock++;
+            stack[top++] = w;
+            onStack[w] = true;
+            callStack[calls] = w;
+            callCursors[calls++] = 0;
+          } else if (onStack[w]) {
+            low[v] = Math.min(low[v], order[w]);
+          }
+        } else {
+          calls -= 1;
+          if (calls > 0) {
+            int parent = callStack[calls - 1];
+            low[parent] = Math.min(low[parent], low[v]);
+          }
+          if (low[v] == order[v]) {
+            int least = v;
+            int size = 0;
+            int w;
+            do {
+              w = stack[--top];
+              onStack[w] = false;
+              component[w] = components;
+              least = Math.min(least, w);
+              size++;
+            } while (w != v);
+            if ((size > 1 || hasSelfLoop(v)) && (best == NONE || least < best)) {
+              best = least;
+              bestComponent = components;
+            }
+            components++;
+          }
+        }
+      }
+    }
+    for (int v = 0; v < n; v++) {
+      inComponent[v] = bestComponent != NONE && component[v] == bestComponent;
+    }
+    return best;
+  }
+
+  private boolean hasSelfLoop(int v) {
+    for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+      if (graph.targetAt(v, k) == v) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -1,12 +1,18 @@
 package mlarocca.java99.graphs;
 
+import java.math.BigInteger;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import mlarocca.java99.graphs.data.ColoringResult;
+import mlarocca.java99.graphs.data.ComponentsResult;
 import mlarocca.java99.graphs.data.MinDistanceResult;
 import mlarocca.java99.graphs.data.StructureResult;
 
@@ -44,23 +50,121 @@ public interface Graph<T> {
   public Edge<T> addEdge(Edge<T> e) throws IllegalArgumentException;  
   public Edge<T> addEdge(Vertex<T> source, Vertex<T> destination, double weight) throws IllegalArgumentException;  
   public Edge<T> addEdge(Vertex<T> source, Vertex<T> destination) throws IllegalArgumentException;  
+
+  /**
+   * Adds all the edges in a batch, at once: same result as adding them one by one.
+   *
+   * @throws IllegalArgumentException If the endpoints of any edge aren't in the graph
+   *         (no edge is added, in that case).
+   */
+  public void addEdges(Collection<? extends Edge<T>> edges) throws NullPointerException, IllegalArgumentException;
  
   public StructureResult<T> dfs();
   public StructureResult<T> dfs(Vertex<T> source) throws NullPointerException, IllegalArgumentException;
   public List<Vertex<T>> topologicalOrder();
 
   public List<Vertex<T>> dfs(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException;
+
+  /**
+   * Iterative depth first traversal from source, reporting each step to the visitor:
+   * safe on arbitrarily deep graphs.
+   *
+   * @return False iff the visitor stopped the traversal early.
+   */
+  public boolean depthFirstTraversal(Vertex<T> source, DfsVisitor<T> visitor) throws NullPointerException, IllegalArgumentException;
+
+  /**
+   * Same as depthFirstTraversal(source, visitor), starting a new tree from each vertex
+   * not yet visited, in the order of getVertices().
+   */
+  public boolean depthFirstTraversal(DfsVisitor<T> visitor) throws NullPointerException;
   
   public MinDistanceResult<T> bfs(Vertex<T> source) throws NullPointerException, IllegalArgumentException;
   public MinDistanceResult<T> bfs(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException;
+  /**
+   * Parallel, direction optimizing version of bfs(source): same distances, but when a
+   * vertex can be reached from several vertices at the previous level, any of them can
+   * be its predecessor.
+   */
+  public MinDistanceResult<T> bfsParallel(Vertex<T> source) throws NullPointerException, IllegalArgumentException;
   public MinDistanceResult<T> dijkstra(Vertex<T> source) throws NullPointerException, IllegalArgumentException;
   public MinDistanceResult<T> dijkstra(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException;
   public MinDistanceResult<T> AStar(Vertex<T> source, Vertex<T> target, Function<Vertex<T>, Double> heuristic) throws NullPointerException, IllegalArgumentException;
 
+  /**
+   * Parallel single source shortest paths (delta-stepping). It computes the same
+   * distances as dijkstra(source).
+   * 
+   * @param delta Width of the distance buckets, a positive number: small values do less
+   *        redundant work, large values expose more parallelism.
+   * @throws IllegalArgumentException If source doesn't belong to the graph, or if delta isn't positive.
+   */
+  public MinDistanceResult<T> dijkstraParallel(Vertex<T> source, double delta) throws NullPointerException, IllegalArgumentException;
+  
+  /**
+   * Point-to-point shortest path, searching at the same time forward from source and
+   * backward from target.
+   *
+   * @throws IllegalArgumentException If either source or target don't belong to the graph.
+   */
+  public MinDistanceResult<T> bidirectionalDijkstra(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException;
+  
+  /**
+   * Bidirectional version of A*.
+   * 
+   * @param heuristic An estimate of the distance between two vertices: to guarantee the
+   *        search returns a shortest path, it must be consistent, i.e. for every edge u -> v
+   *        and every vertex w, h(u, w) <= weight(u, v) + h(v, w) and h(w, v) <= h(w, u) + weight(u, v).
+   * @throws IllegalArgumentException If either source or target don't belong to the graph.
+   */
+  public MinDistanceResult<T> bidirectionalAStar(Vertex<T> source, Vertex<T> target, BiFunction<Vertex<T>, Vertex<T>, Double> heuristic) throws NullPointerException, IllegalArgumentException;
+
   public Graph<T> prim() throws UnsupportedOperationException;
+  
+  /**
+   * Kruskal's algorithm.
+   * 
+   * @return A minimum spanning tree, or null if the graph is empty or not connected.
+   * @throws UnsupportedOperationException If the graph is directed.
+   */
+  public Graph<T> kruskal() throws UnsupportedOperationException;
+  
+  /**
+   * Parallel Boruvka's algorithm: same result as prim() (when the minimum spanning tree is unique).
+   * 
+   * @return A minimum spanning tree, or null if the graph is empty or not connected.
+   * @throws UnsupportedOperationException If the graph is directed.
+   */
+  public Graph<T> boruvka() throws UnsupportedOperationException;
+  
+  /**
+   * @return A new graph with all the vertices of this graph, and a minimum spanning tree
+   *         for each of its connected components.
+   * @throws UnsupportedOperationException If the graph is directed.
+   */
+  public Graph<T> minimumSpanningForest() throws UnsupportedOperationException;
 
   public boolean isConnected();
   public boolean isAcyclic();
+
+  /**
+   * @return True iff u and v are in the same weakly connected component (the same
+   *         connected component, for undirected graphs).
+   * @throws IllegalArgumentException If either vertex doesn't belong to the graph.
+   */
+  public boolean sameComponent(Vertex<T> u, Vertex<T> v) throws NullPointerException, IllegalArgumentException;
+
+  /**
+   * @return The number of weakly connected components (connected components, for
+   *         undirected graphs).
+   */
+  public int componentsCount();
+
+  /**
+   * @return The number of vertices in the weakly connected component of v.
+   * @throws IllegalArgumentException If v doesn't belong to the graph.
+   */
+  public int componentSize(Vertex<T> v) throws NullPointerException, IllegalArgumentException;
   public boolean isTree();
   public boolean isUndirected();
   public boolean isBipartite();
@@ -69,9 +173,70 @@ public interface Graph<T> {
   
   public Set<List<Vertex<T>>> allAcyclicPaths(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException;
   public Set<List<Vertex<T>>> allCycles(Vertex<T> source) throws NullPointerException, IllegalArgumentException;
+
+  /**
+   * Lazy version of allAcyclicPaths: paths are only found as they are consumed, keeping
+   * just the current path in memory, so that limit() or findFirst() can cut the search short.
+   * Parallel streams split the work by the first edge out of source.
+   */
+  public Stream<List<Vertex<T>>> acyclicPaths(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException;
+
+  /**
+   * Lazy version of allCycles, see acyclicPaths.
+   */
+  public Stream<List<Vertex<T>>> cycles(Vertex<T> source) throws NullPointerException, IllegalArgumentException;
+
+  /**
+   * Every elementary cycle in the graph, found lazily with Johnson's algorithm.
+   * Each cycle is listed once, as a list starting and ending with the same vertex
+   * (on undirected graphs, each edge is a cycle of length 2 and every longer cycle is
+   * listed once in each direction).
+   */
+  public Stream<List<Vertex<T>>> allElementaryCycles();
+
+  /**
+   * Same as allElementaryCycles().count(), without building the cycles.
+   */
+  public long countElementaryCycles();
+
+  /**
+   * Spanning trees: sets of |V| - 1 edges through which a root reaches every vertex.
+   * On undirected graphs each tree is listed once, with its edges oriented away from the
+   * first vertex, like prim() builds them.
+   */
   public Set<Graph<T>> allSpanningTrees();
+
+  /**
+   * Lazy enumeration of the rooted spanning trees: each tree is only built when it's
+   * consumed, and the time between two trees is polynomial in the size of the graph.
+   * Same trees as allSpanningTrees() on directed graphs; on undirected graphs, each tree
+   * is listed once for each of its |V| possible roots.
+   */
+  public Stream<Graph<T>> spanningTrees();
+
+  /**
+   * Number of elements in allSpanningTrees() (on undirected graphs, Kirchhoff's count,
+   * with each tree counted once), computed with the matrix-tree theorem without
+   * enumerating them: a single exact determinant of a |V| x |V| matrix, so O(V^2) memory
+   * and O(V^3) big integer operations.
+   */
+  public BigInteger countSpanningTrees();
   
+  /**
+   * Checks whether the vertices of the two graphs can be renamed so that the graphs have
+   * the same edges (weights are ignored), using color refinement and VF2++ matching.
+   */
   public <R> boolean isIsomorphicTo(Graph<R> other);
+
+  /**
+   * A Weisfeiler-Lehman invariant of the graph's structure, which doesn't depend on
+   * labels, values or weights: isomorphic graphs always have the same hash, so graphs can
+   * be bucketed by hash and then compared with isIsomorphicTo only within the same bucket.
+   * It's not a canonical form, and must not be used as an isomorphism key: non-isomorphic
+   * graphs can share a hash, for instance regular graphs with the same number of
+   * vertices and degree.
+   */
+  public long invariantHash();
   
   public List<Vertex<T>> verticesByDegree();
   
@@ -86,7 +251,51 @@ public interface Graph<T> {
   public Set<Graph<T>> connectedComponents() throws UnsupportedOperationException;
   public Set<Graph<T>> stronglyConnectedComponents();
   
+  /**
+   * Same partition as connectedComponents(), without building a graph for each component.
+   * 
+   * @throws UnsupportedOperationException If the graph is directed.
+   */
+  public ComponentsResult<T> connectedComponentIds() throws UnsupportedOperationException;
+  
+  /**
+   * Same partition as stronglyConnectedComponents(), without building a graph for each component.
+   * Components are numbered in reverse topological order.
+   */
+  public ComponentsResult<T> stronglyConnectedComponentIds();
+  
+  /**
+   * Welsh-Powell's greedy coloring.
+   */
   public Map<Vertex<T>, Byte> vertexColoring();
+
+  /**
+   * DSatur's greedy coloring: usually fewer colors than vertexColoring(), and exact on
+   * bipartite graphs.
+   */
+  public ColoringResult<T> dsaturColoring();
+
+  /**
+   * Jones-Plassmann's coloring, computed in parallel: meant for very large graphs. Vertices'
+   * priorities are drawn with a fixed seed, so the result doesn't change between calls.
+   */
+  public ColoringResult<T> parallelColoring();
+  
+  public Graph<T> freeze();
+
+  /**
+   * A consistent, read only view of the graph, taken in O(1): changes made after it was
+   * taken aren't visible through it, and writers aren't blocked while it's read.
+   * The snapshot should be closed when it's no longer used.
+   */
+  public GraphSnapshot<T> snapshot();
+
+  /**
+   * Preprocesses a snapshot of the graph for fast point-to-point shortest path queries.
+   *
+   * @throws IllegalArgumentException If any edge has a negative weight.
+   */
+  public ContractionHierarchy<T> contractionHierarchy() throws IllegalArgumentException;
 }
 
 //Interface for package only methods
@@ -0,0 +1,88 @@
+package mlarocca.java99.graphs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the vertices and edges of a new SimpleGraph, and adds all the edges in a
+ * single batch when the graph is built (see {@link SimpleGraph#addEdges}), instead of
+ * taking a lock and scanning an adjacency list for each of them.
+ * A builder builds a single graph, and it isn't thread safe.
+ *
+ * {@code
+ *   Graph<Integer> g = new GraphBuilder<Integer>()
+ *     .addVertex("a", 1)
+ *     .addEdge("a", "b", 2.5)
+ *     .addUndirectedEdge("b", "c")
+ *     .build();
+ * }
+ */
+public final class GraphBuilder<T> {
+  private SimpleGraph<T> graph = new SimpleGraph<>();
+  private List<Edge<T>> edges = new ArrayList<>();
+
+  /**
+   * @throws IllegalArgumentException If there already is a vertex with the same label.
+   */
+  public GraphBuilder<T> addVertex(String label) throws IllegalArgumentException, IllegalStateException {
+    graph().addVertex(label);
+    return this;
+  }
+
+  /**
+   * @throws IllegalArgumentException If there already is a vertex with the same label.
+   */
+  public GraphBuilder<T> addVertex(String label, T value) throws IllegalArgumentException, IllegalStateException {
+    graph().addVertex(label, value);
+    return this;
+  }
+
+  /**
+   * Vertices that aren't in the graph yet are added, like in SimpleGraph.fromString.
+   */
+  public GraphBuilder<T> addEdge(String source, String destination) throws IllegalStateException {
+    return addEdge(source, destination, 0);
+  }
+
+  /**
+   * Vertices that aren't in the graph yet are added, like in SimpleGraph.fromString.
+   * If the same edge is added more than once, the last weight is kept.
+   */
+  public GraphBuilder<T> addEdge(String source, String destination, double weight) throws IllegalStateException {
+    SimpleGraph<T> graph = graph();
+    edges.add(new SimpleEdge<>(graph.getOrAddVertex(source), graph.getOrAddVertex(destination), weight));
+    return this;
+  }
+
+  /**
+   * Adds an edge in both directions.
+   */
+  public GraphBuilder<T> addUndirectedEdge(String u, String v) throws IllegalStateException {
+    return addUndirectedEdge(u, v, 0);
+  }
+
+  /**
+   * Adds an edge in both directions, with the same weight.
+   */
+  public GraphBuilder<T> addUndirectedEdge(String u, String v, double weight) throws IllegalStateException {
+    return addEdge(u, v, weight).addEdge(v, u, weight);
+  }
+
+  /**
+   * @throws IllegalStateException If the graph has already been built.
+   */
+  public SimpleGraph<T> build() throws IllegalStateException {
+    SimpleGraph<T> result = graph();
+    result.addEdges(edges);
+    graph = null;
+    edges = null;
+    return result;
+  }
+
+  private SimpleGraph<T> graph() throws IllegalStateException {
+    if (graph == null) {
+      throw new IllegalStateException("The graph has already been built");
+    }
+    return graph;
+  }
+}
@@ -0,0 +1,22 @@
+package mlarocca.java99.graphs;
+
+/**
+ * A read only view of a graph, consistent as of the moment it was taken, which doesn't
+ * block (nor see) later changes to the graph.
+ * Snapshots must be closed once they are no longer needed, so that the graph can drop
+ * the versions of its adjacency lists kept for them:
+ *
+ * {@code
+ *   try (GraphSnapshot<T> snapshot = graph.snapshot()) {
+ *     snapshot.connectedComponentIds();
+ *   }
+ * }
+ */
+public interface GraphSnapshot<T> extends Graph<T>, AutoCloseable {
+
+  /**
+   * Releases the snapshot: it can't be read after it's closed.
+   */
+  @Override
+  public void close();
+}
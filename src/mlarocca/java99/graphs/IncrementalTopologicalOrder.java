@@ -0,0 +1,233 @@
+package mlarocca.java99.graphs;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Topological order of a directed acyclic graph, kept up to date as edges are added
+ * (Pearce-Kelly), refusing the edges that would close a cycle.
+ *
+ * Adding an edge x-&gt;y only changes the order when y comes before x. In that case, the
+ * vertices reachable from y and placed before x (forward search), and the vertices
+ * reaching x and placed after y (backward search), are the only ones that can be out of
+ * order: the positions they hold are reassigned, backward set first, each set keeping its
+ * relative order. If the forward search reaches x, the edge would close a cycle.
+ * Both searches only visit the affected region, so each insertion costs time
+ * proportional to the vertices between y and x that are reordered, and their edges.
+ *
+ * Edges must be added through this object (vertices can be added to the graph directly,
+ * and go at the end of the order): after any other change to the graph, recompute()
+ * must be called. Not thread safe.
+ */
+public final class IncrementalTopologicalOrder<T> {
+
+  private final SimpleGraph<T> graph;
+
+  //order[p] is the index of the vertex at position p, and position[v] the position of v
+  private int[] order;
+  private int[] position;
+  //Number of vertices in the order
+  private int size;
+
+  //Buffers for the searches: visited[v] == stamp iff v was reached by the current search
+  private int[] visited;
+  private int stamp;
+  private int[] stack;
+
+  /**
+   * @throws IllegalArgumentException If the graph has a cycle.
+   */
+  public static <T> IncrementalTopologicalOrder<T> fromGraph(SimpleGraph<T> graph) throws NullPointerException, IllegalArgumentException {
+    IncrementalTopologicalOrder<T> result = new IncrementalTopologicalOrder<>(Objects.requireNonNull(graph));
+    if (!result.initialize()) {
+      throw new IllegalArgumentException("The graph has a cycle");
+    }
+    return result;
+  }
+
+  private IncrementalTopologicalOrder(SimpleGraph<T> graph) {
+    this.graph = graph;
+  }
+
+  /**
+   * @return False iff the graph has a cycle.
+   */
+  private boolean initialize() {
+    if (!graph.isAcyclic()) {
+      return false;
+    }
+    order = IndexedAlgorithms.topologicalOrder(graph);
+    size = order.length;
+    position = new int[size];
+    for (int p = 0; p < size; p++) {
+      position[order[p]] = p;
+    }
+    visited = new int[size];
+    stamp = 0;
+    stack = new int[size];
+    return true;
+  }
+
+  /**
+   * Computes the order from scratch: needed after edges are added to the graph without
+   * going through this object.
+   *
+   * @throws IllegalStateException If the graph has a cycle.
+   */
+  public void recompute() throws IllegalStateException {
+    if (!initialize()) {
+      throw new IllegalStateException("The graph has a cycle");
+    }
+  }
+
+  public boolean addEdge(Vertex<T> from, Vertex<T> to) throws NullPointerException, IllegalArgumentException {
+    return addEdge(from, to, 0);
+  }
+
+  /**
+   * Adds an edge to the graph, unless it would close a cycle, and updates the order.
+   * Replacing an edge already in the graph never changes the order.
+   *
+   * @return True iff the edge was added; false if it would have closed a cycle (including
+   *         self loops), in which case neither the graph nor the order are changed.
+   * @throws IllegalArgumentException If either vertex doesn't belong to the graph.
+   */
+  public boolean addEdge(Vertex<T> from, Vertex<T> to, double weight) throws NullPointerException, IllegalArgumentException {
+    int x = graph.indexOf(from);
+    int y = graph.indexOf(to);
+    ensureCapacity();
+    if (x == y) {
+      return false;
+    }
+    int lowerBound = position[y];
+    int upperBound = position[x];
+    if (lowerBound < upperBound) {
+      int[] forward = search(y, upperBound, true);
+      if (forward == null) {
+        return false;
+      }
+      int[] backward = search(x, lowerBound, false);
+      reorder(backward, forward);
+    }
+    graph.addEdge(from, to, weight);
+    return true;
+  }
+
+  /**
+   * Forward search: vertices reachable from start, placed before bound.
+   * Backward search: vertices from which start can be reached, placed after bound.
+   *
+   * @return The vertices visited, or null if the forward search reached the vertex at
+   *         position bound.
+   */
+  private int[] search(int start, int bound, boolean isForward) {
+    stamp += 1;
+    int top = 0;
+    int count = 0;
+    //Grown as needed, so that the search doesn't cost O(V)
+    int[] found = new int[16];
+    stack[top++] = start;
+    visited[start] = stamp;
+    while (top > 0) {
+      int v = stack[--top];
+      if (count == found.length) {
+        found = Arrays.copyOf(found, 2 * count);
+      }
+      found[count++] = v;
+      int degree = isForward ? graph.outDegreeAt(v) : graph.inDegreeAt(v);
+      for (int k = 0; k < degree; k++) {
+        int w = isForward ? graph.targetAt(v, k) : graph.sourceAt(v, k);
+        int p = position[w];
+        if (isForward && p == bound) {
+          return null;
+        }
+        if (visited[w] != stamp && (isForward ? p < bound : p > bound)) {
+          visited[w] = stamp;
+          stack[top++] = w;
+        }
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * Reassigns the positions held by the two sets: all the vertices in backward go before
+   * all the vertices in forward, and each set keeps its relative order.
+   */
+  private void reorder(int[] backward, int[] forward) {
+    sortByPosition(backward);
+    sortByPosition(forward);
+    int[] positions = new int[backward.length + forward.length];
+    int k = 0;
+    for (int v : backward) {
+      positions[k++] = position[v];
+    }
+    for (int v : forward) {
+      positions[k++] = position[v];
+    }
+    Arrays.sort(positions);
+    k = 0;
+    for (int v : backward) {
+      place(v, positions[k++]);
+    }
+    for (int v : forward) {
+      place(v, positions[k++]);
+    }
+  }
+
+  private void sortByPosition(int[] vertices) {
+    //Pack (position, vertex) pairs so that a primitive sort can be used
+    long[] keys = new long[vertices.length];
+    for (int k = 0; k < vertices.length; k++) {
+      keys[k] = ((long) position[vertices[k]] << 32) | vertices[k];
+    }
+    Arrays.sort(keys);
+    for (int k = 0; k < vertices.length; k++) {
+      vertices[k] = (int) keys[k];
+    }
+  }
+
+  private void place(int v, int p) {
+    position[v] = p;
+    order[p] = v;
+  }
+
+  //Vertices added to the graph since the last update have no edges yet: they go at the end
+  private void ensureCapacity() {
+    int n = graph.size();
+    if (n > size) {
+      if (n > order.length) {
+        int capacity = Math.max(n, 2 * order.length);
+        order = Arrays.copyOf(order, capacity);
+        position = Arrays.copyOf(position, capacity);
+        visited = Arrays.copyOf(visited, capacity);
+        stack = new int[capacity];
+      }
+      for (int v = size; v < n; v++) {
+        place(v, v);
+      }
+      size = n;
+    }
+  }
+
+  /**
+   * @return The vertices in topological order, in O(V).
+   */
+  public List<Vertex<T>> topologicalOrder() {
+    ensureCapacity();
+    return IndexedAlgorithms.toVertices(graph, Arrays.copyOf(order, size));
+  }
+
+  /**
+   * @return True iff u comes before v in the current order: if there is a path from u to
+   *         v, then u comes before v.
+   * @throws IllegalArgumentException If either vertex doesn't belong to the graph.
+   */
+  public boolean comesBefore(Vertex<T> u, Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    int i = graph.indexOf(u);
+    int j = graph.indexOf(v);
+    ensureCapacity();
+    return position[i] < position[j];
+  }
+}
@@ -0,0 +1,1556 @@
+package mlarocca.java99.graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import mlarocca.java99.graphs.data.ColoringResult;
+import mlarocca.java99.graphs.data.ComponentsResult;
+import mlarocca.java99.graphs.data.MinDistanceResult;
+import mlarocca.java99.graphs.data.StructureResult;
+import mlarocca.java99.graphs.heaps.IndexedPriorityQueue;
+import mlarocca.java99.graphs.unionfind.ConcurrentDisjointSet;
+import mlarocca.java99.graphs.unionfind.DisjointSet;
+import mlarocca.java99.graphs.unionfind.GrowableDisjointSet;
+import mlarocca.java99.graphs.unionfind.UnionFind;
+
+/**
+ * Graph algorithms running on the dense indices of an {@link IndexedGraph}.
+ * Per-vertex state is kept in primitive arrays indexed by vertex, and results are
+ * converted back to vertices only when they are returned to the caller.
+ */
+final class IndexedAlgorithms {
+
+  static final int NONE = -1;
+  private static final long NO_EDGE = -1L;
+  //Number of locks guarding distances and predecessors during parallel relaxations
+  private static final int RELAXATION_LOCKS = 1024;
+  //Switch to bottom-up BFS when the frontier has more than 1/14 of the edges left to explore...
+  private static final int BFS_TOP_DOWN_FACTOR = 14;
+  //...and back to top-down when it has less than 1/24 of the vertices
+  private static final int BFS_BOTTOM_UP_FACTOR = 24;
+
+  private IndexedAlgorithms() {
+  }
+
+  /**
+   * Breadth first search using a FIFO frontier: each vertex is enqueued at most once.
+   *
+   * @param source Index of the source vertex.
+   * @param target Index of the target vertex, or NONE to explore the whole graph.
+   */
+  static <T> MinDistanceResult<T> bfs(IndexedGraph<T> graph, int source, int target) {
+    int n = graph.size();
+    double[] distances = new double[n];
+    int[] predecessors = new int[n];
+    Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    Arrays.fill(predecessors, NONE);
+
+    int[] queue = new int[n];
+    int head = 0;
+    int tail = 0;
+    distances[source] = 0.0;
+    queue[tail++] = source;
+    while (head < tail) {
+      int v = queue[head++];
+      if (v == target) {
+        break;
+      }
+      double dU = distances[v] + 1.0;
+      for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+        int u = graph.targetAt(v, k);
+        if (distances[u] == Double.POSITIVE_INFINITY) {
+          distances[u] = dU;
+          predecessors[u] = v;
+          queue[tail++] = u;
+        }
+      }
+    }
+    return wrapMinDistanceResults(graph, target, distances, predecessors);
+  }
+
+  /**
+   * Level synchronous, direction optimizing breadth first search (Beamer et al.).
+   * Each level is expanded in parallel, either top-down, following the edges leaving the
+   * frontier, or bottom-up, with every vertex not reached yet looking for a parent among
+   * the sources of its incoming edges. Bottom-up steps are used while the frontier is
+   * large, when they check far fewer edges than top-down steps.
+   *
+   * @param source Index of the source vertex.
+   */
+  static <T> MinDistanceResult<T> parallelBfs(IndexedGraph<T> graph, int source) {
+    int n = graph.size();
+    AtomicIntegerArray parents = new AtomicIntegerArray(n);
+    double[] distances = new double[n];
+    for (int i = 0; i < n; i++) {
+      parents.set(i, NONE);
+    }
+    Arrays.fill(distances, Double.POSITIVE_INFINITY);
+
+    long unexploredEdges = 0;
+    for (int i = 0; i < n; i++) {
+      unexploredEdges += graph.outDegreeAt(i);
+    }
+    //The source is its own parent until the search is over, so that it's never reached again
+    parents.set(source, source);
+    distances[source] = 0.0;
+    int[] frontier = new int[]{ source };
+    BitSet frontierSet = new BitSet(n);
+    frontierSet.set(source);
+    long frontierEdges = graph.outDegreeAt(source);
+    unexploredEdges -= frontierEdges;
+    boolean bottomUp = false;
+    int level = 0;
+
+    while (frontier.length > 0) {
+      if (!bottomUp && frontierEdges > unexploredEdges / BFS_TOP_DOWN_FACTOR) {
+        bottomUp = true;
+      } else if (bottomUp && frontier.length < n / BFS_BOTTOM_UP_FACTOR) {
+        bottomUp = false;
+      }
+      frontier = bottomUp
+          ? bottomUpStep(graph, frontierSet, parents)
+          : topDownStep(graph, frontier, parents);
+
+      level += 1;
+      frontierSet.clear();
+      frontierEdges = 0;
+      for (int v : frontier) {
+        frontierSet.set(v);
+        distances[v] = level;
+        frontierEdges += graph.outDegreeAt(v);
+      }
+      unexploredEdges -= frontierEdges;
+    }
+
+    int[] predecessors = new int[n];
+    for (int i = 0; i < n; i++) {
+      predecessors[i] = parents.get(i);
+    }
+    predecessors[source] = NONE;
+    return wrapMinDistanceResults(graph, NONE, distances, predecessors);
+  }
+
+  /**
+   * @return The vertices reached for the first time following edges out of the frontier.
+   */
+  private static <T> int[] topDownStep(IndexedGraph<T> graph, int[] frontier, AtomicIntegerArray parents) {
+    return Arrays.stream(frontier)
+      .parallel()
+      .flatMap(v -> {
+        IntStream.Builder reached = IntStream.builder();
+        for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+          int u = graph.targetAt(v, k);
+          if (parents.get(u) == NONE && parents.compareAndSet(u, NONE, v)) {
+            reached.add(u);
+          }
+        }
+        return reached.build();
+      })
+      .toArray();
+  }
+
+  /**
+   * @return The vertices not reached yet with at least an incoming edge from the frontier.
+   */
+  private static <T> int[] bottomUpStep(IndexedGraph<T> graph, BitSet frontier, AtomicIntegerArray parents) {
+    //Each vertex only writes its own parent, and the frontier is only read
+    return IntStream.range(0, graph.size())
+      .parallel()
+      .filter(v -> {
+        if (parents.get(v) != NONE) {
+          return false;
+        }
+        for (int k = 0, degree = graph.inDegreeAt(v); k < degree; k++) {
+          int u = graph.sourceAt(v, k);
+          if (frontier.get(u)) {
+            parents.set(v, u);
+            return true;
+          }
+        }
+        return false;
+      })
+      .toArray();
+  }
+
+  /**
+   * A* search (Dijkstra's algorithm when heuristic is null).
+   * The heuristic is evaluated at most once per vertex.
+   *
+   * @param source Index of the source vertex.
+   * @param target Index of the target vertex, or NONE to explore the whole graph.
+   * @param heuristic Estimate of the distance to target, or null.
+   * @param queueFactory Creates the priority queue, given the number of vertices.
+   */
+  static <T> MinDistanceResult<T> aStar(
+      IndexedGraph<T> graph,
+      int source,
+      int target,
+      Function<Vertex<T>, Double> heuristic,
+      IntFunction<IndexedPriorityQueue> queueFactory) {
+    int n = graph.size();
+    double[] distances = new double[n];
+    int[] predecessors = new int[n];
+    BitSet visited = new BitSet(n);
+    Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    Arrays.fill(predecessors, NONE);
+    double[] estimates = null;
+    if (heuristic != null) {
+      estimates = new double[n];
+      Arrays.fill(estimates, Double.NaN);
+    }
+
+    IndexedPriorityQueue queue = queueFactory.apply(n);
+    distances[source] = 0.0;
+    queue.add(source, estimate(graph, source, heuristic, estimates));
+    while (!queue.isEmpty()) {
+      int v = queue.poll();
+      visited.set(v);
+      if (v == target) {
+        break;
+      }
+      double dV = distances[v];
+      for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+        int u = graph.targetAt(v, k);
+        if (!visited.get(u)) {
+          double dU = dV + graph.weightAt(v, k);
+          if (distances[u] > dU) {
+            distances[u] = dU;
+            predecessors[u] = v;
+            queue.addOrDecreasePriority(u, dU + estimate(graph, u, heuristic, estimates));
+          }
+        }
+      }
+    }
+    return wrapMinDistanceResults(graph, target, distances, predecessors);
+  }
+
+  /**
+   * Bidirectional A* search (bidirectional Dijkstra when heuristic is null): a forward
+   * search from source on outgoing edges and a backward search from target on incoming
+   * edges, advancing each time the side with the smallest key.
+   * The two searches use the average potentials pf(v) = (h(v, target) - h(source, v)) / 2
+   * and pr(v) = -pf(v), which are consistent whenever h is, so that the search can stop
+   * as soon as the sum of the two smallest keys reaches the best path found so far.
+   *
+   * @param heuristic Estimate h(u, v) of the distance from u to v (must be consistent), or null.
+   * @param queueFactory Creates the priority queues, given the number of vertices.
+   * @return Distances and predecessors for the vertices reached by the forward search
+   *         and for the vertices on the shortest path, plus the path itself, if any.
+   */
+  static <T> MinDistanceResult<T> bidirectionalAStar(
+      IndexedGraph<T> graph,
+      int source,
+      int target,
+      BiFunction<Vertex<T>, Vertex<T>, Double> heuristic,
+      IntFunction<IndexedPriorityQueue> queueFactory) {
+    int n = graph.size();
+    double[] forwardDistances = new double[n];
+    double[] backwardDistances = new double[n];
+    int[] predecessors = new int[n];
+    int[] successors = new int[n];
+    BitSet forwardSettled = new BitSet(n);
+    BitSet backwardSettled = new BitSet(n);
+    Arrays.fill(forwardDistances, Double.POSITIVE_INFINITY);
+    Arrays.fill(backwardDistances, Double.POSITIVE_INFINITY);
+    Arrays.fill(predecessors, NONE);
+    Arrays.fill(successors, NONE);
+    double[] potentials = null;
+    if (heuristic != null) {
+      potentials = new double[n];
+      Arrays.fill(potentials, Double.NaN);
+    }
+
+    IndexedPriorityQueue forwardQueue = queueFactory.apply(n);
+    IndexedPriorityQueue backwardQueue = queueFactory.apply(n);
+    forwardDistances[source] = 0.0;
+    backwardDistances[target] = 0.0;
+    forwardQueue.add(source, potential(graph, source, source, target, heuristic, potentials));
+    backwardQueue.add(target, -potential(graph, target, source, target, heuristic, potentials));
+
+    //Length of the shortest path found so far, and the vertex where the two searches met on it
+    double best = source == target ? 0.0 : Double.POSITIVE_INFINITY;
+    int meeting = source == target ? source : NONE;
+    while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+      double forwardKey = forwardQueue.priority(forwardQueue.peek());
+      double backwardKey = backwardQueue.priority(backwardQueue.peek());
+      if (forwardKey + backwardKey >= best) {
+        break;
+      }
+      if (forwardKey <= backwardKey) {
+        int v = forwardQueue.poll();
+        forwardSettled.set(v);
+        double dV = forwardDistances[v];
+        for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+          int u = graph.targetAt(v, k);
+          double dU = dV + graph.weightAt(v, k);
+          if (!forwardSettled.get(u) && forwardDistances[u] > dU) {
+            forwardDistances[u] = dU;
+            predecessors[u] = v;
+            forwardQueue.addOrDecreasePriority(u, dU + potential(graph, u, source, target, heuristic, potentials));
+            if (dU + backwardDistances[u] < best) {
+              best = dU + backwardDistances[u];
+              meeting = u;
+            }
+          }
+        }
+      } else {
+        int v = backwardQueue.poll();
+        backwardSettled.set(v);
+        double dV = backwardDistances[v];
+        for (int k = 0, degree = graph.inDegreeAt(v); k < degree; k++) {
+          int u = graph.sourceAt(v, k);
+          double dU = dV + graph.inWeightAt(v, k);
+          if (!backwardSettled.get(u) && backwardDistances[u] > dU) {
+            backwardDistances[u] = dU;
+            successors[u] = v;
+            backwardQueue.addOrDecreasePriority(u, dU - potential(graph, u, source, target, heuristic, potentials));
+            if (forwardDistances[u] + dU < best) {
+              best = forwardDistances[u] + dU;
+              meeting = u;
+            }
+          }
+        }
+      }
+    }
+
+    if (meeting == NONE) {
+      return wrapMinDistanceResults(graph, NONE, forwardDistances, predecessors);
+    }
+    //Extends the forward tree with the second half of the path, from the meeting point to target
+    for (int v = meeting; v != target; v = successors[v]) {
+      int u = successors[v];
+      forwardDistances[u] = best - backwardDistances[u];
+      predecessors[u] = v;
+    }
+    return wrapMinDistanceResults(graph, target, forwardDistances, predecessors);
+  }
+
+  private static <T> double potential(
+      IndexedGraph<T> graph,
+      int v,
+      int source,
+      int target,
+      BiFunction<Vertex<T>, Vertex<T>, Double> heuristic,
+      double[] potentials) {
+    if (heuristic == null) {
+      return 0.0;
+    }
+    if (Double.isNaN(potentials[v])) {
+      Vertex<T> u = graph.vertexAt(v);
+      potentials[v] = (heuristic.apply(u, graph.vertexAt(target)) - heuristic.apply(graph.vertexAt(source), u)) / 2.0;
+    }
+    return potentials[v];
+  }
+
+  /**
+   * Delta-stepping single source shortest paths: vertices are kept in buckets of width
+   * delta, by tentative distance. The buckets are processed in order; the edges leaving
+   * the vertices in the current bucket are relaxed in parallel, first the light ones
+   * (weight <= delta), which can put vertices back into the same bucket, until the bucket
+   * is empty, and then the heavy ones, only once.
+   * Parallel work runs on the ForkJoinPool of the caller's task, or on the common pool.
+   *
+   * @param source Index of the source vertex.
+   * @param delta Width of the buckets, positive.
+   */
+  static <T> MinDistanceResult<T> deltaStepping(IndexedGraph<T> graph, int source, double delta) {
+    int n = graph.size();
+    AtomicLongArray distances = new AtomicLongArray(n);
+    int[] predecessors = new int[n];
+    Object[] locks = new Object[Math.min(RELAXATION_LOCKS, Math.max(n, 1))];
+    long infinity = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+    for (int i = 0; i < n; i++) {
+      distances.set(i, infinity);
+    }
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
+    Arrays.fill(predecessors, NONE);
+
+    //Buckets may hold stale entries: a vertex is only processed in the bucket matching its current distance
+    TreeMap<Long, BitSet> buckets = new TreeMap<>();
+    distances.set(source, Double.doubleToLongBits(0.0));
+    addToBucket(buckets, source, 0.0, delta);
+    while (!buckets.isEmpty()) {
+      long i = buckets.firstKey();
+      BitSet settled = new BitSet(n);
+      BitSet bucket;
+      while ((bucket = buckets.remove(i)) != null) {
+        int[] frontier = bucket.stream()
+          .filter(v -> bucketOf(Double.longBitsToDouble(distances.get(v)), delta) == i)
+          .toArray();
+        for (int v : frontier) {
+          settled.set(v);
+        }
+        int[] updated = relaxEdges(graph, frontier, true, delta, distances, predecessors, locks);
+        addToBuckets(buckets, updated, distances, delta);
+      }
+      int[] updated = relaxEdges(graph, settled.stream().toArray(), false, delta, distances, predecessors, locks);
+      addToBuckets(buckets, updated, distances, delta);
+    }
+
+    double[] result = new double[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = Double.longBitsToDouble(distances.get(i));
+    }
+    return wrapMinDistanceResults(graph, NONE, result, predecessors);
+  }
+
+  private static long bucketOf(double distance, double delta) {
+    return (long) Math.floor(distance / delta);
+  }
+
+  private static void addToBucket(TreeMap<Long, BitSet> buckets, int v, double distance, double delta) {
+    buckets.computeIfAbsent(bucketOf(distance, delta), b -> new BitSet()).set(v);
+  }
+
+  private static void addToBuckets(TreeMap<Long, BitSet> buckets, int[] vertices, AtomicLongArray distances, double delta) {
+    for (int v : vertices) {
+      addToBucket(buckets, v, Double.longBitsToDouble(distances.get(v)), delta);
+    }
+  }
+
+  /**
+   * Relaxes, in parallel, either the light or the heavy edges leaving the vertices in frontier.
+   *
+   * @return The vertices whose distance was lowered (possibly with repetitions).
+   */
+  private static <T> int[] relaxEdges(
+      IndexedGraph<T> graph,
+      int[] frontier,
+      boolean light,
+      double delta,
+      AtomicLongArray distances,
+      int[] predecessors,
+      Object[] locks) {
+    return Arrays.stream(frontier)
+      .parallel()
+      .flatMap(v -> {
+        IntStream.Builder updated = IntStream.builder();
+        double dV = Double.longBitsToDouble(distances.get(v));
+        for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+          double w = graph.weightAt(v, k);
+          if ((w <= delta) == light) {
+            int u = graph.targetAt(v, k);
+            if (relax(u, v, dV + w, distances, predecessors, locks)) {
+              updated.add(u);
+            }
+          }
+        }
+        return updated.build();
+      })
+      .toArray();
+  }
+
+  /**
+   * Lowers the distance of u to d, with v as predecessor, if d is smaller than the current
+   * distance. Distance and predecessor are updated together, holding the lock for u's stripe.
+   */
+  private static boolean relax(int u, int v, double d, AtomicLongArray distances, int[] predecessors, Object[] locks) {
+    if (d >= Double.longBitsToDouble(distances.get(u))) {
+      return false;
+    }
+    synchronized (locks[u % locks.length]) {
+      if (d >= Double.longBitsToDouble(distances.get(u))) {
+        return false;
+      }
+      distances.set(u, Double.doubleToLongBits(d));
+      predecessors[u] = v;
+      return true;
+    }
+  }
+
+  private static <T> double estimate(
+      IndexedGraph<T> graph,
+      int v,
+      Function<Vertex<T>, Double> heuristic,
+      double[] estimates) {
+    if (heuristic == null) {
+      return 0.0;
+    }
+    if (Double.isNaN(estimates[v])) {
+      estimates[v] = heuristic.apply(graph.vertexAt(v));
+    }
+    return estimates[v];
+  }
+
+  static <T> MinDistanceResult<T> wrapMinDistanceResults(
+      IndexedGraph<T> graph,
+      int target,
+      double[] distances,
+      int[] predecessors) {
+    List<Vertex<T>> path = target == NONE ? null : buildPath(graph, target, distances, predecessors);
+    return new IndexedMinDistanceResult<>(graph, distances, predecessors, path);
+  }
+
+  /**
+   * Index of v in graph, or NONE if v doesn't belong to the graph or was added
+   * after a result with n vertices was computed.
+   */
+  private static <T> int indexOrNone(IndexedGraph<T> graph, Vertex<T> v, int n) {
+    if (!graph.hasVertex(v)) {
+      return NONE;
+    }
+    int i = graph.indexOf(v);
+    return i < n ? i : NONE;
+  }
+
+  /**
+   * Result of a shortest path search, backed by the arrays filled by the search:
+   * the Map views are only built the first time they are requested.
+   */
+  private static class IndexedMinDistanceResult<T> implements MinDistanceResult<T> {
+    private final IndexedGraph<T> graph;
+    private final double[] distances;
+    private final int[] predecessors;
+    private final List<Vertex<T>> path;
+
+    private Map<Vertex<T>, Double> distancesMap;
+    private Map<Vertex<T>, Vertex<T>> predecessorsMap;
+
+    IndexedMinDistanceResult(IndexedGraph<T> graph, double[] distances, int[] predecessors, List<Vertex<T>> path) {
+      this.graph = graph;
+      this.distances = distances;
+      this.predecessors = predecessors;
+      this.path = path;
+    }
+
+    @Override
+    public synchronized Map<Vertex<T>, Vertex<T>> predecessors() {
+      if (predecessorsMap == null) {
+        predecessorsMap = new HashMap<>();
+        for (int i = 0; i < distances.length; i++) {
+          if (distances[i] < Double.POSITIVE_INFINITY) {
+            predecessorsMap.put(graph.vertexAt(i), predecessors[i] == NONE ? null : graph.vertexAt(predecessors[i]));
+          }
+        }
+      }
+      return predecessorsMap;
+    }
+
+    @Override
+    public synchronized Map<Vertex<T>, Double> distances() {
+      if (distancesMap == null) {
+        distancesMap = new HashMap<>();
+        for (int i = 0; i < distances.length; i++) {
+          if (distances[i] < Double.POSITIVE_INFINITY) {
+            distancesMap.put(graph.vertexAt(i), distances[i]);
+          }
+        }
+      }
+      return distancesMap;
+    }
+
+    @Override
+    public List<Vertex<T>> path() {
+      return path;
+    }
+
+    @Override
+    public double distanceTo(Vertex<T> v) {
+      int i = indexOrNone(graph, v, distances.length);
+      return i == NONE ? Double.POSITIVE_INFINITY : distances[i];
+    }
+
+    @Override
+    public Vertex<T> predecessorOf(Vertex<T> v) {
+      int i = indexOrNone(graph, v, distances.length);
+      return i == NONE || predecessors[i] == NONE ? null : graph.vertexAt(predecessors[i]);
+    }
+
+    @Override
+    public boolean isReached(Vertex<T> v) {
+      return distanceTo(v) < Double.POSITIVE_INFINITY;
+    }
+  }
+
+  /**
+   * Result of a depth first search, backed by the array of exit times:
+   * the Map view is only built the first time it is requested.
+   */
+  private static class IndexedStructureResult<T> implements StructureResult<T> {
+    private final IndexedGraph<T> graph;
+    private final boolean isAcyclic;
+    private final int[] exitTimes;
+
+    private Map<Vertex<T>, Integer> exitTimesMap;
+
+    IndexedStructureResult(IndexedGraph<T> graph, boolean isAcyclic, int[] exitTimes) {
+      this.graph = graph;
+      this.isAcyclic = isAcyclic;
+      this.exitTimes = exitTimes;
+    }
+
+    @Override
+    public Boolean isAcyclic() {
+      return isAcyclic;
+    }
+
+    @Override
+    public synchronized Map<Vertex<T>, Integer> exitTimes() {
+      if (exitTimesMap == null) {
+        exitTimesMap = new HashMap<>();
+        for (int i = 0; i < exitTimes.length; i++) {
+          if (exitTimes[i] != NONE) {
+            exitTimesMap.put(graph.vertexAt(i), exitTimes[i]);
+          }
+        }
+      }
+      return exitTimesMap;
+    }
+
+    @Override
+    public int exitTime(Vertex<T> v) {
+      int i = indexOrNone(graph, v, exitTimes.length);
+      return i == NONE ? NONE : exitTimes[i];
+    }
+
+    @Override
+    public boolean isReached(Vertex<T> v) {
+      return exitTime(v) != NONE;
+    }
+  }
+
+  private static <T> List<Vertex<T>> buildPath(IndexedGraph<T> graph, int target, double[] distances, int[] predecessors) {
+    if (distances[target] == Double.POSITIVE_INFINITY) {
+      return null;
+    }
+    List<Vertex<T>> path = new ArrayList<>();
+    for (int v = target; v != NONE; v = predecessors[v]) {
+      path.add(graph.vertexAt(v));
+    }
+    Collections.reverse(path);
+    return path;
+  }
+
+  /**
+   * Callbacks for depthFirst, on vertices' indices: see {@link DfsVisitor}.
+   */
+  interface IndexedDfsVisitor {
+    //Called before the first vertex of each depth first tree is entered
+    default void startTree(int root) {
+    }
+
+    default boolean preVisit(int v) {
+      return true;
+    }
+
+    default void postVisit(int v) {
+    }
+
+    default void treeEdge(int u, int v) {
+    }
+
+    default void backEdge(int u, int v) {
+    }
+
+    default void forwardEdge(int u, int v) {
+    }
+
+    default void crossEdge(int u, int v) {
+    }
+
+    default boolean isDone() {
+      return false;
+    }
+  }
+
+  /**
+   * Iterative depth first search, with an explicit stack and a cursor on the
+   * adjacency list of each vertex on the stack: no allocation besides the arrays
+   * created upfront, and no recursion.
+   *
+   * @param roots The vertices to start from, in order.
+   * @return False iff the visitor stopped the search.
+   */
+  static <T> boolean depthFirst(IndexedGraph<T> graph, int[] roots, IndexedDfsVisitor visitor) {
+    int n = graph.size();
+    //Pre-order number of each vertex entered (NONE if not entered), and whether it was left
+    int[] entered = new int[n];
+    BitSet left = new BitSet(n);
+    int[] stack = new int[n];
+    int[] cursor = new int[n];
+    int clock = 0;
+    Arrays.fill(entered, NONE);
+
+    for (int root : roots) {
+      if (entered[root] != NONE) {
+        continue;
+      }
+      if (visitor.isDone()) {
+        return false;
+      }
+      visitor.startTree(root);
+      int top = 0;
+      entered[root] = clock++;
+      cursor[root] = visitor.preVisit(root) ? 0 : graph.outDegreeAt(root);
+      stack[top++] = root;
+      while (top > 0) {
+        if (visitor.isDone()) {
+          return false;
+        }
+        int u = stack[top - 1];
+        if (cursor[u] < graph.outDegreeAt(u)) {
+          int v = graph.targetAt(u, cursor[u]++);
+          if (entered[v] == NONE) {
+            visitor.treeEdge(u, v);
+            entered[v] = clock++;
+            cursor[v] = visitor.preVisit(v) ? 0 : graph.outDegreeAt(v);
+            stack[top++] = v;
+          } else if (!left.get(v)) {
+            visitor.backEdge(u, v);
+          } else if (entered[v] > entered[u]) {
+            visitor.forwardEdge(u, v);
+          } else {
+            visitor.crossEdge(u, v);
+          }
+        } else {
+          top -= 1;
+          visitor.postVisit(u);
+          left.set(u);
+        }
+      }
+    }
+    return !visitor.isDone();
+  }
+
+  /**
+   * Exit times: the clock
+   * ticks once every time a vertex is left, and once more between two trees.
+   *
+   * @param roots The vertices to start from, in order.
+   * @param exitTimes Output: exit times, NONE for vertices never reached.
+   * @param postOrder Output (may be null): vertices in the order they were left.
+   * @return True iff no back edge was found.
+   */
+  private static <T> boolean depthFirst(IndexedGraph<T> graph, int[] roots, int[] exitTimes, int[] postOrder) {
+    Arrays.fill(exitTimes, NONE);
+    boolean[] isAcyclic = { true };
+    depthFirst(graph, roots, new IndexedDfsVisitor() {
+      private int time = 0;
+      private int trees = 0;
+      private int leftCount = 0;
+
+      @Override
+      public void startTree(int root) {
+        if (trees++ > 0) {
+          time += 1;
+        }
+      }
+
+      @Override
+      public void postVisit(int v) {
+        exitTimes[v] = ++time;
+        if (postOrder != null) {
+          postOrder[leftCount++] = v;
+        }
+      }
+
+      @Override
+      public void backEdge(int u, int v) {
+        //Self loops don't count as cycles
+        if (u != v) {
+          isAcyclic[0] = false;
+        }
+      }
+    });
+    return isAcyclic[0];
+  }
+
+  private static <T> int[] allRoots(IndexedGraph<T> graph) {
+    List<Vertex<T>> vertices = graph.getVertices();
+    int[] roots = new int[vertices.size()];
+    for (int i = 0; i < roots.length; i++) {
+      roots[i] = graph.indexOf(vertices.get(i));
+    }
+    return roots;
+  }
+
+  /**
+   * @param source Index of the source vertex, or NONE to visit the whole graph.
+   */
+  static <T> StructureResult<T> dfs(IndexedGraph<T> graph, int source) {
+    int n = graph.size();
+    int[] exitTimes = new int[n];
+    int[] roots = source == NONE ? allRoots(graph) : new int[]{ source };
+    boolean isAcyclic = depthFirst(graph, roots, exitTimes, null);
+    return new IndexedStructureResult<>(graph, isAcyclic, exitTimes);
+  }
+
+  /**
+   * @return Vertices' indices sorted by descending exit time.
+   */
+  static <T> int[] topologicalOrder(IndexedGraph<T> graph) {
+    int n = graph.size();
+    int[] postOrder = new int[n];
+    depthFirst(graph, allRoots(graph), new int[n], postOrder);
+    for (int i = 0, j = n - 1; i < j; i++, j--) {
+      int tmp = postOrder[i];
+      postOrder[i] = postOrder[j];
+      postOrder[j] = tmp;
+    }
+    return postOrder;
+  }
+
+  static <T> List<Vertex<T>> toVertices(IndexedGraph<T> graph, int[] indices) {
+    List<Vertex<T>> result = new ArrayList<>(indices.length);
+    for (int i : indices) {
+      result.add(graph.vertexAt(i));
+    }
+    return result;
+  }
+
+  /**
+   * Graphs' hashCode() is the sum of this function over the hash codes of their vertices
+   * and edges: it doesn't depend on the order of the elements, and it can be updated as
+   * elements are added. Scrambling each hash (MurmurHash3's finalizer) keeps sums of
+   * similar hashes, like those of edges between neighbouring labels, from colliding.
+   */
+  static int elementHash(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Checks that two graphs with the same number of vertices and edges have vertices with
+   * the same labels, and edges between the same vertices (weights and values aside).
+   */
+  static <T> boolean sameStructure(IndexedGraph<T> g1, IndexedGraph<T> g2) {
+    int n = g1.size();
+    //Index in g2 of each vertex of g1
+    int[] images = new int[n];
+    for (int i = 0; i < n; i++) {
+      Vertex<T> v = g1.vertexAt(i);
+      if (!g2.hasVertex(v) || g1.outDegreeAt(i) != g2.outDegreeAt(images[i] = g2.indexOf(v))) {
+        return false;
+      }
+    }
+    //marks[w] == i + 1 iff there is an edge from images[i] to w in g2
+    int[] marks = new int[n];
+    for (int i = 0; i < n; i++) {
+      int j = images[i];
+      for (int k = 0, degree = g2.outDegreeAt(j); k < degree; k++) {
+        marks[g2.targetAt(j, k)] = i + 1;
+      }
+      for (int k = 0, degree = g1.outDegreeAt(i); k < degree; k++) {
+        if (marks[images[g1.targetAt(i, k)]] != i + 1) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  //Indexed graphs that can't change (CompactGraphs and snapshots) are used as they are:
+  //any other graph is copied, through a snapshot
+  @SuppressWarnings("unchecked")
+  static <T> IndexedGraph<T> indexed(Graph<T> graph) {
+    return graph instanceof IndexedGraph && graph instanceof GraphSnapshot ? (IndexedGraph<T>) graph : CompactGraph.fromGraph(graph);
+  }
+
+  /**
+   * @return The number of vertices reachable from source (source included).
+   */
+  static <T> int reachableCount(IndexedGraph<T> graph, int source) {
+    int n = graph.size();
+    BitSet visited = new BitSet(n);
+    int[] stack = new int[n];
+    int top = 0;
+    int count = 1;
+    visited.set(source);
+    stack[top++] = source;
+    while (top > 0) {
+      int u = stack[--top];
+      for (int k = 0, degree = graph.outDegreeAt(u); k < degree; k++) {
+        int v = graph.targetAt(u, k);
+        if (!visited.get(v)) {
+          visited.set(v);
+          stack[top++] = v;
+          count += 1;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Same definition used by SimpleGraph: the first vertex in topological order
+   * must reach every other vertex.
+   */
+  static <T> boolean isConnected(IndexedGraph<T> graph) {
+    if (graph.size() == 0) {
+      return false;
+    }
+    //A graph that isn't even weakly connected can be ruled out without a dfs
+    if (weakComponents(graph).count() > 1) {
+      return false;
+    }
+    return reachableCount(graph, topologicalOrder(graph)[0]) == graph.size();
+  }
+
+  /**
+   * Depth first path search: the path to the current vertex is kept on a stack.
+   *
+   * @return The first path found, or null if target isn't reachable from source.
+   */
+  static <T> List<Vertex<T>> dfsPath(IndexedGraph<T> graph, int source, int target) {
+    int[] path = new int[graph.size()];
+    int[] length = { 0 };
+    boolean found = !depthFirst(graph, new int[]{ source }, new IndexedDfsVisitor() {
+      @Override
+      public boolean preVisit(int v) {
+        path[length[0]++] = v;
+        return true;
+      }
+
+      @Override
+      public void postVisit(int v) {
+        length[0] -= 1;
+      }
+
+      @Override
+      public boolean isDone() {
+        return length[0] > 0 && path[length[0] - 1] == target;
+      }
+    });
+    return found ? toVertices(graph, Arrays.copyOf(path, length[0])) : null;
+  }
+
+  /**
+   * @return The vertices reachable from source, in depth first pre-order.
+   */
+  static <T> List<Vertex<T>> preOrder(IndexedGraph<T> graph, int source) {
+    List<Vertex<T>> result = new ArrayList<>();
+    depthFirst(graph, new int[]{ source }, new IndexedDfsVisitor() {
+      @Override
+      public boolean preVisit(int v) {
+        result.add(graph.vertexAt(v));
+        return true;
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Runs a depth first traversal, converting indices to vertices for the visitor.
+   *
+   * @param source Index of the source vertex, or NONE to visit the whole graph.
+   * @return False iff the visitor stopped the traversal.
+   */
+  static <T> boolean depthFirstTraversal(IndexedGraph<T> graph, int source, DfsVisitor<T> visitor) {
+    int[] roots = source == NONE ? allRoots(graph) : new int[]{ source };
+    return depthFirst(graph, roots, new IndexedDfsVisitor() {
+      @Override
+      public boolean preVisit(int v) {
+        return visitor.preVisit(graph.vertexAt(v));
+      }
+
+      @Override
+      public void postVisit(int v) {
+        visitor.postVisit(graph.vertexAt(v));
+      }
+
+      @Override
+      public void treeEdge(int u, int v) {
+        visitor.treeEdge(graph.vertexAt(u), graph.vertexAt(v));
+      }
+
+      @Override
+      public void backEdge(int u, int v) {
+        visitor.backEdge(graph.vertexAt(u), graph.vertexAt(v));
+      }
+
+      @Override
+      public void forwardEdge(int u, int v) {
+        visitor.forwardEdge(graph.vertexAt(u), graph.vertexAt(v));
+      }
+
+      @Override
+      public void crossEdge(int u, int v) {
+        visitor.crossEdge(graph.vertexAt(u), graph.vertexAt(v));
+      }
+
+      @Override
+      public boolean isDone() {
+        return visitor.isDone();
+      }
+    });
+  }
+
+  /**
+   * @return A lazy stream of the simple paths from source to target.
+   */
+  static <T> Stream<List<Vertex<T>>> acyclicPaths(IndexedGraph<T> graph, int source, int target) {
+    if (source == target) {
+      return Stream.of(toVertices(graph, new int[]{ source }));
+    }
+    return StreamSupport.stream(new SimplePathSpliterator<>(graph, source, target), false);
+  }
+
+  /**
+   * @return A lazy stream of the simple cycles through source, starting and ending at source.
+   */
+  static <T> Stream<List<Vertex<T>>> cycles(IndexedGraph<T> graph, int source) {
+    return StreamSupport.stream(new SimplePathSpliterator<>(graph, source, NONE), false);
+  }
+
+  /**
+   * @return A lazy stream of all the elementary cycles in the graph (Johnson's algorithm).
+   */
+  static <T> Stream<List<Vertex<T>>> elementaryCycles(IndexedGraph<T> graph) {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(new ElementaryCycles<>(graph), Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+        false);
+  }
+
+  static <T> long countElementaryCycles(IndexedGraph<T> graph) {
+    return new ElementaryCycles<>(graph).count();
+  }
+
+  /**
+   * @param onlyRoot The only vertex trees are rooted at, or NONE for all the vertices.
+   * @return A lazy stream of the spanning trees of the graph, see {@link SpanningTrees}.
+   */
+  static <T> Stream<Graph<T>> spanningTrees(IndexedGraph<T> graph, int onlyRoot) {
+    SpanningTrees<T> trees = new SpanningTrees<>(graph, onlyRoot);
+    List<Vertex<T>> vertices = graph.getVertices();
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(trees, Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .map(edges -> {
+          Graph<T> tree = new SimpleGraph<>();
+          vertices.forEach(tree::addVertex);
+          for (int e : edges) {
+            int u = trees.source(e);
+            tree.addEdge(graph.vertexAt(u), graph.vertexAt(trees.target(e)), graph.weightAt(u, trees.position(e)));
+          }
+          return tree;
+        });
+  }
+
+  /**
+   * Prim's algorithm: edges in the tree are oriented from parent to child.
+   *
+   * @param root Index of the vertex the tree is grown from.
+   * @param queueFactory Creates the priority queue, given the number of vertices.
+   * @return A new graph with the minimum spanning tree of the component containing root.
+   */
+  static <T> Graph<T> prim(IndexedGraph<T> graph, int root, IntFunction<IndexedPriorityQueue> queueFactory) {
+    int n = graph.size();
+    double[] keys = new double[n];
+    int[] parents = new int[n];
+    double[] parentWeights = new double[n];
+    BitSet inTree = new BitSet(n);
+    Arrays.fill(keys, Double.POSITIVE_INFINITY);
+    Arrays.fill(parents, NONE);
+
+    Graph<T> mst = new SimpleGraph<T>();
+    IndexedPriorityQueue queue = queueFactory.apply(n);
+    keys[root] = 0.0;
+    queue.add(root, 0.0);
+    while (!queue.isEmpty()) {
+      int v = queue.poll();
+      inTree.set(v);
+      mst.addVertex(graph.vertexAt(v));
+      if (parents[v] != NONE) {
+        mst.addEdge(graph.vertexAt(parents[v]), graph.vertexAt(v), parentWeights[v]);
+      }
+      for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+        int u = graph.targetAt(v, k);
+        double w = graph.weightAt(v, k);
+        if (!inTree.get(u) && keys[u] > w) {
+          keys[u] = w;
+          parents[u] = v;
+          parentWeights[u] = w;
+          queue.addOrDecreasePriority(u, w);
+        }
+      }
+    }
+    return mst;
+  }
+
+  /**
+   * Iterative version of Tarjan's strongly connected components algorithm, O(V + E):
+   * it keeps an explicit call stack, with a cursor on each vertex's adjacency list.
+   * Roots are taken in the same order as getVertices().
+   *
+   * @return The component of each vertex. Components are numbered in reverse topological
+   *         order: an edge between two components always goes to the one with lower id.
+   */
+  static <T> int[] stronglyConnectedComponents(IndexedGraph<T> graph) {
+    int n = graph.size();
+    int[] index = new int[n];
+    int[] lowLink = new int[n];
+    int[] componentOf = new int[n];
+    int[] cursor = new int[n];
+    int[] callStack = new int[n];
+    int[] componentStack = new int[n];
+    BitSet onStack = new BitSet(n);
+    Arrays.fill(index, NONE);
+    Arrays.fill(componentOf, NONE);
+    int counter = 0;
+    int components = 0;
+    int stackTop = 0;
+
+    for (int root : allRoots(graph)) {
+      if (index[root] != NONE) {
+        continue;
+      }
+      int top = 0;
+      index[root] = lowLink[root] = counter++;
+      componentStack[stackTop++] = root;
+      onStack.set(root);
+      callStack[top++] = root;
+      while (top > 0) {
+        int v = callStack[top - 1];
+        if (cursor[v] < graph.outDegreeAt(v)) {
+          int w = graph.targetAt(v, cursor[v]++);
+          if (index[w] == NONE) {
+            index[w] = lowLink[w] = counter++;
+            componentStack[stackTop++] = w;
+            onStack.set(w);
+            callStack[top++] = w;
+          } else if (onStack.get(w)) {
+            lowLink[v] = Math.min(lowLink[v], index[w]);
+          }
+        } else {
+          top -= 1;
+          if (lowLink[v] == index[v]) {
+            //v is the root of a component: everything above it on the stack belongs to it
+            int w;
+            do {
+              w = componentStack[--stackTop];
+              onStack.clear(w);
+              componentOf[w] = components;
+            } while (w != v);
+            components += 1;
+          }
+          if (top > 0) {
+            int u = callStack[top - 1];
+            lowLink[u] = Math.min(lowLink[u], lowLink[v]);
+          }
+        }
+      }
+    }
+    return componentOf;
+  }
+
+  static <T> ComponentsResult<T> wrapComponents(IndexedGraph<T> graph, int[] componentOf) {
+    return new IndexedPartition<>(graph, componentOf);
+  }
+
+  static <T> ColoringResult<T> wrapColoring(IndexedGraph<T> graph, int[] colorOf) {
+    return new IndexedPartition<>(graph, colorOf);
+  }
+
+  /**
+   * Partition of the vertices into classes numbered from 0, like components or colors.
+   */
+  private static class IndexedPartition<T> implements ComponentsResult<T>, ColoringResult<T> {
+    private final IndexedGraph<T> graph;
+    private final int[] componentOf;
+    private final int[] sizes;
+
+    IndexedPartition(IndexedGraph<T> graph, int[] componentOf) {
+      this.graph = graph;
+      this.componentOf = componentOf;
+      int count = 0;
+      for (int c : componentOf) {
+        count = Math.max(count, c + 1);
+      }
+      sizes = new int[count];
+      for (int c : componentOf) {
+        sizes[c] += 1;
+      }
+    }
+
+    @Override
+    public int count() {
+      return sizes.length;
+    }
+
+    @Override
+    public int componentOf(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+      int i = graph.indexOf(v);
+      if (i >= componentOf.length) {
+        throw new IllegalArgumentException("Vertex added after the partition was computed");
+      }
+      return componentOf[i];
+    }
+
+    @Override
+    public int colorOf(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+      return componentOf(v);
+    }
+
+    @Override
+    public int size(int component) {
+      return sizes[component];
+    }
+
+    @Override
+    public List<Vertex<T>> vertices(int component) {
+      List<Vertex<T>> result = new ArrayList<>(sizes[component]);
+      for (int i = 0; i < componentOf.length; i++) {
+        if (componentOf[i] == component) {
+          result.add(graph.vertexAt(i));
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public Set<Graph<T>> subGraphs() {
+      List<Set<String>> labels = new ArrayList<>(sizes.length);
+      for (int c = 0; c < sizes.length; c++) {
+        labels.add(new HashSet<>(sizes[c]));
+      }
+      for (int i = 0; i < componentOf.length; i++) {
+        labels.get(componentOf[i]).add(graph.vertexAt(i).getLabel());
+      }
+      Set<Graph<T>> result = new HashSet<>();
+      for (Set<String> component : labels) {
+        result.add(graph.subGraph(component));
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Kruskal's algorithm: edges are added by increasing weight, unless they close a cycle.
+   * The graph must be undirected; each pair of edges u -> v, v -> u is only considered once.
+   *
+   * @return A new graph with all the vertices and a minimum spanning tree for each connected
+   *         component (a single tree iff the graph is connected).
+   */
+  static <T> Graph<T> kruskal(IndexedGraph<T> graph) {
+    int n = graph.size();
+    int m = 0;
+    for (int i = 0; i < n; i++) {
+      m += graph.outDegreeAt(i);
+    }
+    int[] sources = new int[m];
+    int[] positions = new int[m];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      for (int k = 0, degree = graph.outDegreeAt(i); k < degree; k++) {
+        if (i < graph.targetAt(i, k)) {
+          sources[count] = i;
+          positions[count] = k;
+          count += 1;
+        }
+      }
+    }
+    double[] weights = new double[count];
+    for (int e = 0; e < count; e++) {
+      weights[e] = graph.weightAt(sources[e], positions[e]);
+    }
+    int[] byWeight = sortedIndices(weights);
+
+    Graph<T> forest = new SimpleGraph<T>();
+    for (Vertex<T> v : graph.getVertices()) {
+      forest.addVertex(v);
+    }
+    UnionFind components = new DisjointSet(n);
+    for (int e : byWeight) {
+      int i = sources[e];
+      int j = graph.targetAt(i, positions[e]);
+      if (components.union(i, j)) {
+        forest.addEdge(graph.vertexAt(i), graph.vertexAt(j), weights[e]);
+        if (components.count() == 1) {
+          break;
+        }
+      }
+    }
+    return forest;
+  }
+
+  /**
+   * Stable index sort on primitive keys: the keys are sorted, and then each index is placed
+   * at the first free slot of its key's run.
+   *
+   * @return The indices of keys, by increasing key (ties in index order).
+   */
+  private static int[] sortedIndices(double[] keys) {
+    int m = keys.length;
+    double[] sorted = Arrays.copyOf(keys, m);
+    Arrays.sort(sorted);
+    //taken[r] is the number of indices already placed in the run starting at r
+    int[] taken = new int[m];
+    int[] result = new int[m];
+    for (int e = 0; e < m; e++) {
+      int start = firstIndexOf(sorted, keys[e]);
+      result[start + taken[start]++] = e;
+    }
+    return result;
+  }
+
+  //Lower bound of key in sorted, using the same order as Arrays.sort (Double.compare)
+  private static int firstIndexOf(double[] sorted, double key) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (Double.compare(sorted[mid], key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Parallel Boruvka's algorithm: in each round, every component picks its cheapest edge
+   * leaving it (in parallel over the vertices), and all the picked edges are merged into a
+   * concurrent union-find (in parallel again). Each round at least halves the number of
+   * components, so there are O(log V) rounds.
+   * Ties between weights are broken by the edges' endpoints, so that edges are totally
+   * ordered and the picked edges can never close a cycle.
+   *
+   * @param root The vertex the tree is rooted at: edges are oriented from parent to child,
+   *        like in prim().
+   * @return A new graph with a minimum spanning tree, or null if the graph isn't connected.
+   */
+  static <T> Graph<T> boruvka(IndexedGraph<T> graph, int root) {
+    int n = graph.size();
+    UnionFind components = new ConcurrentDisjointSet(n);
+    AtomicLongArray cheapest = new AtomicLongArray(n);
+    long[] treeEdges = new long[Math.max(n - 1, 0)];
+    int treeSize = 0;
+
+    while (components.count() > 1) {
+      for (int c = 0; c < n; c++) {
+        cheapest.set(c, NO_EDGE);
+      }
+      IntStream.range(0, n)
+        .parallel()
+        .forEach(v -> {
+          int component = components.find(v);
+          for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+            if (components.find(graph.targetAt(v, k)) != component) {
+              offerEdge(graph, cheapest, component, edgeKey(v, k));
+            }
+          }
+        });
+      long[] picked = IntStream.range(0, n)
+        .filter(c -> cheapest.get(c) != NO_EDGE)
+        .mapToLong(cheapest::get)
+        .toArray();
+      if (picked.length == 0) {
+        //More than one component, and no edge between them
+        return null;
+      }
+      //Two components can pick the same edge: only the first union succeeds
+      long[] merged = Arrays.stream(picked)
+        .parallel()
+        .filter(e -> components.union(edgeSource(e), graph.targetAt(edgeSource(e), edgePosition(e))))
+        .toArray();
+      System.arraycopy(merged, 0, treeEdges, treeSize, merged.length);
+      treeSize += merged.length;
+    }
+    return orientTree(graph, root, treeEdges, treeSize);
+  }
+
+  //Edges are identified by their source and their position in the source's adjacency list
+  private static long edgeKey(int source, int position) {
+    return ((long) source << 32) | position;
+  }
+
+  private static int edgeSource(long key) {
+    return (int) (key >>> 32);
+  }
+
+  private static int edgePosition(long key) {
+    return (int) key;
+  }
+
+  /**
+   * Total order on edges: by weight, then by their endpoints (regardless of direction,
+   * so that u -> v and v -> u compare as equal).
+   */
+  private static <T> int compareEdges(IndexedGraph<T> graph, long e1, long e2) {
+    int s1 = edgeSource(e1);
+    int s2 = edgeSource(e2);
+    int t1 = graph.targetAt(s1, edgePosition(e1));
+    int t2 = graph.targetAt(s2, edgePosition(e2));
+    int result = Double.compare(graph.weightAt(s1, edgePosition(e1)), graph.weightAt(s2, edgePosition(e2)));
+    if (result == 0) {
+      result = Integer.compare(Math.min(s1, t1), Math.min(s2, t2));
+    }
+    if (result == 0) {
+      result = Integer.compare(Math.max(s1, t1), Math.max(s2, t2));
+    }
+    return result;
+  }
+
+  private static <T> void offerEdge(IndexedGraph<T> graph, AtomicLongArray cheapest, int component, long edge) {
+    long current = cheapest.get(component);
+    while (current == NO_EDGE || compareEdges(graph, edge, current) < 0) {
+      if (cheapest.compareAndSet(component, current, edge)) {
+        return;
+      }
+      current = cheapest.get(component);
+    }
+  }
+
+  /**
+   * Builds a graph from the edges of a spanning tree, oriented from parent to child
+   * with respect to root.
+   */
+  private static <T> Graph<T> orientTree(IndexedGraph<T> graph, int root, long[] treeEdges, int treeSize) {
+    int n = graph.size();
+    //Adjacency lists of the (undirected) tree, in compressed form
+    int[] offsets = new int[n + 1];
+    for (int e = 0; e < treeSize; e++) {
+      int s = edgeSource(treeEdges[e]);
+      offsets[s + 1] += 1;
+      offsets[graph.targetAt(s, edgePosition(treeEdges[e])) + 1] += 1;
+    }
+    for (int i = 0; i < n; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    int[] next = Arrays.copyOf(offsets, n);
+    int[] neighbours = new int[2 * treeSize];
+    double[] weights = new double[2 * treeSize];
+    for (int e = 0; e < treeSize; e++) {
+      int s = edgeSource(treeEdges[e]);
+      int t = graph.targetAt(s, edgePosition(treeEdges[e]));
+      double w = graph.weightAt(s, edgePosition(treeEdges[e]));
+      neighbours[next[s]] = t;
+      weights[next[s]++] = w;
+      neighbours[next[t]] = s;
+      weights[next[t]++] = w;
+    }
+
+    Graph<T> tree = new SimpleGraph<T>();
+    BitSet visited = new BitSet(n);
+    int[] queue = new int[n];
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = root;
+    visited.set(root);
+    tree.addVertex(graph.vertexAt(root));
+    while (head < tail) {
+      int v = queue[head++];
+      for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+        int u = neighbours[k];
+        if (!visited.get(u)) {
+          visited.set(u);
+          queue[tail++] = u;
+          tree.addVertex(graph.vertexAt(u));
+          tree.addEdge(graph.vertexAt(v), graph.vertexAt(u), weights[k]);
+        }
+      }
+    }
+    return tree;
+  }
+
+  /**
+   * Weakly connected components (connected components, for undirected graphs), computed
+   * in parallel: each vertex's outgoing edges are merged into a shared, lock-free union-find.
+   */
+  static <T> UnionFind weakComponents(IndexedGraph<T> graph) {
+    int n = graph.size();
+    UnionFind components = new ConcurrentDisjointSet(n);
+    IntStream.range(0, n)
+      .parallel()
+      .forEach(i -> {
+        for (int k = 0, degree = graph.outDegreeAt(i); k < degree; k++) {
+          components.union(i, graph.targetAt(i, k));
+        }
+      });
+    return components;
+  }
+
+  /**
+   * Weakly connected components, sequentially, keeping track of their sizes.
+   */
+  static <T> GrowableDisjointSet weakComponentSizes(IndexedGraph<T> graph) {
+    int n = graph.size();
+    GrowableDisjointSet components = new GrowableDisjointSet(n);
+    for (int i = 0; i < n; i++) {
+      for (int k = 0, degree = graph.outDegreeAt(i); k < degree; k++) {
+        components.union(i, graph.targetAt(i, k));
+      }
+    }
+    return components;
+  }
+
+  /**
+   * @return The component of each vertex, numbered from 0 in order of first appearance in getVertices().
+   */
+  static <T> int[] componentIds(IndexedGraph<T> graph, UnionFind components) {
+    int n = graph.size();
+    //components may have more elements than the graph: any of them can be a root
+    int[] ids = new int[Math.max(n, components.size())];
+    int[] componentOf = new int[n];
+    Arrays.fill(ids, NONE);
+    int count = 0;
+    for (int i : allRoots(graph)) {
+      int root = components.find(i);
+      if (ids[root] == NONE) {
+        ids[root] = count++;
+      }
+      componentOf[i] = ids[root];
+    }
+    return componentOf;
+  }
+
+  /**
+   * Two-coloring through an explicit stack, following outgoing edges only.
+   * Roots are taken in the same order as getVertices().
+   */
+  static <T> boolean isBipartite(IndexedGraph<T> graph) {
+    int n = graph.size();
+    //0: not colored yet, 1 and 2: the two colors
+    byte[] colors = new byte[n];
+    int[] stack = new int[n];
+    for (int s : allRoots(graph)) {
+      if (colors[s] != 0) {
+        continue;
+      }
+      colors[s] = 1;
+      int top = 0;
+      stack[top++] = s;
+      while (top > 0) {
+        int u = stack[--top];
+        byte neighbourColor = (byte) (3 - colors[u]);
+        for (int k = 0, degree = graph.outDegreeAt(u); k < degree; k++) {
+          int w = graph.targetAt(u, k);
+          if (w == u) {
+            continue;
+          }
+          if (colors[w] != 0) {
+            if (colors[w] != neighbourColor) {
+              return false;
+            }
+          } else {
+            colors[w] = neighbourColor;
+            stack[top++] = w;
+          }
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,23 @@
+package mlarocca.java99.graphs;
+
+/**
+ * Package-only view of a graph whose vertices are interned to dense integer indices
+ * in [0, size()). Algorithms in {@link IndexedAlgorithms} run on this view using
+ * primitive arrays instead of maps keyed by vertices.
+ */
+interface IndexedGraph<T> extends Graph<T> {
+  /**
+   * @throws NullPointerException If v is null.
+   * @throws IllegalArgumentException If v doesn't belong to the graph.
+   */
+  public int indexOf(Vertex<T> v) throws NullPointerException, IllegalArgumentException;
+  public Vertex<T> vertexAt(int index);
+
+  public int outDegreeAt(int index);
+  public int targetAt(int index, int k);
+  public double weightAt(int index, int k);
+
+  public int inDegreeAt(int index);
+  public int sourceAt(int index, int k);
+  public double inWeightAt(int index, int k);
+}
@@ -0,0 +1,317 @@
+package mlarocca.java99.graphs;
+
+import static mlarocca.java99.graphs.IndexedAlgorithms.NONE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Graph isomorphism on vertices' indices, ignoring labels, values and weights.
+ *
+ * Vertices are first colored by Weisfeiler-Lehman color refinement: starting from
+ * their in and out degree, each vertex's color is repeatedly combined with the multisets
+ * of its out-neighbours' and in-neighbours' colors, until the number of colors stops
+ * growing. Isomorphic graphs get the same color histogram, and an isomorphism can only
+ * map a vertex to one with the same color.
+ * The matching itself follows VF2++: vertices of the first graph are matched in
+ * breadth first order, rarest colors first, each against the vertices of the second
+ * graph with the same color, checking the edges towards the vertices already matched.
+ */
+final class Isomorphism {
+
+  private Isomorphism() {
+  }
+
+  /**
+   * Stable coloring of a graph, and the number of refinement rounds needed to reach it.
+   */
+  private static final class Coloring {
+    private final long[] colors;
+    private final int rounds;
+
+    Coloring(long[] colors, int rounds) {
+      this.colors = colors;
+      this.rounds = rounds;
+    }
+  }
+
+  /**
+   * Sorted adjacency lists, without duplicates, for quick edge lookups.
+   */
+  private static final class Adjacency {
+    private final int[][] out;
+    private final int[][] in;
+
+    <T> Adjacency(IndexedGraph<T> graph) {
+      int n = graph.size();
+      out = new int[n][];
+      in = new int[n][];
+      int[] inDegrees = new int[n];
+      for (int v = 0; v < n; v++) {
+        int degree = graph.outDegreeAt(v);
+        out[v] = new int[degree];
+        for (int k = 0; k < degree; k++) {
+          out[v][k] = graph.targetAt(v, k);
+          inDegrees[out[v][k]]++;
+        }
+        Arrays.sort(out[v]);
+      }
+      for (int v = 0; v < n; v++) {
+        in[v] = new int[inDegrees[v]];
+        inDegrees[v] = 0;
+      }
+      //Sources are added in increasing order, so in-lists come out sorted
+      for (int v = 0; v < n; v++) {
+        for (int w : out[v]) {
+          in[w][inDegrees[w]++] = v;
+        }
+      }
+    }
+
+    boolean hasEdge(int u, int v) {
+      return Arrays.binarySearch(out[u], v) >= 0;
+    }
+  }
+
+  //SplitMix64 finalizer
+  private static long mix(long x) {
+    x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+    x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+    return x ^ (x >>> 31);
+  }
+
+  private static long combine(long hash, long value) {
+    return mix(hash * 31 + value);
+  }
+
+  //Order-independent hash of the colors of the vertices in a list
+  private static long multisetHash(int[] vertices, long[] colors) {
+    long[] values = new long[vertices.length];
+    for (int i = 0; i < vertices.length; i++) {
+      values[i] = colors[vertices[i]];
+    }
+    Arrays.sort(values);
+    long hash = vertices.length;
+    for (long value : values) {
+      hash = combine(hash, value);
+    }
+    return hash;
+  }
+
+  private static int distinct(long[] colors) {
+    return (int) Arrays.stream(colors).distinct().count();
+  }
+
+  /**
+   * Color refinement: colors only depend on the structure of the graph, so that they
+   * can be compared across graphs.
+   */
+  private static Coloring refine(Adjacency adjacency) {
+    int n = adjacency.out.length;
+    long[] colors = new long[n];
+    for (int v = 0; v < n; v++) {
+      boolean hasSelfLoop = adjacency.hasEdge(v, v);
+      colors[v] = combine(combine(mix(adjacency.in[v].length), adjacency.out[v].length), hasSelfLoop ? 1 : 0);
+    }
+    int classes = distinct(colors);
+    int rounds = 0;
+    while (classes < n) {
+      long[] refined = new long[n];
+      for (int v = 0; v < n; v++) {
+        refined[v] = combine(combine(colors[v], multisetHash(adjacency.out[v], colors)), multisetHash(adjacency.in[v], colors));
+      }
+      int refinedClasses = distinct(refined);
+      if (refinedClasses == classes) {
+        break;
+      }
+      colors = refined;
+      classes = refinedClasses;
+      rounds++;
+    }
+    return new Coloring(colors, rounds);
+  }
+
+  private static long[] sortedCopy(long[] colors) {
+    long[] sorted = colors.clone();
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * Hash of the stable coloring (a Weisfeiler-Lehman invariant, not a canonical form):
+   * isomorphic graphs have the same hash. Graphs with the same hash are very likely, but
+   * not guaranteed, to be isomorphic (color refinement can't tell apart, for instance,
+   * regular graphs with the same size and degree).
+   */
+  static <T> long invariantHash(IndexedGraph<T> graph) {
+    Adjacency adjacency = new Adjacency(graph);
+    Coloring coloring = refine(adjacency);
+    long edges = Arrays.stream(adjacency.out).mapToLong(row -> row.length).sum();
+    long hash = combine(combine(mix(graph.size()), edges), coloring.rounds);
+    for (long color : sortedCopy(coloring.colors)) {
+      hash = combine(hash, color);
+    }
+    return hash;
+  }
+
+  /**
+   * @return A mapping from the vertices of g1 to those of g2 preserving edges in both
+   *         directions, or null if the graphs aren't isomorphic.
+   */
+  static <R, S> int[] isomorphism(IndexedGraph<R> g1, IndexedGraph<S> g2) {
+    int n = g1.size();
+    if (n != g2.size()) {
+      return null;
+    }
+    Adjacency a1 = new Adjacency(g1);
+    Adjacency a2 = new Adjacency(g2);
+    long edges1 = Arrays.stream(a1.out).mapToLong(row -> row.length).sum();
+    long edges2 = Arrays.stream(a2.out).mapToLong(row -> row.length).sum();
+    if (edges1 != edges2) {
+      return null;
+    }
+    Coloring c1 = refine(a1);
+    Coloring c2 = refine(a2);
+    if (c1.rounds != c2.rounds || !Arrays.equals(sortedCopy(c1.colors), sortedCopy(c2.colors))) {
+      return null;
+    }
+
+    //Candidates for each color in g2
+    Map<Long, List<Integer>> classes = new HashMap<>();
+    for (int v = 0; v < n; v++) {
+      classes.computeIfAbsent(c2.colors[v], c -> new ArrayList<>()).add(v);
+    }
+    int[][] candidates = new int[n][];
+    for (int u = 0; u < n; u++) {
+      candidates[u] = classes.get(c1.colors[u]).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    int[] order = matchingOrder(a1, candidates);
+    int[] mapping = new int[n];
+    int[] inverse = new int[n];
+    int[] cursors = new int[n + 1];
+    Arrays.fill(mapping, NONE);
+    Arrays.fill(inverse, NONE);
+
+    //Iterative backtracking: cursors[depth] is the next candidate to try for order[depth]
+    int depth = 0;
+    while (depth >= 0) {
+      if (depth == n) {
+        return mapping;
+      }
+      int u = order[depth];
+      if (mapping[u] != NONE) {
+        inverse[mapping[u]] = NONE;
+        mapping[u] = NONE;
+      }
+      int[] uCandidates = candidates[u];
+      int next = NONE;
+      while (cursors[depth] < uCandidates.length && next == NONE) {
+        int v = uCandidates[cursors[depth]++];
+        if (inverse[v] == NONE && isFeasible(a1, a2, mapping, inverse, u, v)) {
+          next = v;
+        }
+      }
+      if (next == NONE) {
+        cursors[depth] = 0;
+        depth--;
+      } else {
+        mapping[u] = next;
+        inverse[next] = u;
+        depth++;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks that matching u to v maps the edges between u and the vertices already
+   * matched onto the edges between v and their images, and vice versa.
+   */
+  private static boolean isFeasible(Adjacency a1, Adjacency a2, int[] mapping, int[] inverse, int u, int v) {
+    return isFeasible(a1.out[u], a2.out[v], a2, mapping, inverse, v, true)
+        && isFeasible(a1.in[u], a2.in[v], a2, mapping, inverse, v, false);
+  }
+
+  private static boolean isFeasible(
+      int[] neighbours1,
+      int[] neighbours2,
+      Adjacency a2,
+      int[] mapping,
+      int[] inverse,
+      int v,
+      boolean isOut) {
+    int matched1 = 0;
+    for (int w : neighbours1) {
+      int image = mapping[w];
+      if (image != NONE) {
+        if (!(isOut ? a2.hasEdge(v, image) : a2.hasEdge(image, v))) {
+          return false;
+        }
+        matched1++;
+      }
+    }
+    int matched2 = 0;
+    for (int w : neighbours2) {
+      if (inverse[w] != NONE) {
+        matched2++;
+      }
+    }
+    return matched1 == matched2;
+  }
+
+  /**
+   * VF2++ order: each connected component is visited in breadth first order from its
+   * vertex with the fewest candidates (and, among those, the largest degree); within
+   * a level, vertices with more neighbours already ordered come first, then those
+   * with fewer candidates.
+   */
+  private static int[] matchingOrder(Adjacency a1, int[][] candidates) {
+    int n = candidates.length;
+    int[] order = new int[n];
+    int[] orderedNeighbours = new int[n];
+    BitSet ordered = new BitSet(n);
+    Comparator<Integer> byRarity = Comparator.comparingInt((Integer v) -> candidates[v].length)
+        .thenComparing(v -> -(a1.out[v].length + a1.in[v].length));
+    Comparator<Integer> byPriority = Comparator.comparingInt((Integer v) -> -orderedNeighbours[v])
+        .thenComparing(byRarity);
+
+    Integer[] roots = new Integer[n];
+    for (int v = 0; v < n; v++) {
+      roots[v] = v;
+    }
+    Arrays.sort(roots, byRarity);
+    int size = 0;
+    for (int root : roots) {
+      if (ordered.get(root)) {
+        continue;
+      }
+      List<Integer> level = new ArrayList<>();
+      level.add(root);
+      ordered.set(root);
+      while (!level.isEmpty()) {
+        level.sort(byPriority);
+        List<Integer> nextLevel = new ArrayList<>();
+        for (int v : level) {
+          order[size++] = v;
+          for (int[] neighbours : new int[][] { a1.out[v], a1.in[v] }) {
+            for (int w : neighbours) {
+              orderedNeighbours[w]++;
+              if (!ordered.get(w)) {
+                ordered.set(w);
+                nextLevel.add(w);
+              }
+            }
+          }
+        }
+        level = nextLevel;
+      }
+    }
+    return order;
+  }
+}
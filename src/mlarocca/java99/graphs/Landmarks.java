@@ -0,0 +1,355 @@
+package mlarocca.java99.graphs;
+
+import static mlarocca.java99.graphs.IndexedAlgorithms.NONE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import mlarocca.java99.graphs.heaps.DaryHeap;
+import mlarocca.java99.graphs.heaps.IndexedPriorityQueue;
+
+/**
+ * Landmark distances for ALT (A*, landmarks, triangle inequality) searches on graphs
+ * without coordinates.
+ *
+ * For each landmark L, the distances d(L, v) from L and d(v, L) to L are stored for
+ * all the vertices v. By the triangle inequality, for any two vertices u and v:
+ * d(u, v) &gt;= d(L, v) - d(L, u) and d(u, v) &gt;= d(u, L) - d(v, L), and the largest
+ * of these bounds over all landmarks is a consistent heuristic for AStar and
+ * bidirectionalAStar.
+ *
+ * Distances are computed on a snapshot of the graph: the heuristics stay admissible
+ * if edges are later removed or their weights increased, but not otherwise.
+ */
+public final class Landmarks<T> {
+
+  /**
+   * Landmark selection strategies.
+   */
+  public enum Selection {
+    /**
+     * Each landmark is the vertex farthest from those already selected (vertices
+     * that can't be reached from any of them come first).
+     */
+    FARTHEST,
+    /**
+     * Grows a shortest path tree from the vertex farthest from the landmarks already
+     * selected, and picks the leaf at the end of the subtree where the current lower
+     * bounds are worst, skipping subtrees that already contain a landmark.
+     */
+    AVOID
+  }
+
+  private final CompactGraph<T> graph;
+  private final int[] landmarks;
+  //forward[v * k + l] is d(landmarks[l], v), backward[v * k + l] is d(v, landmarks[l])
+  private final double[] forward;
+  private final double[] backward;
+
+  /**
+   * Selects landmarks and computes their distance tables.
+   *
+   * @param count The number of landmarks (the size of the graph, if it's smaller).
+   * @throws IllegalArgumentException If count isn't positive, or if any edge has a negative weight.
+   */
+  public static <T> Landmarks<T> select(Graph<T> graph, int count, Selection selection) throws NullPointerException, IllegalArgumentException {
+    Objects.requireNonNull(selection);
+    if (count <= 0) {
+      throw new IllegalArgumentException("The number of landmarks must be positive");
+    }
+    CompactGraph<T> compact = snapshot(graph);
+    int k = Math.min(count, compact.size());
+    if (k == 0) {
+      return new Landmarks<>(compact, new int[0]);
+    }
+    int[] landmarks = selection == Selection.FARTHEST ? farthest(compact, k) : avoid(compact, k);
+    return new Landmarks<>(compact, landmarks);
+  }
+
+  /**
+   * Computes the distance tables for the given landmarks.
+   *
+   * @throws IllegalArgumentException If any landmark doesn't belong to the graph, or if any edge
+   *         has a negative weight.
+   */
+  public static <T> Landmarks<T> fromVertices(Graph<T> graph, Collection<Vertex<T>> landmarks) throws NullPointerException, IllegalArgumentException {
+    CompactGraph<T> compact = snapshot(graph);
+    int[] indices = landmarks.stream().mapToInt(v -> {
+      if (!compact.hasVertex(Objects.requireNonNull(v))) {
+        throw new IllegalArgumentException("Landmark doesn't belong to the graph");
+      }
+      return compact.indexOf(v);
+    }).distinct().toArray();
+    return new Landmarks<>(compact, indices);
+  }
+
+  private static <T> CompactGraph<T> snapshot(Graph<T> graph) throws IllegalArgumentException {
+    CompactGraph<T> compact = CompactGraph.fromGraph(graph);
+    for (int v = 0; v < compact.size(); v++) {
+      for (int k = 0, degree = compact.outDegreeAt(v); k < degree; k++) {
+        if (compact.weightAt(v, k) < 0) {
+          throw new IllegalArgumentException("Landmark heuristics require non-negative weights");
+        }
+      }
+    }
+    return compact;
+  }
+
+  private Landmarks(CompactGraph<T> graph, int[] landmarks) {
+    this.graph = graph;
+    this.landmarks = landmarks;
+    int n = graph.size();
+    int k = landmarks.length;
+    forward = new double[n * k];
+    backward = new double[n * k];
+    //Checked once: it's not a constant time test on CompactGraph
+    boolean isUndirected = graph.isUndirected();
+    //Each landmark fills its own column of the tables
+    IntStream.range(0, k).parallel().forEach(l -> {
+      double[] from = dijkstra(graph, landmarks[l], false, null);
+      double[] to = isUndirected ? from : dijkstra(graph, landmarks[l], true, null);
+      for (int v = 0; v < n; v++) {
+        forward[v * k + l] = from[v];
+        backward[v * k + l] = to[v];
+      }
+    });
+  }
+
+  /**
+   * Dijkstra's algorithm on outgoing edges, or on incoming edges if backward is true.
+   *
+   * @param predecessors Output (may be null): shortest path tree.
+   */
+  private static <T> double[] dijkstra(CompactGraph<T> graph, int source, boolean backward, int[] predecessors) {
+    int n = graph.size();
+    double[] distances = new double[n];
+    Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    IndexedPriorityQueue queue = new DaryHeap(n);
+    distances[source] = 0.0;
+    queue.add(source, 0.0);
+    while (!queue.isEmpty()) {
+      int v = queue.poll();
+      double dV = distances[v];
+      int degree = backward ? graph.inDegreeAt(v) : graph.outDegreeAt(v);
+      for (int k = 0; k < degree; k++) {
+        int u = backward ? graph.sourceAt(v, k) : graph.targetAt(v, k);
+        double dU = dV + (backward ? graph.inWeightAt(v, k) : graph.weightAt(v, k));
+        if (dU < distances[u]) {
+          distances[u] = dU;
+          if (predecessors != null) {
+            predecessors[u] = v;
+          }
+          queue.addOrDecreasePriority(u, dU);
+        }
+      }
+    }
+    return distances;
+  }
+
+  /**
+   * Vertex maximizing the distance from the closest landmark; unreachable vertices
+   * count as infinitely far, and ties are broken by index.
+   *
+   * @param closest The distance of each vertex from the closest landmark.
+   */
+  private static int farthestVertex(double[] closest, boolean[] isLandmark) {
+    int farthest = NONE;
+    for (int v = 0; v < closest.length; v++) {
+      if (!isLandmark[v] && (farthest == NONE || closest[v] > closest[farthest])) {
+        farthest = v;
+      }
+    }
+    return farthest;
+  }
+
+  private static <T> int[] farthest(CompactGraph<T> graph, int k) {
+    int n = graph.size();
+    int[] landmarks = new int[k];
+    boolean[] isLandmark = new boolean[n];
+    double[] closest = new double[n];
+    //Start from the vertex farthest from the first one
+    double[] fromFirst = dijkstra(graph, 0, false, null);
+    System.arraycopy(fromFirst, 0, closest, 0, n);
+    closest[0] = 0.0;
+    for (int i = 0; i < k; i++) {
+      int l = farthestVertex(closest, isLandmark);
+      landmarks[i] = l;
+      isLandmark[l] = true;
+      if (i == 0) {
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+      }
+      double[] distances = dijkstra(graph, l, false, null);
+      for (int v = 0; v < n; v++) {
+        closest[v] = Math.min(closest[v], distances[v]);
+      }
+    }
+    return landmarks;
+  }
+
+  private static <T> int[] avoid(CompactGraph<T> graph, int k) {
+    int n = graph.size();
+    int[] landmarks = new int[k];
+    boolean[] isLandmark = new boolean[n];
+    double[] closest = new double[n];
+    Arrays.fill(closest, Double.POSITIVE_INFINITY);
+    //Distances from the landmarks selected so far, for the lower bounds
+    List<double[]> fromLandmarks = new ArrayList<>();
+    List<double[]> toLandmarks = new ArrayList<>();
+    boolean isUndirected = graph.isUndirected();
+
+    for (int i = 0; i < k; i++) {
+      int root = i == 0 ? 0 : farthestVertex(closest, isLandmark);
+      int[] predecessors = new int[n];
+      Arrays.fill(predecessors, NONE);
+      double[] distances = dijkstra(graph, root, false, predecessors);
+
+      //Vertices in the tree, children before their parents
+      Integer[] tree = IntStream.range(0, n).filter(v -> distances[v] < Double.POSITIVE_INFINITY)
+          .boxed().toArray(Integer[]::new);
+      Arrays.sort(tree, (u, v) -> Double.compare(distances[v], distances[u]));
+
+      //size[v]: total gap between distance and lower bound in the subtree of v, 0 if it contains a landmark
+      double[] size = new double[n];
+      boolean[] hasLandmark = new boolean[n];
+      for (int v : tree) {
+        double bound = 0.0;
+        for (int l = 0; l < fromLandmarks.size(); l++) {
+          bound = Math.max(bound, lowerBound(fromLandmarks.get(l), toLandmarks.get(l), root, v));
+        }
+        size[v] += distances[v] - bound;
+        hasLandmark[v] |= isLandmark[v];
+        int p = predecessors[v];
+        if (p != NONE) {
+          size[p] += size[v];
+          hasLandmark[p] |= hasLandmark[v];
+        }
+      }
+      for (int v : tree) {
+        if (hasLandmark[v]) {
+          size[v] = 0.0;
+        }
+      }
+
+      //Children of each vertex in the tree
+      int[] firstChild = new int[n];
+      int[] nextSibling = new int[n];
+      Arrays.fill(firstChild, NONE);
+      for (int v : tree) {
+        int p = predecessors[v];
+        if (p != NONE) {
+          nextSibling[v] = firstChild[p];
+          firstChild[p] = v;
+        }
+      }
+      int leaf = root;
+      for (boolean descend = true; descend;) {
+        int best = NONE;
+        for (int c = firstChild[leaf]; c != NONE; c = nextSibling[c]) {
+          if (size[c] > 0 && (best == NONE || size[c] > size[best])) {
+            best = c;
+          }
+        }
+        descend = best != NONE;
+        if (descend) {
+          leaf = best;
+        }
+      }
+      if (isLandmark[leaf]) {
+        leaf = farthestVertex(closest, isLandmark);
+      }
+
+      landmarks[i] = leaf;
+      isLandmark[leaf] = true;
+      double[] from = dijkstra(graph, leaf, false, null);
+      fromLandmarks.add(from);
+      toLandmarks.add(isUndirected ? from : dijkstra(graph, leaf, true, null));
+      for (int v = 0; v < n; v++) {
+        closest[v] = Math.min(closest[v], from[v]);
+      }
+    }
+    return landmarks;
+  }
+
+  /**
+   * Lower bound for d(u, v) given the distances from and to a single landmark.
+   * Bounds involving unreachable vertices carry no information and are ignored.
+   */
+  private static double lowerBound(double[] from, double[] to, int u, int v) {
+    double bound = 0.0;
+    if (from[v] < Double.POSITIVE_INFINITY && from[u] < Double.POSITIVE_INFINITY) {
+      bound = from[v] - from[u];
+    }
+    if (to[u] < Double.POSITIVE_INFINITY && to[v] < Double.POSITIVE_INFINITY) {
+      bound = Math.max(bound, to[u] - to[v]);
+    }
+    return bound;
+  }
+
+  //Same as lowerBound, over all the landmarks
+  private double lowerBound(int u, int v) {
+    int k = landmarks.length;
+    double bound = 0.0;
+    for (int l = 0, iu = u * k, iv = v * k; l < k; l++, iu++, iv++) {
+      double fU = forward[iu];
+      double fV = forward[iv];
+      if (fV < Double.POSITIVE_INFINITY && fU < Double.POSITIVE_INFINITY && fV - fU > bound) {
+        bound = fV - fU;
+      }
+      double bU = backward[iu];
+      double bV = backward[iv];
+      if (bU < Double.POSITIVE_INFINITY && bV < Double.POSITIVE_INFINITY && bU - bV > bound) {
+        bound = bU - bV;
+      }
+    }
+    return bound;
+  }
+
+  //Index of v in the snapshot, or NONE if it was added to the graph later
+  private int indexOrNone(Vertex<T> v) {
+    return graph.hasVertex(v) ? graph.indexOf(v) : NONE;
+  }
+
+  public List<Vertex<T>> landmarks() {
+    return Collections.unmodifiableList(IndexedAlgorithms.toVertices(graph, landmarks));
+  }
+
+  /**
+   * @return A lower bound for the distance from u to v (0 if either doesn't belong to the graph).
+   * @throws NullPointerException If u or v is null.
+   */
+  public double lowerBound(Vertex<T> u, Vertex<T> v) throws NullPointerException {
+    int iu = indexOrNone(Objects.requireNonNull(u));
+    int iv = indexOrNone(Objects.requireNonNull(v));
+    return iu == NONE || iv == NONE ? 0.0 : lowerBound(iu, iv);
+  }
+
+  /**
+   * Heuristic for {@code graph.AStar(source, target, landmarks.heuristicTo(target))}.
+   *
+   * @throws NullPointerException If target is null.
+   */
+  public Function<Vertex<T>, Double> heuristicTo(Vertex<T> target) throws NullPointerException {
+    int t = indexOrNone(Objects.requireNonNull(target));
+    if (t == NONE) {
+      return v -> 0.0;
+    }
+    return v -> {
+      int i = indexOrNone(v);
+      return i == NONE ? 0.0 : lowerBound(i, t);
+    };
+  }
+
+  /**
+   * Heuristic for {@code graph.bidirectionalAStar(source, target, landmarks.heuristic())}.
+   */
+  public BiFunction<Vertex<T>, Vertex<T>, Double> heuristic() {
+    return this::lowerBound;
+  }
+}
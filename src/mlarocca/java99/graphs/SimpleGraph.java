@@ -1,36 +1,50 @@
 package mlarocca.java99.graphs;
 
-import java.util.ArrayDeque;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.Set;
-import java.util.Stack;
+import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import mlarocca.java99.cache.utils.Wrapper;
+import mlarocca.java99.graphs.data.ColoringResult;
+import mlarocca.java99.graphs.data.ComponentsResult;
 import mlarocca.java99.graphs.data.MinDistanceResult;
 import mlarocca.java99.graphs.data.StructureResult;
+import mlarocca.java99.graphs.heaps.DaryHeap;
+import mlarocca.java99.graphs.heaps.IndexedPriorityQueue;
+import mlarocca.java99.graphs.unionfind.GrowableDisjointSet;
 
-public class SimpleGraph<T> implements GraphInternal<T> {
+public class SimpleGraph<T> implements GraphInternal<T>, IndexedGraph<T> {
 
   private static final String UNDIRECTED_EDGE_SYMBOL = "-";
   private static final String DIRECTED_EDGE_SYMBOL = ">";
@@ -41,6 +55,9 @@ public class SimpleGraph<T> implements GraphInternal<T> {
   private static final Pattern UNDIRECTED_EDGE_PATTERN = Pattern.compile("^(" + VERTEX_REGEX + ")\\s*-\\s*(" + VERTEX_REGEX + ")(?:\\s*/" + NUMBER_REGEX + ")?$");
   private static final Pattern VERTEX_PATTERN = Pattern.compile("^" + VERTEX_REGEX + "$");
   
+  //Number of monitors guarding the adjacency lists: vertex i is guarded by stripe i % STRIPES
+  private static final int STRIPES = 64;
+
   private static Supplier<IllegalArgumentException> VERTEX_NOT_IN_GRAPH_EXCEPTION_SUPPLIER = 
     new Supplier<IllegalArgumentException>() {
   
@@ -140,90 +157,218 @@ public class SimpleGraph<T> implements GraphInternal<T> {
     }
   };
   
-  private ConcurrentMap<SimpleVertex<T>, List<Edge<T>>> adjList;
-  private ConcurrentMap<String, SimpleVertex<T>> labelToVertex;
+  /*
+   * Concurrency: vertices are added under the write lock, and edges under the read lock
+   * plus the monitors of their endpoints' stripes, so that an edge can be added while
+   * edges between other vertices are. Readers take no lock: each vertex's lists of edges
+   * are immutable Rows, replaced as a whole, which only grow (an edge never changes its
+   * position), so readers always see a consistent, if possibly outdated, list.
+   * That's enough for queries on a single list, but not for the algorithms that walk the
+   * whole graph: those run on a snapshot (see read(), and stream() for lazy streams).
+   */
+  //Only the live graph has them: snapshots, taken for each query, are read only
+  private final StampedLock lock;
+  private final Object[] stripes;
+
+  //Dense indices: vertices are numbered in insertion order, starting from 0
+  private final ConcurrentMap<String, Integer> labelToIndex;
+  //Written after the new vertex's slots in table, which is replaced when it's full
+  private volatile int verticesCount = 0;
+  private volatile Table<T> table;
+
+  /*
+   * Snapshots: each row and each vertex is tagged with the epoch it was published in,
+   * and taking a snapshot closes the current epoch, without locking. A snapshot of epoch
+   * e sees the vertices added in an epoch not after e, and reads, for each of them, the
+   * newest row published in an epoch not after e, following the links from each row to
+   * the one it replaced.
+   * Writers publish untagged first, and tag with the epoch they read only after all their
+   * rows are published: a snapshot that finds an untagged row waits for its tag, so it
+   * sees all the rows of a change or none.
+   * A link to an older row is only kept while an open snapshot may need it: writers prune
+   * the rows they replace, and the last snapshot to be closed prunes the rows replaced
+   * while snapshots were open.
+   */
+  private final AtomicLong epoch = new AtomicLong();
+  //Number of open snapshots for each epoch
+  private final ConcurrentSkipListMap<Long, Integer> openSnapshots;
+  //Rows that still link to older ones, as 2 * index for out rows and 2 * index + 1 for in rows
+  private final Set<Integer> linkedRows;
+  //For snapshots only: the graph they were taken from, and whether they have been closed
+  private final SimpleGraph<T> source;
+  private volatile boolean closed = false;
+  //For snapshots only: whether the counters below have been computed from their rows
+  private volatile boolean counted = false;
+
+  //Lazily computed lists, valid as long as their version is the current one
+  private volatile Cached<List<Vertex<T>>> vertices = null;
+  private volatile Cached<List<Edge<T>>> edges = null;
+  //Incremented after each change
+  private final AtomicLong verticesVersion = new AtomicLong();
+  private final AtomicLong edgesVersion = new AtomicLong();
+
+  private final AtomicInteger edgesCount = new AtomicInteger();
+  //Kept up to date as vertices and edges are added: see IndexedAlgorithms.elementHash
+  private final AtomicInteger hash = new AtomicInteger();
+  //Edges u->v (u != v) without an edge v->u with the same weight: 0 iff the graph is undirected
+  private final AtomicInteger asymmetricEdges = new AtomicInteger();
+  //Weakly connected components, merged as edges are added (guarded by itself);
+  //snapshots build theirs on first use
+  private volatile GrowableDisjointSet components;
+
+  //Creates the priority queues used by dijkstra, AStar and prim, given the number of vertices
+  private volatile IntFunction<IndexedPriorityQueue> priorityQueueFactory = DaryHeap::new;
 
-  //Lazily computed list of vertices (MUST be set to null when a vertex is added)
-  private List<Vertex<T>> vertices;
-  //Lazily computed list of edges (MUST be set to null when an edge is added)
-  private List<Edge<T>> edges;
-  
   public SimpleGraph() {
-    adjList = new ConcurrentHashMap<>();
-    labelToVertex = new ConcurrentHashMap<>();
-    vertices = null;
-    edges = null;
+    lock = new StampedLock();
+    stripes = new Object[STRIPES];
+    for (int s = 0; s < STRIPES; s++) {
+      stripes[s] = new Object();
+    }
+    labelToIndex = new ConcurrentHashMap<>();
+    table = new Table<>(16);
+    openSnapshots = new ConcurrentSkipListMap<>();
+    linkedRows = ConcurrentHashMap.newKeySet();
+    source = null;
+    components = new GrowableDisjointSet(0);
   }
-  
+
+  /**
+   * A snapshot of graph (or a copy of the snapshot graph), of an epoch already registered
+   * and closed. The counters are computed from the rows on first use (see countRows()).
+   */
+  private SimpleGraph(SimpleGraph<T> graph, long snapshotEpoch) {
+    lock = null;
+    stripes = null;
+    labelToIndex = graph.labelToIndex;
+    epoch.set(snapshotEpoch);
+    //Read after the epoch is closed: edges tagged with it only lead to these vertices.
+    //The last ones may have been added after it, though
+    int n = graph.verticesCount;
+    //Only its vertices are read: rows are read from the live graph's current table
+    table = graph.table;
+    while (n > 0 && publishedAfter(table.epochs, n - 1)) {
+      n -= 1;
+    }
+    verticesCount = n;
+    priorityQueueFactory = graph.priorityQueueFactory;
+    openSnapshots = null;
+    linkedRows = null;
+    source = graph.source == null ? graph : graph.source;
+  }
+
+  /**
+   * Sets the priority queue used by dijkstra, AStar and prim (a binary heap by default).
+   * For instance, for integer weights not larger than C, a bucket queue can be used with
+   * {@code graph.setPriorityQueueFactory(n -> new DialHeap(n, C))}.
+   *
+   * @param priorityQueueFactory Creates a queue for keys in [0, n), given n.
+   */
+  public void setPriorityQueueFactory(IntFunction<IndexedPriorityQueue> priorityQueueFactory) {
+    this.priorityQueueFactory = Objects.requireNonNull(priorityQueueFactory);
+  }
+
+  /**
+   * @return An unmodifiable list, sorted, shared between calls until a vertex is added.
+   */
   @Override
   public List<Vertex<T>> getVertices() {
-    if (vertices == null) {
-      vertices = new ArrayList<>(adjList.keySet());
-      Collections.sort(vertices);
+    long version = verticesVersion.get();
+    Cached<List<Vertex<T>>> cached = vertices;
+    if (cached == null || cached.version != version) {
+      int n = verticesCount;
+      Table<T> t = table;
+      List<Vertex<T>> list = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        list.add(t.vertices[i]);
+      }
+      Collections.sort(list);
+      cached = vertices = new Cached<>(version, Collections.unmodifiableList(list));
     }
-    return vertices;
+    return cached.value;
   }
 
+  /**
+   * @return An unmodifiable list, sorted, shared between calls until an edge is added.
+   */
   @Override
   public List<Edge<T>> getEdges() {
-    if (edges == null) {
-      edges = adjList.values()
-        .stream()
-        .flatMap(e -> e.stream())
-        .collect(Collectors.toList());
-      Collections.sort(edges);
+    long version = edgesVersion.get();
+    Cached<List<Edge<T>>> cached = edges;
+    if (cached == null || cached.version != version) {
+      int n = verticesCount;
+      List<Edge<T>> list = new ArrayList<>(edgesSize());
+      for (int i = 0; i < n; i++) {
+        list.addAll(outRow(i).edges());
+      }
+      Collections.sort(list);
+      cached = edges = new Cached<>(version, Collections.unmodifiableList(list));
     }
-    return edges;
+    return cached.value;
   }
-  
+
   @Override
   public int size() {
-    return getVertices().size();
+    return verticesCount;
   }
 
   @Override
   public int edgesSize() {
-    return getEdges().size();
+    countRows();
+    return edgesCount.get();
   }
-  
+
+  /**
+   * @return An unmodifiable snapshot of the edges leaving v.
+   */
   @Override
   public List<Edge<T>> getEdgesFrom(Vertex<T> v) throws IllegalArgumentException {
-    if (!adjList.containsKey(v)) {
-      throw VERTEX_NOT_IN_GRAPH_EXCEPTION_SUPPLIER.get();
-    }
-    return adjList.get(v);
+    return outRow(vertexIndex(v)).edges();
   }
 
+  /**
+   * Edges entering a vertex, from the reverse index.
+   *
+   * @return A sorted copy of the incoming edges: O(d log d) for in-degree d.
+   */
   @Override
   public List<Edge<T>> getEdgesTo(Vertex<T> v) throws IllegalArgumentException {
-    if (!adjList.containsKey(v)) {
-      throw VERTEX_NOT_IN_GRAPH_EXCEPTION_SUPPLIER.get();
-    }
-    
-    List<Edge<T>> edgesToV = getEdges()
-      .stream()
-      .filter(e -> e.getDestination().equals(v))
-      .collect(Collectors.toList());
+    List<Edge<T>> edgesToV = new ArrayList<>(getIncomingEdges(v));
     Collections.sort(edgesToV);
     return edgesToV;
   }
 
+  /**
+   * Internal, unsorted view of the reverse index for a vertex.
+   */
+  private List<Edge<T>> getIncomingEdges(Vertex<T> v) throws IllegalArgumentException {
+    return inRow(vertexIndex(v)).edges();
+  }
+
+  private int vertexIndex(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    Integer index = lookup(v.getLabel());
+    if (index == null) {
+      throw VERTEX_NOT_IN_GRAPH_EXCEPTION_SUPPLIER.get();
+    }
+    return index;
+  }
+
   @Override
   public Optional<Edge<T>> getEdgeBetween(Vertex<T> v, Vertex<T> u)
       throws NullPointerException, IllegalArgumentException {
     if (!hasVertex(v) || !hasVertex(u)) {
       throw new IllegalArgumentException();
     }
-    return getEdgesFrom(v).stream()
-      .filter(e -> e.getDestination().equals(u))
-      .findFirst();
+    Row<T> row = outRow(indexOf(v));
+    int position = row.positionOf(indexOf(u));
+    return position == IndexedAlgorithms.NONE ? Optional.empty() : Optional.of(row.edges[position]);
   }
-  
+
   @Override
   public int inDegree(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
-    return getEdgesTo(v).size();
+    return inRow(vertexIndex(v)).size;
   }
-  
+
   @Override
   public int inDegree(String label) throws NullPointerException, IllegalArgumentException {
     return getVertex(label).map(v -> inDegree(v)).orElseThrow(VERTEX_NOT_IN_GRAPH_EXCEPTION_SUPPLIER);
@@ -231,46 +376,65 @@ public class SimpleGraph<T> implements GraphInternal<T> {
 
   @Override
   public int outDegree(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
-    return getEdgesFrom(v).size();
+    return outRow(vertexIndex(v)).size;
   }
-  
+
   @Override
   public int outDegree(String label) throws NullPointerException, IllegalArgumentException {
     return getVertex(label).map(v -> outDegree(v)).orElseThrow(VERTEX_NOT_IN_GRAPH_EXCEPTION_SUPPLIER);
   }
-  
+
   @Override
-  public synchronized Vertex<T> addVertex(String label) throws IllegalArgumentException {
-    if (labelToVertex.containsKey(label)) {
-      throw new IllegalArgumentException();
-    }
-    SimpleVertex<T> v = new SimpleVertex<>(label);
-    //Reset the lazily computed list
-    vertices = null;
-    //Ad a new adjacency list
-    adjList.put(v, new ArrayList<>());
-    labelToVertex.put(label, v);
-    return v;
+  public Vertex<T> addVertex(String label) throws IllegalArgumentException {
+    return addVertex(label, Optional.empty());
   }
 
   @Override
-  public synchronized Vertex<T> addVertex(String label, T value) throws IllegalArgumentException {
-    SimpleVertex<T> v = (SimpleVertex<T>) addVertex(label);
-    v.setValue(value);
-    return v;
+  public Vertex<T> addVertex(String label, T value) throws IllegalArgumentException {
+    return addVertex(label, Optional.of(value));
   }
 
   @Override
-  public synchronized Vertex<T> addVertex(Vertex<T> v) throws IllegalArgumentException {
-    return v.getValue()
-      .map(value -> addVertex(v.getLabel(), value))
-      .orElseGet(new Supplier<Vertex<T>>() {
+  public Vertex<T> addVertex(Vertex<T> v) throws IllegalArgumentException {
+    return addVertex(v.getLabel(), v.getValue());
+  }
 
-        @Override
-        public Vertex<T> get() {
-          return addVertex(v.getLabel());
-        }
-      });
+  private Vertex<T> addVertex(String label, Optional<T> maybeValue) throws IllegalArgumentException {
+    checkWritable();
+    long stamp = lock.writeLock();
+    try {
+      if (labelToIndex.containsKey(label)) {
+        throw new IllegalArgumentException();
+      }
+      return insertVertex(label, maybeValue);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  //The write lock must be held
+  private Vertex<T> insertVertex(String label, Optional<T> maybeValue) {
+    SimpleVertex<T> v = new SimpleVertex<>(label);
+    maybeValue.ifPresent(v::setValue);
+    int n = verticesCount;
+    Table<T> t = table;
+    if (n == t.vertices.length) {
+      t = table = t.grow();
+    }
+    t.vertices[n] = v;
+    t.out.set(n, Row.empty());
+    t.in.set(n, Row.empty());
+    t.epochs.set(n, Row.PENDING);
+    synchronized (components) {
+      components.add();
+    }
+    verticesCount = n + 1;
+    //Tagged once published, like rows
+    t.epochs.set(n, epoch.get());
+    labelToIndex.put(label, n);
+    hash.addAndGet(IndexedAlgorithms.elementHash(v.hashCode()));
+    verticesVersion.incrementAndGet();
+    return v;
   }
 
   @Override
@@ -280,47 +444,53 @@ public class SimpleGraph<T> implements GraphInternal<T> {
 
   @Override
   public Vertex<T> getOrAddVertex(String label, Optional<T> maybeValue) {
-    return getVertex(label).orElseGet(new Supplier<Vertex<T>>() {
-      @Override
-      public Vertex<T> get() {
-        return maybeValue
-          .map(value -> addVertex(label, value))
-          .orElse(addVertex(label));
-      }
-    });
+    checkWritable();
+    Optional<Vertex<T>> existing = getVertex(label);
+    if (existing.isPresent()) {
+      return existing.get();
+    }
+    long stamp = lock.writeLock();
+    try {
+      //Another thread might have added it in the meantime
+      return getVertex(label).orElseGet(() -> insertVertex(label, maybeValue));
+    } finally {
+      lock.unlockWrite(stamp);
+    }
   }
-  
+
   @Override
   public Optional<Vertex<T>> getVertex(String label) {
-    Vertex<T> v = labelToVertex.get(label);
-    return v == null ? Optional.empty() : Optional.of(v);
+    Integer index = lookup(label);
+    return index == null ? Optional.empty() : Optional.of(vertexAt(index));
   }
-  
+
   @Override
   public boolean hasVertex(String label) {
-    return labelToVertex.containsKey(label);
+    return lookup(label) != null;
   }
-  
+
+  //Snapshots share the map with the live graph, but ignore vertices added after them
+  private Integer lookup(String label) throws NullPointerException {
+    Integer index = labelToIndex.get(label);
+    return index == null || index >= verticesCount ? null : index;
+  }
+
   @Override
   public boolean hasVertex(Vertex<T> v) {
     return hasVertex(v.getLabel());
   }
-  
+
+  /**
+   * Adds an edge, or replaces the edge between the same vertices (in the same position
+   * of the adjacency lists). Only the stripes of its endpoints are locked, so edges
+   * between different vertices can be added by different threads at the same time.
+   */
   @Override
-  public synchronized Edge<T> addEdge(Edge<T> e) throws NullPointerException, IllegalArgumentException {
+  public Edge<T> addEdge(Edge<T> e) throws NullPointerException, IllegalArgumentException {
+    checkWritable();
     if (e == null) {
-      throw new NullPointerException("Edge in input is null");      
-    }
-    Vertex<T> source = e.getSource();
-    Vertex<T> destination = e.getDestination();
-    
-    if (!(adjList.containsKey(source) && adjList.containsKey(destination))) {
-      throw new IllegalArgumentException("Both source and destination must be in the graph");
+      throw new NullPointerException("Edge in input is null");
     }
-    
-    //Reset the lazy list of edges
-    edges = null;
-    
     //Makes sure it's a SimpleEdge (or a sub type of a SimpleEdge)
     SimpleEdge<T> newEdge;
     if (e instanceof SimpleEdge) {
@@ -328,32 +498,221 @@ public class SimpleGraph<T> implements GraphInternal<T> {
     } else {
       newEdge = new SimpleEdge<T>(e);
     }
-    
-    List<Edge<T>> adj = getEdgesFrom(source);
+    double weight = newEdge.getWeight();
 
-    //Check if an edge between these vertices is already in the graph
-    Optional<Edge<T>> maybeEdge = adj.stream()
-      .filter(edge -> edge.getDestination()
-      .equals(destination))
-      .findAny();
-    
-    return maybeEdge.map(oldEdge -> {
-      //Replace the old edge
-      adj.remove(oldEdge);
-      adj.add(newEdge);
+    long stamp = lock.readLock();
+    try {
+      Integer i = labelToIndex.get(e.getSource().getLabel());
+      Integer j = labelToIndex.get(e.getDestination().getLabel());
+      if (i == null || j == null) {
+        throw new IllegalArgumentException("Both source and destination must be in the graph");
+      }
+      //Stripes are always locked in the same order
+      Object first = stripes[Math.min(i % STRIPES, j % STRIPES)];
+      Object second = stripes[Math.max(i % STRIPES, j % STRIPES)];
+      synchronized (first) {
+        synchronized (second) {
+          Table<T> t = table;
+          Row<T> out = t.out.get(i);
+          Row<T> in = t.in.get(j);
+          int asymmetryBefore = asymmetry(t, i, j);
+          int position = out.positionOf(j);
+          if (position == IndexedAlgorithms.NONE) {
+            t.out.set(i, out.append(j, weight, newEdge));
+            t.in.set(j, in.append(i, weight, newEdge));
+            edgesCount.incrementAndGet();
+            hash.addAndGet(IndexedAlgorithms.elementHash(newEdge.hashCode()));
+            synchronized (components) {
+              components.union(i, j);
+            }
+          } else {
+            //Same endpoints, so the hash doesn't change
+            t.out.set(i, out.replace(position, weight, newEdge));
+            t.in.set(j, in.replace(in.positionOf(i), weight, newEdge));
+          }
+          tag(t, 2 * i, 2 * j + 1);
+          asymmetricEdges.addAndGet(asymmetry(t, i, j) - asymmetryBefore);
+          edgesVersion.incrementAndGet();
+        }
+      }
       return newEdge;
-    }).orElseGet(new Supplier<SimpleEdge<T>>() {
-      //Just add the new edge to the list
-      @Override
-      public SimpleEdge<T> get() {
-        adj.add(newEdge);
-        return newEdge;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Adds a batch of edges, with the same result as calling addEdge for each of them in
+   * order (the last weight wins for repeated pairs of vertices).
+   * The write lock is taken once: the batch is grouped by source and target with two
+   * counting sorts, in O(V + B) for B edges, and then the lists of edges leaving (and
+   * entering) different vertices are rebuilt in parallel, each one once. Nothing is
+   * added if any edge is invalid.
+   */
+  @Override
+  public void addEdges(Collection<? extends Edge<T>> batch) throws NullPointerException, IllegalArgumentException {
+    checkWritable();
+    int m = batch.size();
+    int[] sources = new int[m];
+    int[] targets = new int[m];
+    List<SimpleEdge<T>> newEdges = new ArrayList<>(m);
+    long stamp = lock.writeLock();
+    try {
+      int n = verticesCount;
+      for (Edge<T> e : batch) {
+        if (e == null) {
+          throw new NullPointerException("Edge in input is null");
+        }
+        Integer i = labelToIndex.get(e.getSource().getLabel());
+        Integer j = labelToIndex.get(e.getDestination().getLabel());
+        if (i == null || j == null) {
+          throw new IllegalArgumentException("Both source and destination must be in the graph");
+        }
+        sources[newEdges.size()] = i;
+        targets[newEdges.size()] = j;
+        newEdges.add(e instanceof SimpleEdge ? (SimpleEdge<T>) e : new SimpleEdge<T>(e));
       }
-    });
+      if (m == 0) {
+        return;
+      }
+      Table<T> t = table;
+
+      //By source, then by target, then in input order: only the last of each run is kept
+      int[] order = countingSort(sources, countingSort(targets, IntStream.range(0, m).toArray(), n), n);
+      int[] unique = IntStream.range(0, m)
+        .filter(k -> k == m - 1 || sources[order[k]] != sources[order[k + 1]] || targets[order[k]] != targets[order[k + 1]])
+        .map(k -> order[k])
+        .toArray();
+      //Whether each edge kept replaces one already in the graph
+      boolean[] isReplacement = new boolean[m];
+      //Pairs of distinct vertices connected by the batch, as (smaller << 32 | larger)
+      long[] pairs = Arrays.stream(unique)
+        .filter(k -> sources[k] != targets[k])
+        .mapToLong(k -> ((long) Math.min(sources[k], targets[k]) << 32) | Math.max(sources[k], targets[k]))
+        .distinct()
+        .toArray();
+      int asymmetryBefore = asymmetry(t, pairs);
+
+      //The new rows are only published once they are all built, so that snapshots
+      //reading them don't wait for their tags meanwhile
+      int[] bySource = segments(unique, sources);
+      int[] byTargetOrder = countingSort(targets, unique, n);
+      int[] byTarget = segments(byTargetOrder, targets);
+      int outRows = bySource.length - 1;
+      @SuppressWarnings("unchecked")
+      Row<T>[] rows = (Row<T>[]) new Row<?>[outRows + byTarget.length - 1];
+      int[] keys = new int[rows.length];
+      IntStream.range(0, outRows)
+        .parallel()
+        .forEach(r -> {
+          int i = sources[unique[bySource[r]]];
+          RowBuilder<T> row = new RowBuilder<>(t.out.get(i), bySource[r + 1] - bySource[r]);
+          for (int q = bySource[r]; q < bySource[r + 1]; q++) {
+            int k = unique[q];
+            isReplacement[k] = row.put(targets[k], newEdges.get(k).getWeight(), newEdges.get(k));
+          }
+          rows[r] = row.build();
+          keys[r] = 2 * i;
+        });
+
+      //Same for the lists of edges entering each target
+      IntStream.range(0, byTarget.length - 1)
+        .parallel()
+        .forEach(r -> {
+          int j = targets[byTargetOrder[byTarget[r]]];
+          RowBuilder<T> row = new RowBuilder<>(t.in.get(j), byTarget[r + 1] - byTarget[r]);
+          for (int q = byTarget[r]; q < byTarget[r + 1]; q++) {
+            int k = byTargetOrder[q];
+            row.put(sources[k], newEdges.get(k).getWeight(), newEdges.get(k));
+          }
+          rows[outRows + r] = row.build();
+          keys[outRows + r] = 2 * j + 1;
+        });
+
+      for (int r = 0; r < rows.length; r++) {
+        int i = keys[r] >> 1;
+        if ((keys[r] & 1) == 0) {
+          t.out.set(i, rows[r]);
+        } else {
+          t.in.set(i, rows[r]);
+        }
+      }
+      tag(t, keys);
+
+      int[] added = Arrays.stream(unique)
+        .filter(k -> !isReplacement[k])
+        .toArray();
+      edgesCount.addAndGet(added.length);
+      hash.addAndGet(Arrays.stream(added)
+        .parallel()
+        .map(k -> IndexedAlgorithms.elementHash(newEdges.get(k).hashCode()))
+        .sum());
+      asymmetricEdges.addAndGet(asymmetry(t, pairs) - asymmetryBefore);
+      synchronized (components) {
+        for (int k : added) {
+          components.union(sources[k], targets[k]);
+        }
+      }
+      edgesVersion.incrementAndGet();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  //Stable counting sort of order by keys[order[k]], with keys in [0, n)
+  private static int[] countingSort(int[] keys, int[] order, int n) {
+    int[] starts = new int[n + 1];
+    for (int k : order) {
+      starts[keys[k] + 1]++;
+    }
+    for (int key = 0; key < n; key++) {
+      starts[key + 1] += starts[key];
+    }
+    int[] sorted = new int[order.length];
+    for (int k : order) {
+      sorted[starts[keys[k]]++] = k;
+    }
+    return sorted;
+  }
+
+  /**
+   * Edges between u and v that have no edge back with the same weight: 0, 1 or 2 (0 for
+   * self loops). Both u's and v's stripes, or the write lock, must be held.
+   */
+  private static <T> int asymmetry(Table<T> t, int u, int v) {
+    if (u == v) {
+      return 0;
+    }
+    Row<T> fromU = t.out.get(u);
+    Row<T> fromV = t.out.get(v);
+    int forward = fromU.positionOf(v);
+    int backward = fromV.positionOf(u);
+    if (forward == IndexedAlgorithms.NONE || backward == IndexedAlgorithms.NONE) {
+      return forward == backward ? 0 : 1;
+    }
+    return fromU.weights[forward] == fromV.weights[backward] ? 0 : 2;
+  }
+
+  private static <T> int asymmetry(Table<T> t, long[] pairs) {
+    int total = 0;
+    for (long pair : pairs) {
+      total += asymmetry(t, (int) (pair >>> 32), (int) pair);
+    }
+    return total;
+  }
+
+  //Boundaries of the runs of equal keys[order[k]]: the last entry is order.length
+  private static int[] segments(int[] order, int[] keys) {
+    int[] boundaries = IntStream.range(0, order.length)
+      .filter(k -> k == 0 || keys[order[k]] != keys[order[k - 1]])
+      .toArray();
+    int[] result = Arrays.copyOf(boundaries, boundaries.length + 1);
+    result[boundaries.length] = order.length;
+    return result;
   }
 
   @Override
-  public synchronized Edge<T> addEdge(Vertex<T> source, Vertex<T> destination) throws IllegalArgumentException {
+  public Edge<T> addEdge(Vertex<T> source, Vertex<T> destination) throws IllegalArgumentException {
     if (source == null || destination == null) {
       throw new NullPointerException("Source and destination must be valid vertices");
     }
@@ -361,156 +720,645 @@ public class SimpleGraph<T> implements GraphInternal<T> {
   }
 
   @Override
-  public synchronized Edge<T> addEdge(Vertex<T> source, Vertex<T> destination, double weight) throws NullPointerException, IllegalArgumentException {
+  public Edge<T> addEdge(Vertex<T> source, Vertex<T> destination, double weight) throws NullPointerException, IllegalArgumentException {
     if (source == null || destination == null) {
       throw new NullPointerException("Source and destination must be valid vertices");
     }
     return addEdge(new SimpleEdge<T>(source, destination, weight));
   }
-  
+
+  /* IndexedGraph */
+
   @Override
-  public Set<Vertex<T>> getNeighbours(Vertex<T> v) throws IllegalArgumentException {
-    return getEdgesFrom(v)
-      .parallelStream()
-      .map(e -> e.getDestination())
-      .filter(u -> !u.equals(v))
-      .collect(Collectors.toSet());
+  public int indexOf(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    return vertexIndex(Objects.requireNonNull(v));
   }
-  
+
   @Override
-  public Set<Vertex<T>> getAdjacentVertices(Vertex<T> v) throws IllegalArgumentException {
-    Set<Vertex<T>> neighours = getNeighbours(v);
-    neighours.addAll(getEdgesTo(v)
-      .parallelStream()
-      .map(e -> e.getSource())
-      .filter(u -> !u.equals(v))
-      .collect(Collectors.toSet()));
-    return neighours;
+  public Vertex<T> vertexAt(int index) {
+    return table.vertices[index];
   }
-  
+
   @Override
-  public String toString() {
-    Map<Vertex<T>, HashSet<Vertex<T>>> neighbours = getVertices()
-      .stream()
-      .collect(Collectors.toMap(Function.identity(),
-          v -> new HashSet<Vertex<T>>(this.getNeighbours(v))));
+  public int outDegreeAt(int index) {
+    return outRow(index).size;
+  }
 
-    Set<String> edges = getVertices().stream()
-      .map(v -> {
-        List<Edge<T>> outgoing = this.getEdgesFrom(v);
-        List<Edge<T>> ingoing = this.getEdgesTo(v);
-        Set<String> result = new LinkedHashSet<String>();
-        if (outgoing.isEmpty() && ingoing.isEmpty()) {
-          //Vertex with no in-going or out-going edges
-          result.add(v.getLabel());
-        } else {
-          outgoing.forEach(e -> {
-            Vertex<T> u = e.getDestination();
-            Vertex<T> src;
-            Vertex<T> dst;
-            String edge;
-            String weight = e.getWeight() != 0.0 ? "/" + e.getWeight() : "";
-            
-            if (neighbours.get(u).contains(v) && 
-                e.getWeight() == getEdgeBetween(u, v).get().getWeight()) {
-              edge = UNDIRECTED_EDGE_SYMBOL;
-              if (u.compareTo(v) < 0) {
-                src = u;
-                dst = v;
-              } else {
-                src = v;
-                dst = u;
-              }
-            } else {
-              edge = DIRECTED_EDGE_SYMBOL;
-              src = v;
-              dst = u;
-            }
-            
-            result.add(String.format("%s %s %s%s", src, edge, dst, weight));
-          });
-        }
-        return result;
-      })
-      .reduce((set, subset) -> {
-        set.addAll(subset);
-        return set;
-      }).orElse(new HashSet<>());
-    return String.format("[%s]", String.join(", ", edges));
+  @Override
+  public int targetAt(int index, int k) {
+    return outRow(index).vertices[k];
+  }
+
+  @Override
+  public double weightAt(int index, int k) {
+    return outRow(index).weights[k];
+  }
+
+  @Override
+  public int inDegreeAt(int index) {
+    return inRow(index).size;
+  }
+
+  @Override
+  public int sourceAt(int index, int k) {
+    return inRow(index).vertices[k];
+  }
+
+  @Override
+  public double inWeightAt(int index, int k) {
+    return inRow(index).weights[k];
   }
 
+  /* Snapshots */
+
   /**
-   * 
-   * @return
-   * @throws NullPointerException
-   * @throws IllegalArgumentException
+   * Takes a consistent, read only view of this graph in O(1), without locking: writers
+   * can go on adding vertices and edges, which the snapshot won't see.
+   * While a snapshot is open, the lists of edges it reads are kept when they are replaced,
+   * so it should be closed as soon as it's not needed anymore.
    */
   @Override
-  public StructureResult<T> dfs() {
-    Map<Vertex<T>, Integer> entryTimes = new HashMap<>();
-    Map<Vertex<T>, Integer> exitTimes = new HashMap<>();
-    int time = 0;
-    Wrapper<Boolean> isAcyclic = new Wrapper<>(true);
-    for (Vertex<T> v: getVertices()) {
-      if (!entryTimes.containsKey(v)) {
-        entryTimes.put(v, time);
-        time = 1 + dfs(v, entryTimes, exitTimes, isAcyclic);
-      }
+  public GraphSnapshot<T> snapshot() {
+    if (source != null) {
+      //The live graph keeps the rows of this snapshot until it's closed
+      source.registerIfOpen(this);
+      return new Snapshot<>(this, epoch.get());
     }
-    
-    return new StructureResult<T>() {
-      @Override
-      public Boolean isAcyclic() {
-        return isAcyclic.getValue();
-      }
-
-      @Override
-      public Map<Vertex<T>, Integer> exitTimes() {
-        return exitTimes;
-      }
-    };
+    long snapshotEpoch = epoch.get();
+    register(snapshotEpoch);
+    //Once the epoch has moved on, a writer may have pruned rows of the older epoch
+    //before it could see it registered: registering must happen first
+    while (epoch.get() != snapshotEpoch) {
+      release(snapshotEpoch);
+      snapshotEpoch = epoch.get();
+      register(snapshotEpoch);
+    }
+    //Whether this or another snapshot moves it on, rows tagged from now on are newer
+    epoch.compareAndSet(snapshotEpoch, snapshotEpoch + 1);
+    return new Snapshot<>(this, snapshotEpoch);
   }
-  
+
   /**
-   * 
-   * @param source
-   * @return
-   * @throws NullPointerException
-   * @throws IllegalArgumentException
+   * Runs a query on a consistent view of this graph. The index based algorithms read the
+   * number of vertices once, and expect every edge they find to stay within it, which a
+   * vertex and an edge to it added meanwhile would break: on the live graph, queries run
+   * on a snapshot, closed as soon as they return. A snapshot is consistent already.
    */
-  @Override
-  public StructureResult<T> dfs(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
-    Map<Vertex<T>, Integer> entryTimes = new HashMap<>();
-    Map<Vertex<T>, Integer> exitTimes = new HashMap<>();
-    final Wrapper<Boolean> isAcyclic = new Wrapper<>(true);
-    entryTimes.put(source,  0);
-    dfs(source, entryTimes, exitTimes, isAcyclic);
-    return new StructureResult<T>() {
-      @Override
-      public Boolean isAcyclic() {
-        return isAcyclic.getValue();
-      }
+  private <R> R read(Function<SimpleGraph<T>, R> query) {
+    if (isSnapshot()) {
+      return query.apply(this);
+    }
+    try (GraphSnapshot<T> snapshot = snapshot()) {
+      return query.apply((SimpleGraph<T>) snapshot);
+    }
+  }
 
-      @Override
-      public Map<Vertex<T>, Integer> exitTimes() {
-        return exitTimes;
+  /**
+   * Same as read(), for lazy queries: on the live graph, the snapshot stays open while the
+   * stream is consumed, and it's closed once the stream, and every part it was split
+   * into, is exhausted, or when the stream is closed.
+   */
+  private <R> Stream<R> stream(Function<SimpleGraph<T>, Stream<R>> query) {
+    if (isSnapshot()) {
+      return query.apply(this);
+    }
+    GraphSnapshot<T> snapshot = snapshot();
+    Stream<R> results;
+    try {
+      results = query.apply((SimpleGraph<T>) snapshot);
+    } catch (RuntimeException e) {
+      snapshot.close();
+      throw e;
+    }
+    Spliterator<R> closing = new ClosingSpliterator<>(results.spliterator(), snapshot, new AtomicInteger(1));
+    return StreamSupport.stream(closing, results.isParallel()).onClose(snapshot::close);
+  }
+
+  private boolean isSnapshot() {
+    return source != null;
+  }
+
+  /**
+   * Registers a new snapshot of the same epoch as snapshot, unless snapshot is closed.
+   * snapshot is only released after it's marked as closed: if it isn't once the new one
+   * is registered, its rows have been kept all along.
+   *
+   * @throws IllegalStateException If snapshot has been closed.
+   */
+  private void registerIfOpen(SimpleGraph<T> snapshot) throws IllegalStateException {
+    long snapshotEpoch = snapshot.epoch.get();
+    register(snapshotEpoch);
+    if (snapshot.closed) {
+      release(snapshotEpoch);
+      snapshot.checkOpen();
+    }
+  }
+
+  private void register(long snapshotEpoch) {
+    openSnapshots.merge(snapshotEpoch, 1, Integer::sum);
+  }
+
+  /**
+   * Once the last open snapshot is closed, prunes the rows that were linked to older
+   * ones while snapshots were open: only those, not every vertex.
+   */
+  private void release(long snapshotEpoch) {
+    openSnapshots.computeIfPresent(snapshotEpoch, (e, count) -> count == 1 ? null : count - 1);
+    if (!openSnapshots.isEmpty()) {
+      return;
+    }
+    Table<T> t = table;
+    List<Integer> stillLinked = new ArrayList<>();
+    for (Iterator<Integer> keys = linkedRows.iterator(); keys.hasNext(); ) {
+      int key = keys.next();
+      keys.remove();
+      if (prune(row(t, key))) {
+        //A new snapshot, or a writer still tagging the row
+        stillLinked.add(key);
       }
-    };
+    }
+    linkedRows.addAll(stillLinked);
+  }
+
+  /**
+   * Tags the rows a writer has just published with the current epoch, and prunes the
+   * rows they replaced. Called once all of them are published, before the writer
+   * releases its locks.
+   *
+   * @param keys The rows, as in linkedRows.
+   */
+  private void tag(Table<T> t, int... keys) {
+    long published = epoch.get();
+    for (int key : keys) {
+      row(t, key).epoch = published;
+    }
+    for (int key : keys) {
+      if (prune(row(t, key))) {
+        linkedRows.add(key);
+      }
+    }
+  }
+
+  private static <T> Row<T> row(Table<T> t, int key) {
+    return (key & 1) == 0 ? t.out.get(key >> 1) : t.in.get(key >> 1);
+  }
+
+  /**
+   * Unlinks the rows older than head that no open snapshot reads. A row is needed iff an
+   * open snapshot is between its epoch and the epoch of the newer row: snapshots
+   * registered later read head, or the rows newer than it.
+   *
+   * @return Whether head still links to older rows.
+   */
+  private boolean prune(Row<T> head) {
+    long newer = head.epoch;
+    if (newer == Row.PENDING) {
+      //Its writer prunes it once it's tagged
+      return true;
+    }
+    Row<T> kept = head;
+    if (!openSnapshots.isEmpty()) {
+      for (Row<T> row = head.previous; row != null; row = row.previous) {
+        Long reader = openSnapshots.ceilingKey(row.epoch);
+        if (reader != null && reader < newer) {
+          kept.previous = row;
+          kept = row;
+        }
+        newer = row.epoch;
+      }
+    }
+    if (kept.previous != null) {
+      kept.previous = null;
+    }
+    return head.previous != null;
+  }
+
+  private Row<T> outRow(int index) {
+    return source == null ? table.out.get(index) : asOfEpoch(source.table.out.get(index));
+  }
+
+  private Row<T> inRow(int index) {
+    return source == null ? table.in.get(index) : asOfEpoch(source.table.in.get(index));
+  }
+
+  //Whether the vertex at index was added after this snapshot's epoch
+  private boolean publishedAfter(AtomicLongArray epochs, int index) {
+    long published;
+    while ((published = epochs.get(index)) == Row.PENDING) {
+      //Its writer tags it right after adding it
+      Thread.yield();
+    }
+    return published > epoch.get();
+  }
+
+  private Row<T> asOfEpoch(Row<T> row) throws IllegalStateException {
+    checkOpen();
+    long snapshotEpoch = epoch.get();
+    while (true) {
+      long published = row.epoch;
+      if (published == Row.PENDING) {
+        //Its writer tags it as soon as all its rows are published
+        Thread.yield();
+      } else if (published > snapshotEpoch) {
+        row = row.previous;
+      } else {
+        return row;
+      }
+    }
+  }
+
+  /**
+   * Counts a snapshot's edges, and computes its hash and asymmetric edges, from its own
+   * rows, once: the live graph's counters may include edges tagged after its epoch.
+   * On the live graph, the counters are always up to date.
+   */
+  private void countRows() {
+    if (source == null || counted) {
+      return;
+    }
+    synchronized (this) {
+      if (counted) {
+        return;
+      }
+      int n = verticesCount;
+      int edgesTotal = 0;
+      int hashTotal = 0;
+      //Weights of the edges u->v, by (u << 32 | v), for u != v
+      Map<Long, Double> weights = new HashMap<>();
+      for (int i = 0; i < n; i++) {
+        hashTotal += IndexedAlgorithms.elementHash(vertexAt(i).hashCode());
+        Row<T> row = outRow(i);
+        edgesTotal += row.size;
+        for (int k = 0; k < row.size; k++) {
+          hashTotal += IndexedAlgorithms.elementHash(row.edges[k].hashCode());
+          if (row.vertices[k] != i) {
+            weights.put(((long) i << 32) | row.vertices[k], row.weights[k]);
+          }
+        }
+      }
+      int asymmetric = 0;
+      for (Map.Entry<Long, Double> e : weights.entrySet()) {
+        long pair = e.getKey();
+        Double back = weights.get((pair << 32) | (pair >>> 32));
+        if (back == null || back.doubleValue() != e.getValue().doubleValue()) {
+          asymmetric += 1;
+        }
+      }
+      edgesCount.set(edgesTotal);
+      hash.set(hashTotal);
+      asymmetricEdges.set(asymmetric);
+      counted = true;
+    }
+  }
+
+  private void checkOpen() throws IllegalStateException {
+    if (closed) {
+      throw new IllegalStateException("The snapshot has been closed");
+    }
+  }
+
+  private void checkWritable() throws UnsupportedOperationException {
+    if (source != null) {
+      throw new UnsupportedOperationException("Snapshots can't be modified");
+    }
+  }
+
+  private synchronized void closeSnapshot() {
+    if (!closed) {
+      closed = true;
+      source.release(epoch.get());
+    }
+  }
+
+  /**
+   * A read only view of a SimpleGraph, as it was when it was taken.
+   */
+  private static final class Snapshot<T> extends SimpleGraph<T> implements GraphSnapshot<T> {
+
+    private Snapshot(SimpleGraph<T> graph, long snapshotEpoch) {
+      super(graph, snapshotEpoch);
+    }
+
+    @Override
+    public void close() {
+      super.closeSnapshot();
+    }
+  }
+
+  /**
+   * Closes a snapshot once all the parts of a stream reading it are exhausted.
+   */
+  private static final class ClosingSpliterator<R> implements Spliterator<R> {
+    private final Spliterator<R> results;
+    private final GraphSnapshot<?> snapshot;
+    //Parts not exhausted yet, shared by all the parts split from the same stream
+    private final AtomicInteger open;
+    private boolean exhausted = false;
+
+    ClosingSpliterator(Spliterator<R> results, GraphSnapshot<?> snapshot, AtomicInteger open) {
+      this.results = results;
+      this.snapshot = snapshot;
+      this.open = open;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+      if (!exhausted && results.tryAdvance(action)) {
+        return true;
+      }
+      exhausted();
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super R> action) {
+      if (!exhausted) {
+        results.forEachRemaining(action);
+        exhausted();
+      }
+    }
+
+    private void exhausted() {
+      if (!exhausted) {
+        exhausted = true;
+        if (open.decrementAndGet() == 0) {
+          snapshot.close();
+        }
+      }
+    }
+
+    @Override
+    public Spliterator<R> trySplit() {
+      Spliterator<R> prefix = exhausted ? null : results.trySplit();
+      if (prefix == null) {
+        return null;
+      }
+      open.incrementAndGet();
+      return new ClosingSpliterator<>(prefix, snapshot, open);
+    }
+
+    @Override
+    public long estimateSize() {
+      return results.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return results.characteristics();
+    }
+  }
+
+  /**
+   * Vertices by index, the epochs they were added in, and the rows of the edges leaving
+   * and entering each of them.
+   * When it's full, the table is copied into a larger one (under the write lock).
+   */
+  private static final class Table<T> {
+    private final SimpleVertex<T>[] vertices;
+    private final AtomicLongArray epochs;
+    private final AtomicReferenceArray<Row<T>> out;
+    private final AtomicReferenceArray<Row<T>> in;
+
+    @SuppressWarnings("unchecked")
+    Table(int capacity) {
+      vertices = (SimpleVertex<T>[]) new SimpleVertex<?>[capacity];
+      epochs = new AtomicLongArray(capacity);
+      out = new AtomicReferenceArray<>(capacity);
+      in = new AtomicReferenceArray<>(capacity);
+    }
+
+    Table<T> grow() {
+      Table<T> larger = new Table<>(2 * vertices.length);
+      System.arraycopy(vertices, 0, larger.vertices, 0, vertices.length);
+      for (int i = 0; i < vertices.length; i++) {
+        larger.epochs.set(i, epochs.get(i));
+        larger.out.set(i, out.get(i));
+        larger.in.set(i, in.get(i));
+      }
+      return larger;
+    }
+  }
+
+  /**
+   * Edges leaving (or entering) a vertex, with the indices of their other endpoints and
+   * their weights, in the first size entries of the arrays.
+   * A row is never changed once published: appending writes past the end of the arrays
+   * (shared with the previous row) and creates a longer row, while replacing an edge
+   * copies the arrays. Only its tag, once, and the link to the older rows change.
+   */
+  private static final class Row<T> {
+    //Epoch of the rows published, but not tagged yet
+    static final long PENDING = Long.MAX_VALUE;
+    private static final Row<?> EMPTY = new Row<>(new int[0], new double[0], new Edge<?>[0], 0, null);
+
+    private final int[] vertices;
+    private final double[] weights;
+    private final Edge<T>[] edges;
+    private final int size;
+    private volatile long epoch;
+    private volatile Row<T> previous;
+
+    //A new row links to the one it replaces, until it's pruned
+    @SuppressWarnings("unchecked")
+    private Row(int[] vertices, double[] weights, Edge<?>[] edges, int size, Row<T> previous) {
+      this.vertices = vertices;
+      this.weights = weights;
+      this.edges = (Edge<T>[]) edges;
+      this.size = size;
+      this.epoch = previous == null ? 0 : PENDING;
+      this.previous = previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Row<T> empty() {
+      return (Row<T>) EMPTY;
+    }
+
+    int positionOf(int v) {
+      for (int k = 0; k < size; k++) {
+        if (vertices[k] == v) {
+          return k;
+        }
+      }
+      return IndexedAlgorithms.NONE;
+    }
+
+    List<Edge<T>> edges() {
+      return Collections.unmodifiableList(Arrays.asList(edges).subList(0, size));
+    }
+
+    //Only called on the latest row of a vertex, so the entries past size are free
+    Row<T> append(int v, double weight, Edge<T> e) {
+      int[] newVertices = vertices;
+      double[] newWeights = weights;
+      Edge<?>[] newEdges = edges;
+      if (size == vertices.length) {
+        int capacity = Math.max(2, 2 * size);
+        newVertices = Arrays.copyOf(vertices, capacity);
+        newWeights = Arrays.copyOf(weights, capacity);
+        newEdges = Arrays.copyOf(edges, capacity, Edge[].class);
+      }
+      newVertices[size] = v;
+      newWeights[size] = weight;
+      newEdges[size] = e;
+      return new Row<>(newVertices, newWeights, newEdges, size + 1, this);
+    }
+
+    Row<T> replace(int position, double weight, Edge<T> e) {
+      Row<T> copy = new Row<>(vertices.clone(), weights.clone(), edges.clone(), size, this);
+      copy.weights[position] = weight;
+      copy.edges[position] = e;
+      return copy;
+    }
+  }
+
+  /**
+   * Builds a new row from an existing one, adding or replacing edges in bulk.
+   */
+  private static final class RowBuilder<T> {
+    private final Row<T> replaced;
+    private final int[] vertices;
+    private final double[] weights;
+    private final Edge<?>[] edges;
+    private int size;
+    //Position of each vertex already in the row, built on the first lookup
+    private Map<Integer, Integer> positions;
+
+    RowBuilder(Row<T> row, int extra) {
+      replaced = row;
+      vertices = Arrays.copyOf(row.vertices, row.size + extra);
+      weights = Arrays.copyOf(row.weights, row.size + extra);
+      edges = Arrays.copyOf(row.edges, row.size + extra, Edge[].class);
+      size = row.size;
+    }
+
+    /**
+     * @return True iff an edge to (or from) v was already in the row.
+     */
+    boolean put(int v, double weight, Edge<T> e) {
+      if (positions == null) {
+        positions = new HashMap<>(2 * size);
+        for (int k = 0; k < size; k++) {
+          positions.put(vertices[k], k);
+        }
+      }
+      Integer position = positions.get(v);
+      if (position == null) {
+        vertices[size] = v;
+        weights[size] = weight;
+        edges[size] = e;
+        positions.put(v, size++);
+        return false;
+      }
+      weights[position] = weight;
+      edges[position] = e;
+      return true;
+    }
+
+    Row<T> build() {
+      return new Row<>(vertices, weights, edges, size, replaced);
+    }
+  }
+
+  private static final class Cached<L> {
+    private final long version;
+    private final L value;
+
+    Cached(long version, L value) {
+      this.version = version;
+      this.value = value;
+    }
+  }
+
+  @Override
+  public Set<Vertex<T>> getNeighbours(Vertex<T> v) throws IllegalArgumentException {
+    return getEdgesFrom(v)
+      .parallelStream()
+      .map(e -> e.getDestination())
+      .filter(u -> !u.equals(v))
+      .collect(Collectors.toSet());
   }
   
-  protected int dfs(Vertex<T> u, Map<Vertex<T>, Integer> entryTimes, Map<Vertex<T>, Integer> exitTimes, Wrapper<Boolean> isAcyclic) {
-    int time = entryTimes.get(u);
-    
-    for (Vertex<T> v: getNeighbours(u)) {
-      if (!entryTimes.containsKey(v)) {
-        entryTimes.put(v, time);
-        time = dfs(v, entryTimes, exitTimes, isAcyclic);        
-      } else if (!v.equals(u) && !exitTimes.containsKey(v)) {
-        isAcyclic.setValue(false);
+  @Override
+  public Set<Vertex<T>> getAdjacentVertices(Vertex<T> v) throws IllegalArgumentException {
+    Set<Vertex<T>> neighours = getNeighbours(v);
+    for (Edge<T> e : getIncomingEdges(v)) {
+      Vertex<T> u = e.getSource();
+      if (!u.equals(v)) {
+        neighours.add(u);
       }
     }
-    exitTimes.put(u, time + 1);
-    return time + 1;
+    return neighours;
+  }
+  
+  @Override
+  public String toString() {
+    if (!isSnapshot()) {
+      return read(g -> g.toString());
+    }
+    Map<Vertex<T>, HashSet<Vertex<T>>> neighbours = getVertices()
+      .stream()
+      .collect(Collectors.toMap(Function.identity(),
+          v -> new HashSet<Vertex<T>>(this.getNeighbours(v))));
+
+    Set<String> edges = getVertices().stream()
+      .map(v -> {
+        List<Edge<T>> outgoing = this.getEdgesFrom(v);
+        Set<String> result = new LinkedHashSet<String>();
+        if (outgoing.isEmpty() && inDegree(v) == 0) {
+          //Vertex with no in-going or out-going edges
+          result.add(v.getLabel());
+        } else {
+          outgoing.forEach(e -> {
+            Vertex<T> u = e.getDestination();
+            Vertex<T> src;
+            Vertex<T> dst;
+            String edge;
+            String weight = e.getWeight() != 0.0 ? "/" + e.getWeight() : "";
+            
+            if (neighbours.get(u).contains(v) && 
+                e.getWeight() == getEdgeBetween(u, v).get().getWeight()) {
+              edge = UNDIRECTED_EDGE_SYMBOL;
+              if (u.compareTo(v) < 0) {
+                src = u;
+                dst = v;
+              } else {
+                src = v;
+                dst = u;
+              }
+            } else {
+              edge = DIRECTED_EDGE_SYMBOL;
+              src = v;
+              dst = u;
+            }
+            
+            result.add(String.format("%s %s %s%s", src, edge, dst, weight));
+          });
+        }
+        return result;
+      })
+      .reduce((set, subset) -> {
+        set.addAll(subset);
+        return set;
+      }).orElse(new HashSet<>());
+    return String.format("[%s]", String.join(", ", edges));
+  }
+
+  @Override
+  public StructureResult<T> dfs() {
+    return read(g -> IndexedAlgorithms.dfs(g, IndexedAlgorithms.NONE));
+  }
+  
+  /**
+   * 
+   * @param source
+   * @return
+   * @throws NullPointerException
+   * @throws IllegalArgumentException
+   */
+  @Override
+  public StructureResult<T> dfs(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    return read(g -> IndexedAlgorithms.dfs(g, g.indexOf(source)));
   }
   
   /**
@@ -523,50 +1371,40 @@ public class SimpleGraph<T> implements GraphInternal<T> {
    */
   @Override
   public List<Vertex<T>> dfs(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
-    if (!hasVertex(target.getLabel())) {
-      throw new IllegalArgumentException("Target vertex doesn't belong to the graph");
-    }
-    return dfs(source, target, new HashSet<>());
-  }
-
-  protected List<Vertex<T>> dfs(Vertex<T> source, Vertex<T> target, Set<Vertex<T>> visited) {  
-    List<Vertex<T>> path = null;
-    visited.add(source);
-    if (source.equals(target)) {
-      path = new LinkedList<>();
-      path.add(source);
-    } else {
-      for (Vertex<T> v: getNeighbours(source)) {
-        if (!visited.contains(v)) {
-          path = dfs(v, target, visited);
-          if (path != null) {
-            path.add(0, source);
-            break;
-          }
-        }
-      }      
-    }
-    return path;
+    return read(g -> {
+      if (!g.hasVertex(target.getLabel())) {
+        throw new IllegalArgumentException("Target vertex doesn't belong to the graph");
+      }
+      return IndexedAlgorithms.dfsPath(g, g.indexOf(source), g.indexOf(target));
+    });
   }
   
   public List<Vertex<T>> topologicalOrder() {
-    StructureResult<T> result = dfs();
-    Map<Vertex<T>, Integer> exitTimes = result.exitTimes();
-    
-    Comparator<Vertex<T>> topologicalComparator = new Comparator<Vertex<T>>() {
-      @Override
-      public int compare(Vertex<T> o1, Vertex<T> o2) {
-        //Descending order
-        return exitTimes.get(o2).compareTo(exitTimes.get(o1));
-      }
-    };
-    
-    return getVertices()
-      .stream()
-      .sorted(topologicalComparator)
-      .collect(Collectors.toList());
+    return read(g -> IndexedAlgorithms.toVertices(g, IndexedAlgorithms.topologicalOrder(g)));
+  }
+
+  /**
+   * @return The index of target, or NONE when it's null or not in the graph,
+   *         in which case the search covers the whole graph and no path is returned.
+   */
+  private int targetIndex(Vertex<T> target) {
+    if (target == null) {
+      return IndexedAlgorithms.NONE;
+    }
+    Integer index = lookup(target.getLabel());
+    return index == null ? IndexedAlgorithms.NONE : index;
   }
 
+  /**
+   * @throws IllegalArgumentException If source doesn't belong to the graph.
+   */
+  private int sourceIndex(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    Integer index = lookup(source.getLabel());
+    if (index == null) {
+      throw new IllegalArgumentException("Source vertex doesn't belong to the graph");
+    }
+    return index;
+  }
   
   /**
    * 
@@ -577,7 +1415,7 @@ public class SimpleGraph<T> implements GraphInternal<T> {
    */  
   @Override
   public MinDistanceResult<T> bfs(Vertex<T> source) {
-    return AStar(source, v -> false, e -> 1.0, v -> 0.0);
+    return read(g -> IndexedAlgorithms.bfs(g, g.sourceIndex(source), IndexedAlgorithms.NONE));
   }
   
   /**
@@ -590,12 +1428,17 @@ public class SimpleGraph<T> implements GraphInternal<T> {
    */
   @Override
   public MinDistanceResult<T> bfs(Vertex<T> source, Vertex<T> target) {
-    if (!hasVertex(target.getLabel())) {
-      throw new IllegalArgumentException("Target vertex doesn't belong to the graph");
-    }
-    
-    MinDistanceResult<T> result = AStar(source, v -> v.equals(target), e -> 1.0, v -> 0.0);
-    return addPathToResult(source, target, result);
+    return read(g -> {
+      if (!g.hasVertex(target.getLabel())) {
+        throw new IllegalArgumentException("Target vertex doesn't belong to the graph");
+      }
+      return IndexedAlgorithms.bfs(g, g.sourceIndex(source), g.targetIndex(target));
+    });
+  }
+
+  @Override
+  public MinDistanceResult<T> bfsParallel(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    return read(g -> IndexedAlgorithms.parallelBfs(g, g.sourceIndex(source)));
   }
   
   /**
@@ -607,344 +1450,237 @@ public class SimpleGraph<T> implements GraphInternal<T> {
    */  
   @Override
   public MinDistanceResult<T> dijkstra(Vertex<T> source) {
-    return AStar(source, v -> false, e -> e.getWeight(), v -> 0.0);
+    return read(g -> IndexedAlgorithms.aStar(g, g.sourceIndex(source), IndexedAlgorithms.NONE, null, priorityQueueFactory));
+  }
+
+  /**
+   * 
+   * @param source
+   * @param target
+   * @return
+   * @throws NullPointerException
+   * @throws IllegalArgumentException
+   */  
+  @Override
+  public MinDistanceResult<T> dijkstra(Vertex<T> source, Vertex<T> target) {
+    return read(g -> IndexedAlgorithms.aStar(g, g.sourceIndex(source), g.targetIndex(target), null, priorityQueueFactory));
+  }
+
+  @Override
+  public MinDistanceResult<T> dijkstraParallel(Vertex<T> source, double delta) throws NullPointerException, IllegalArgumentException {
+    if (!(delta > 0)) {
+      throw new IllegalArgumentException("delta must be positive");
+    }
+    return read(g -> IndexedAlgorithms.deltaStepping(g, g.sourceIndex(source), delta));
+  }
+
+  /**
+   * 
+   * @param source
+   * @param target
+   * @param heuristic
+   * @return
+   * @throws NullPointerException
+   * @throws IllegalArgumentException
+   */
+  @Override
+  public MinDistanceResult<T> AStar(Vertex<T> source, Vertex<T> target, Function<Vertex<T>, Double> heuristic) {
+    return read(g -> IndexedAlgorithms.aStar(g, g.sourceIndex(source), g.targetIndex(target), heuristic, priorityQueueFactory));
+  }
+
+  /**
+   * @throws IllegalArgumentException If target doesn't belong to the graph.
+   */
+  private int requiredTargetIndex(Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    Integer index = lookup(target.getLabel());
+    if (index == null) {
+      throw new IllegalArgumentException("Target vertex doesn't belong to the graph");
+    }
+    return index;
+  }
+
+  @Override
+  public MinDistanceResult<T> bidirectionalDijkstra(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    return read(g -> IndexedAlgorithms.bidirectionalAStar(g, g.sourceIndex(source), g.requiredTargetIndex(target), null, priorityQueueFactory));
+  }
+
+  @Override
+  public MinDistanceResult<T> bidirectionalAStar(Vertex<T> source, Vertex<T> target, BiFunction<Vertex<T>, Vertex<T>, Double> heuristic) throws NullPointerException, IllegalArgumentException {
+    Objects.requireNonNull(heuristic);
+    return read(g -> IndexedAlgorithms.bidirectionalAStar(g, g.sourceIndex(source), g.requiredTargetIndex(target), heuristic, priorityQueueFactory));
+  }
+  
+  @Override
+  public Graph<T> prim() throws UnsupportedOperationException {
+    if (!isUndirected()) {
+      throw new UnsupportedOperationException("Prim is defined for undirected graphs only");
+    }
+    return read(g -> {
+      if (g.size() == 0) {
+        return null;
+      }
+      //The tree grown from any vertex spans the graph iff the graph is connected:
+      //no need to check connectivity upfront
+      Graph<T> mst = IndexedAlgorithms.prim(g, g.indexOf(g.getVertices().get(0)), priorityQueueFactory);
+      return mst.size() == g.size() ? mst : null;
+    });
+  }
+
+  @Override
+  public Graph<T> boruvka() throws UnsupportedOperationException {
+    if (!isUndirected()) {
+      throw new UnsupportedOperationException("Boruvka is defined for undirected graphs only");
+    }
+    //Rooted at the same vertex as prim()
+    return read(g -> g.size() == 0 ? null : IndexedAlgorithms.boruvka(g, g.indexOf(g.getVertices().get(0))));
+  }
+
+  @Override
+  public Graph<T> kruskal() throws UnsupportedOperationException {
+    return read(g -> {
+      Graph<T> forest = g.minimumSpanningForest();
+      return g.size() > 0 && forest.edgesSize() == g.size() - 1 ? forest : null;
+    });
+  }
+
+  @Override
+  public Graph<T> minimumSpanningForest() throws UnsupportedOperationException {
+    if (!isUndirected()) {
+      throw new UnsupportedOperationException("Kruskal is defined for undirected graphs only");
+    }
+    return read(g -> IndexedAlgorithms.kruskal(g));
+  }
+
+
+  @Override
+  public Set<List<Vertex<T>>> allAcyclicPaths(Vertex<T> source, Vertex<T> target)
+      throws NullPointerException, IllegalArgumentException {
+    return read(g -> g.acyclicPaths(source, target).collect(Collectors.toSet()));
+  }
+
+  @Override
+  public Set<List<Vertex<T>>> allCycles(Vertex<T> source)
+      throws NullPointerException, IllegalArgumentException {
+    return read(g -> g.cycles(source).collect(Collectors.toSet()));
   }
 
   /**
-   * 
-   * @param source
-   * @param target
-   * @return
-   * @throws NullPointerException
-   * @throws IllegalArgumentException
-   */  
+   * On the live graph, the stream reads a snapshot taken when it's created, released once
+   * the stream is exhausted: a stream that's not consumed entirely (for instance after
+   * limit() or findFirst()) should be closed, to release it.
+   */
   @Override
-  public MinDistanceResult<T> dijkstra(Vertex<T> source, Vertex<T> target) {
-    MinDistanceResult<T> result = AStar(source, v -> v.equals(target), e -> e.getWeight(), v -> 0.0);
-    return addPathToResult(source, target, result);
+  public Stream<List<Vertex<T>>> acyclicPaths(Vertex<T> source, Vertex<T> target) throws NullPointerException, IllegalArgumentException {
+    return stream(g -> IndexedAlgorithms.acyclicPaths(g, g.sourceIndex(source), g.requiredTargetIndex(target)));
   }
 
   /**
-   * 
-   * @param source
-   * @param target
-   * @param heuristic
-   * @return
-   * @throws NullPointerException
-   * @throws IllegalArgumentException
+   * Reads a snapshot of the live graph, like acyclicPaths.
    */
   @Override
-  public MinDistanceResult<T> AStar(Vertex<T> source, Vertex<T> target, Function<Vertex<T>, Double> heuristic) {
-    MinDistanceResult<T> result = AStar(source, v -> v.equals(target), e -> e.getWeight(), heuristic);
-    return addPathToResult(source, target, result);
+  public Stream<List<Vertex<T>>> cycles(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    return stream(g -> IndexedAlgorithms.cycles(g, g.sourceIndex(source)));
   }
 
   /**
-   * 
-   * @param source
-   * @param goalFound
-   * @param distance
-   * @param heuristic
-   * @return
+   * Reads a snapshot of the live graph, like acyclicPaths.
    */
-  protected MinDistanceResult<T> AStar(
-      Vertex<T> source, Predicate<Vertex<T>> goalFound, 
-      Function<Edge<T>, Double> distance, 
-      Function<Vertex<T>, Double> heuristic) {
-    if (!hasVertex(source.getLabel())) {
-      throw new IllegalArgumentException("Source vertex doesn't belong to the graph");
-    }
-    
-    int n = this.getVertices().size();
-    Map<Vertex<T>, Vertex<T>> predecessors = new HashMap<>(n);
-    Set<Vertex<T>> visited = new HashSet<>(n);
-    Map<Vertex<T>, Double> distances = new HashMap<>(n);
-    Queue<Vertex<T>> queue = initMinDistanceUtilities(n, source, predecessors, visited, distances, heuristic);
-    
-    while (!queue.isEmpty()) {
-      Vertex<T> v = queue.remove();
-      visited.add(v);
-      if (goalFound.test(v)) {
-        break;
-      }
-      //Invariant: v is contained in distances at this point
-      double dV = distances.get(v);
-      for (Edge<T> e: getEdgesFrom(v)) {
-        checkEdgeAndAddNodeToQueue(queue, e, dV, visited, distances, predecessors, distance);
-      }
-    }
-    
-    return wrapMinDistanceResults(predecessors, distances, null);
-  }
-  
-  private void checkEdgeAndAddNodeToQueue(
-      Queue<Vertex<T>> queue,
-      Edge<T> e,
-      Double dV,
-      Set<Vertex<T>> visited,
-      Map<Vertex<T>, Double> distances,
-      Map<Vertex<T>, Vertex<T>> predecessors,
-      Function<Edge<T>, Double> distance) {
-    Vertex<T> u = e.getDestination();
-    Vertex<T> v = e.getSource();
-    if (!visited.contains(u)) {
-      double dU = dV + distance.apply(e);
-      if (distances.getOrDefault(u, Double.POSITIVE_INFINITY) > dU) {
-        distances.put(u,  dU);
-        predecessors.put(u, v);
-        queue.remove(u);
-        queue.add(u);
-      }        
-    }
-  }
-  
-  private Queue<Vertex<T>> initMinDistanceUtilities(
-      int n,
-      Vertex<T> source,
-      Map<Vertex<T>, Vertex<T>> predecessors,
-      Set<Vertex<T>> visited,
-      Map<Vertex<T>, Double> distances,
-      Function<Vertex<T>, Double> heuristic) {
-    predecessors.clear();
-    predecessors.put(source, null);
-    visited.clear();
-    distances.clear();
-    distances.put(source, 0.0);
-    //Use closures to provide an order for the priority queue
-    Comparator<Vertex<T>> vertexOrder = new Comparator<Vertex<T>>() {
-      @Override
-      public int compare(Vertex<T> o1, Vertex<T> o2) {
-        Double d1 = distances.getOrDefault(o1, Double.POSITIVE_INFINITY) + heuristic.apply(o1);
-        Double d2 = distances.getOrDefault(o2, Double.POSITIVE_INFINITY) + heuristic.apply(o2);
-        return d1.compareTo(d2);
-      }
-    };
-    Queue<Vertex<T>> queue = new PriorityQueue<>(vertexOrder);
-    queue.add(source);
-    return queue;
+  @Override
+  public Stream<List<Vertex<T>>> allElementaryCycles() {
+    return stream(g -> IndexedAlgorithms.elementaryCycles(g));
   }
-  
-  private MinDistanceResult<T> wrapMinDistanceResults(
-      final Map<Vertex<T>, Vertex<T>> predecessors,
-      final Map<Vertex<T>, Double> distances,
-      final List<Vertex<T>> path) {
-    return new MinDistanceResult<T>() {
-      @Override
-      public Map<Vertex<T>, Vertex<T>> predecessors() {
-        return predecessors;
-      }
-
-      @Override
-      public Map<Vertex<T>, Double> distances() {
-        return distances;
-      }
 
-      @Override
-      public List<Vertex<T>> path() {
-        return path;
-      }
-    };
+  @Override
+  public long countElementaryCycles() {
+    return read(g -> IndexedAlgorithms.countElementaryCycles(g));
   }
-  
-  private  MinDistanceResult<T> addPathToResult(
-      Vertex<T> source, Vertex<T> target,  
-      MinDistanceResult<T> result) {
-    return new MinDistanceResult<T>() {
-      final List<Vertex<T>> path = buildPath(source, target, result.predecessors());
-      
-      @Override
-      public Map<Vertex<T>, Vertex<T>> predecessors() {
-        return result.predecessors();
-      }
-
-      @Override
-      public Map<Vertex<T>, Double> distances() {
-        return result.distances();
-      }
 
-      @Override
-      public List<Vertex<T>> path() {
-        return path;
-      }
-    };
+  @Override
+  public boolean depthFirstTraversal(Vertex<T> source, DfsVisitor<T> visitor) throws NullPointerException, IllegalArgumentException {
+    Objects.requireNonNull(visitor);
+    return read(g -> IndexedAlgorithms.depthFirstTraversal(g, g.sourceIndex(source), visitor));
   }
-  
-  private List<Vertex<T>> buildPath(
-      Vertex<T> source,
-      Vertex<T> target,
-      Map<Vertex<T>, Vertex<T>> predecessors) {
-    List<Vertex<T>> result = new ArrayList<Vertex<T>>(predecessors.size());    
-    Vertex<T> current = target;
-    while (current != null && !source.equals(current)) {
-      result.add(current);
-      current = predecessors.get(current);
-    }
-    if (source.equals(current)) {
-      result.add(source);
-      Collections.reverse(result);
-    } else {
-      result = null;
-    }
-    return result;
+
+  @Override
+  public boolean depthFirstTraversal(DfsVisitor<T> visitor) throws NullPointerException {
+    Objects.requireNonNull(visitor);
+    return read(g -> IndexedAlgorithms.depthFirstTraversal(g, IndexedAlgorithms.NONE, visitor));
   }
   
   @Override
-  public Graph<T> prim() throws UnsupportedOperationException {
-    if (!isUndirected()) {
-      throw new UnsupportedOperationException("Prim is defined for undirected graphs only");
-    }
-    
-    Graph<T> mst = new SimpleGraph<T>();
-    List<Vertex<T>> topOrder = topologicalOrder();
-    if (topOrder.isEmpty() || !this.isConnected()) {
-      return null;
-    }
-    Vertex<T> root = topOrder.get(0);
-    
-    Map<Vertex<T>, Double> distances = new HashMap<>(getVertices().size());    
-    Map<Vertex<T>, Edge<T>> edgeTo = new HashMap<>(getVertices().size());    
-    Comparator<Vertex<T>> PrimComparator = new Comparator<Vertex<T>>() {
-      @Override
-      public int compare(Vertex<T> v1, Vertex<T> v2) {
-        Double d1 = distances.getOrDefault(v1, Double.POSITIVE_INFINITY);
-        Double d2 = distances.getOrDefault(v2, Double.POSITIVE_INFINITY);
-            
-        return d1.compareTo(d2);
-      }
-    };
-    distances.put(root, 0.0);
-    
-    Queue<Vertex<T>> queue = new PriorityQueue<>(PrimComparator);
-    queue.add(root);
-    while (!queue.isEmpty()) {
-      Vertex<T> v = queue.remove();
-      if (!mst.hasVertex(v)) {
-        mst.addVertex(v);
-        if (!v.equals(root)) {
-          mst.addEdge(edgeTo.get(v));
-        }
-        
-        getEdgesFrom(v)
-          .stream()
-          .forEach(e -> {
-            Vertex<T> u = e.getDestination();
-            if (distances.getOrDefault(u, Double.POSITIVE_INFINITY) > e.getWeight()) {
-              distances.put(u, e.getWeight());
-              edgeTo.put(u, e);
-              queue.remove(u);  //This is linear in the size of the queue :/ No other way to update it!
-              queue.add(u);
-            }
-          });
-      }
-    }
-    return mst;
+  public Set<Graph<T>> allSpanningTrees() {
+    return read(g -> {
+      //On undirected graphs, each tree is only listed rooted at the first vertex, like prim()
+      int root = g.size() > 0 && g.isUndirected() ? g.indexOf(g.getVertices().get(0)) : IndexedAlgorithms.NONE;
+      return IndexedAlgorithms.spanningTrees(g, root).collect(Collectors.toSet());
+    });
   }
 
+  /**
+   * Reads a snapshot of the live graph, like acyclicPaths.
+   */
   @Override
-  public Set<List<Vertex<T>>> allAcyclicPaths(Vertex<T> source, Vertex<T> target)
-      throws NullPointerException, IllegalArgumentException {
-    if (!hasVertex(target.getLabel())) {
-      throw new IllegalArgumentException("Target vertex doesn't belong to the graph");
-    }
-    return allAcyclicPaths(source, target, new ArrayList<>());
+  public Stream<Graph<T>> spanningTrees() {
+    return stream(g -> IndexedAlgorithms.spanningTrees(g, IndexedAlgorithms.NONE));
   }
 
-  protected Set<List<Vertex<T>>> allAcyclicPaths(Vertex<T> source, Vertex<T> target, List<Vertex<T>> path) {  
-    Set<List<Vertex<T>>> result = new HashSet<>();
-    List<Vertex<T>> newPath = new ArrayList<>(path);
-    newPath.add(source);
-    Set<Vertex<T>> visited = new HashSet<>(newPath);
+  @Override
+  public BigInteger countSpanningTrees() {
+    return read(g -> SpanningTrees.count(g));
+  }
 
-    if (source.equals(target)) {
-      result.add(newPath);
-    } else {
-      for (Vertex<T> v: getNeighbours(source)) {
-        if (!visited.contains(v)) {
-          result.addAll(allAcyclicPaths(v, target, newPath));
-        }
-      }      
+  /**
+   * O(1) when the graph has more than one weakly connected component, or when it's
+   * undirected: otherwise, a vertex reaching all the others must be found.
+   */
+  @Override
+  public boolean isConnected() {
+    if (size() == 0 || componentsCount() > 1) {
+      return false;
     }
-    return result;
+    return isUndirected() || read(g -> IndexedAlgorithms.isConnected(g));
   }
 
   @Override
-  public Set<List<Vertex<T>>> allCycles(Vertex<T> source)
-      throws NullPointerException, IllegalArgumentException {
-    if (!hasVertex(source.getLabel())) {
-      throw new IllegalArgumentException("Source vertex doesn't belong to the graph");
+  public boolean sameComponent(Vertex<T> u, Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    int i = vertexIndex(u);
+    int j = vertexIndex(v);
+    GrowableDisjointSet c = components();
+    synchronized (c) {
+      return c.connected(i, j);
     }
-    return allCycles(source, source, Arrays.asList(source));
   }
 
-  protected Set<List<Vertex<T>>> allCycles(Vertex<T> source, Vertex<T> v, List<Vertex<T>> path)
-      throws NullPointerException, IllegalArgumentException {
-    Set<Vertex<T>> visited = new HashSet<>(path);
-    Set<List<Vertex<T>>> results = new HashSet<>();
-    
-    for (Vertex<T> u: getNeighbours(v)) {
-      if (u.equals(source)) {
-        List<Vertex<T>> newPath = new ArrayList<>(path);
-        newPath.add(u);
-        results.add(newPath);
-      } else if (!visited.contains(u)) {
-        List<Vertex<T>> newPath = new ArrayList<>(path);
-        newPath.add(u);
-        results.addAll(allCycles(source, u, newPath));
-      }
+  @Override
+  public int componentsCount() {
+    GrowableDisjointSet c = components();
+    //Ignores the vertices that are still being added
+    int n = size();
+    synchronized (c) {
+      return c.count() - (c.size() - n);
     }
-    return results;
-  }
-  
-  public Set<Graph<T>> allSpanningTrees() {
-    return allSpanningTrees(getVertices().size(), new HashSet<>(getEdges()), new HashSet<>());
   }
-  
-  protected Set<Graph<T>> allSpanningTrees(
-      int verticesNumber,
-      Set<Edge<T>> maybeTree, 
-      Set<Set<Edge<T>>> testedSets) {
-    
-    testedSets.add(maybeTree);
-
-    Set<Graph<T>> spanningTrees = new HashSet<>();
-    List<Vertex<T>> vertices = getVertices();
-    if (maybeTree.size() >= verticesNumber - 1) {
-      Graph<T> graph = new SimpleGraph<T>();
-      vertices.stream()
-        .forEach(v -> graph.addVertex(v));
-      maybeTree.stream()
-        .forEach(edge -> {
-          graph.addEdge(edge);
-        });
-      if (graph.isTree()) {
-        spanningTrees.add(graph);
-        //A spanning tree has exactly |V| - 1 edges, so removing more edges from this tree will result in no spanning tree
-      } else if (graph.isConnected()) {
-        maybeTree.forEach(e -> {
-          Set<Edge<T>> edgeSet = new HashSet<>(maybeTree);
-          edgeSet.remove(e);
-          if (!testedSets.contains(edgeSet)) {
-            spanningTrees.addAll(allSpanningTrees(verticesNumber, edgeSet, testedSets));          
-          }
-        });
-      }
-      //If the graph isn't connected, then removing more edges won't make it a tree...
-      
+
+  @Override
+  public int componentSize(Vertex<T> v) throws NullPointerException, IllegalArgumentException {
+    int i = vertexIndex(v);
+    GrowableDisjointSet c = components();
+    synchronized (c) {
+      return c.setSize(i);
     }
-    return spanningTrees;
   }
 
-  @Override
-  public boolean isConnected() {
-    boolean connected;
-    List<Vertex<T>> topologicallyOrderedVertices = topologicalOrder();
-    if (topologicallyOrderedVertices.isEmpty()) {
-      connected = false;
-    } else {
-      StructureResult<T> result = dfs(topologicallyOrderedVertices.get(0));
-      connected = result.exitTimes().keySet().containsAll(getVertices());
+  private GrowableDisjointSet components() {
+    GrowableDisjointSet c = components;
+    if (c == null) {
+      synchronized (this) {
+        c = components;
+        if (c == null) {
+          c = components = IndexedAlgorithms.weakComponentSizes(this);
+        }
+      }
     }
-    return connected;
+    return c;
   }
 
   @Override
@@ -962,175 +1698,54 @@ public class SimpleGraph<T> implements GraphInternal<T> {
     return isAcyclic() && isConnected() && (getEdges().size() == getVertices().size() - 1);
   }
   
+  /**
+   * Depends only on vertices' labels and edges' endpoints, like equality: O(1), since
+   * it's updated each time a vertex or an edge is added.
+   */
   @Override
   public int hashCode() {
-    List<Integer> hashCodes = Stream.concat(
-      getVertices().parallelStream().map(Vertex<T>::hashCode),
-      getEdges().parallelStream().map(Edge<T>::hashCode))
-        .collect(Collectors.toList());
-    return hashCodes.hashCode();
+    countRows();
+    return hash.get();
   }
 
-  @Override
-  public boolean equals(Object otherGraph) {
-    return otherGraph != null && 
-      otherGraph.getClass().equals(this.getClass()) &&
-      otherGraph.hashCode() == this.hashCode();  
-  }
-  
-  private static class Degree implements Comparable<Degree> {
-    private int _inDegree;
-    private int _outDegree;
-    
-    public Degree(int inDegree, int outDegree) {
-      _inDegree = inDegree;
-      _outDegree = outDegree;
-    }
-    
-    @SuppressWarnings("unused")
-    public int inDegree() {
-      return _inDegree;
-    }
-    
-    @SuppressWarnings("unused")
-    public int outDegree() {
-      return _outDegree;
-    }
-    
-    @Override
-    public int hashCode() {
-      return Arrays.asList(_inDegree, _outDegree).hashCode();
-    }
-    
-    @Override
-    public boolean equals(Object other) {
-      return (other != null && 
-          other.getClass() == this.getClass() && 
-          other.hashCode() == this.hashCode());
-    }
-
-    @Override
-    public int compareTo(Degree other) {
-      return this.hashCode() - other.hashCode();
-    }
-  }
-  
-  private static <R> Map<Degree, List<Vertex<R>>> groupVerticesByDegree(Graph<R> graph) {
-    Function<Vertex<R>, Degree> vertexToDegree = v -> {
-      int inDegree = graph.getEdgesTo(v).size();
-      int outDegree = graph.getEdgesFrom(v).size();
-      return new Degree(inDegree, outDegree);
-    };
-    
-    return graph.getVertices()
-      .stream()
-      .collect(Collectors.groupingBy(vertexToDegree));
-  }
-
-  private static <R, S> boolean checkGroupedVerticesIsomorphicCompatibility(
-      Map<Degree, List<Vertex<R>>> groupedVertices1,
-      Map<Degree, List<Vertex<S>>> groupedVertices2) {
-    return groupedVertices1.keySet()
-      .stream()
-      .allMatch(degree1 -> {
-        return groupedVertices2.containsKey(degree1) && 
-          groupedVertices1.get(degree1).size() == groupedVertices2.get(degree1).size();
-     });
-  }
-  
   /**
-   * For a given vertex relabeling v2 -> v1,  in a given isomorphism relabeling,
-   * checks that the assignment is legal, i.e. that for every outgoing edge from v2
-   * to v in graph2, there is an outgoing edge from v1 to v' in graph1, such that
-   * v -> v' is compatible with current relabeling.
-   * 
-   * @param graph1 The first graph to be checked for isomorphism.
-   * @param graph2 Second graph to check.
-   * @param v1 New graph1's vertex added to the relabeling.
-   * @param v2 New graph2's vertex added to the relabeling.
-   * @param relabeling Current relabeling rules, including v2 -> v1.
-   * @return True, iff all the conditions above are met.
+   * Two graphs are equal iff they have vertices with the same labels and edges between
+   * the same vertices (values and weights aside).
+   * Sizes and hash codes are compared first: O(V + E) only when they all match.
    */
-  private static <R, S> boolean  checkRelabelingAssignment(
-      Graph<R> graph1,
-      Graph<S> graph2,
-      Vertex<R> v1,
-      Vertex<S> v2,
-      Map<Vertex<S>, Vertex<R>> relabeling) {
-     
-    Set<Vertex<R>> outNeighours1 = new HashSet<>(graph1.getNeighbours(v1));
-    Set<Vertex<S>> outNeighours2 = new HashSet<>(graph2.getNeighbours(v2));
-    boolean match = outNeighours2.stream().allMatch(v -> {
-      return !relabeling.containsKey(v) || outNeighours1.contains(relabeling.get(v));
-    });
-    if (match) {
-      Set<Vertex<R>> inNeighours1 = graph1.getEdgesTo(v1).stream().map(Edge::getSource).collect(Collectors.toSet());
-      Set<Vertex<S>> inNeighours2 = graph2.getEdgesTo(v2).stream().map(Edge::getSource).collect(Collectors.toSet());
-      match = inNeighours2.stream().allMatch(v -> {
-        return !relabeling.containsKey(v) || inNeighours1.contains(relabeling.get(v));
-      });
-    }
-    
-    return match;
-  }
-  
-  private static <R, S> boolean checkAllPossibleRelabeling(
-      Graph<R> graph1,
-      Graph<S> graph2,
-      Map<Degree, List<Vertex<R>>> groupedVertices1,
-      Map<Degree, List<Vertex<S>>> groupedVertices2,
-      Map<Vertex<S>, Vertex<R>> relabeling,
-      Queue<Degree> degreesLeft) {
-    
-    if (degreesLeft.isEmpty()) {
+  @Override
+  public boolean equals(Object otherGraph) {
+    if (otherGraph == this) {
       return true;
     }
-    
-    Degree next = degreesLeft.remove();
-    Set<Vertex<R>> g1VerticesAvailable = new HashSet<>(groupedVertices1.get(next));
-    g1VerticesAvailable.removeAll(relabeling.values());
-    
-    return groupedVertices2.get(next).stream().anyMatch(v2 -> {
-      return g1VerticesAvailable.stream().anyMatch(v1 -> {
-        Map<Vertex<S>, Vertex<R>> relabelingRecursive = new HashMap<>(relabeling);
-        relabelingRecursive.put(v2, v1);
-        if (checkRelabelingAssignment(graph1, graph2, v1, v2, relabelingRecursive)) {
-          return checkAllPossibleRelabeling(graph1, graph2, groupedVertices1, groupedVertices2, relabelingRecursive, degreesLeft);
-        } else {
-          return false;
-        }
-      });
-    }); 
+    //Snapshots compare equal to the graphs they were taken from, when nothing was added since
+    if (!(otherGraph instanceof SimpleGraph)) {
+      return false;
+    }
+    @SuppressWarnings("unchecked")
+    SimpleGraph<T> other = (SimpleGraph<T>) otherGraph;
+    return other.size() == size() &&
+      other.edgesSize() == edgesSize() &&
+      other.hashCode() == hashCode() &&
+      read(g -> other.read(o -> IndexedAlgorithms.sameStructure(g, o)));
   }
   
-  
   @Override
   public <S> boolean isIsomorphicTo(Graph<S> other) {
-    List<Vertex<S>> otherVertices = other.getVertices();
+    return read(g -> Isomorphism.isomorphism(g, IndexedAlgorithms.indexed(other)) != null);
+  }
 
-    //Two graphs can be isomorphic only if:
-    
-    //#1. They have the same number of vertices and edges
-    if (this.getVertices().size() != otherVertices.size() ||
-        this.getEdges().size() != other.getEdges().size()) {
-      return false;
-    }
-    
-    Map<Degree, List<Vertex<T>>> groupedVertices1 = groupVerticesByDegree(this);
-    Map<Degree, List<Vertex<S>>> groupedVertices2 = groupVerticesByDegree(other);
-    
-    //#2. A vertex can only be renamed into one with the same degree, so there must be the same number of vertices with a given (in,out)-degree in both graphs.
-    if (!checkGroupedVerticesIsomorphicCompatibility(groupedVertices1, groupedVertices2)) {
-      return false;
-    }
-    
-    //#3. Try out all possible renaming from vertices in the same group
-    //    (i.e. same degree) until it finds one
-    return checkAllPossibleRelabeling(this, other, groupedVertices1, groupedVertices2, new HashMap<Vertex<S>, Vertex<T>>(), new PriorityQueue<Degree>(groupedVertices1.keySet()));
+  @Override
+  public long invariantHash() {
+    return read(g -> Isomorphism.invariantHash(g));
   }
 
   @Override
   public List<Vertex<T>> verticesByDegree() {
+    //Degrees must not change while sorting
+    if (!isSnapshot()) {
+      return read(g -> g.verticesByDegree());
+    }
     List<Vertex<T>> vertices = new ArrayList<Vertex<T>>(getVertices());
     vertices.sort(VERTEX_COMPARATOR_BY_DEGREE);
     return vertices;
@@ -1143,25 +1758,15 @@ public class SimpleGraph<T> implements GraphInternal<T> {
 
   @Override
   public List<Vertex<T>> verticesByDepthFrom(Vertex<T> v)  throws NullPointerException, IllegalArgumentException {
-    if (!hasVertex(v)) {
-      throw VERTEX_NOT_IN_GRAPH_EXCEPTION_SUPPLIER.get();
-    }
-
-    List<Vertex<T>> reversePath = verticesByDepthFrom(v, new HashSet<Vertex<T>>(),  new ArrayList<Vertex<T>>());
+    List<Vertex<T>> reversePath = read(g -> {
+      if (!g.hasVertex(v)) {
+        throw VERTEX_NOT_IN_GRAPH_EXCEPTION_SUPPLIER.get();
+      }
+      return IndexedAlgorithms.preOrder(g, g.indexOf(v));
+    });
     Collections.reverse(reversePath);
     return reversePath;
   }
-  
-  private List<Vertex<T>> verticesByDepthFrom(Vertex<T> v, Set<Vertex<T>> visited, List<Vertex<T>> path) {
-    visited.add(v);
-    path.add(v);
-    for (Vertex<T> u : getNeighbours(v)) {
-      if (!visited.contains(u)) {
-        verticesByDepthFrom(u, visited, path);
-      }
-    }
-    return path;
-  }
 
   /**
    * Check if a graph is directed or undirected.
@@ -1169,24 +1774,13 @@ public class SimpleGraph<T> implements GraphInternal<T> {
    * a pair of directed edges.
    * 
    * @return True iff the graph in undirected, i.e. for every edge u -> v, there is an
-   *         edge v -> u with the same weight. 
+   *         edge v -> u with the same weight: in O(1), as the edges without a match are
+   *         counted as they are added.
    */
   @Override
   public boolean isUndirected() {
-    //For all vertices...
-    return getVertices().stream().allMatch(v -> {
-      final Set<Vertex<T>> vNeighbours = new HashSet<>(getNeighbours(v));
-
-      //For all in-going edges...
-      return getEdgesTo(v).stream()
-        .allMatch(e -> {
-          Vertex<T> u = e.getSource();
-          //There is an outgoing edge to the same vertex, with the same weight
-          return v.equals(u) || 
-              (vNeighbours.contains(u) &&
-              getEdgeBetween(v, u).get().getWeight() == e.getWeight());
-        });
-    });
+    countRows();
+    return asymmetricEdges.get() == 0;
   }
 
   @Override
@@ -1231,79 +1825,40 @@ public class SimpleGraph<T> implements GraphInternal<T> {
     return inverseGraph;
   }
 
-  /** 
-   * Common code for finding connected components (directed graphs) or strongly
-   * connected components (undirected graphs).
-   * The difference is that, in the former case any order will do for the vertices,
-   * in the latter, vertices must be in topological order for the inverse graph.
-   * 
-   * @param sortedVertices
-   * @return A set of graphs: the connected/strongly connected components for this graph.
-   */
-  private Set<Graph<T>> findComponents(List<Vertex<T>> sortedVertices) {
-    Set<Vertex<T>> availableVertices = new HashSet<>(sortedVertices);
-    Set<Graph<T>> result = new HashSet<>();
-    
-    for (Vertex<T> v : getVertices()) {
-      if (availableVertices.contains(v)) {
-        Set<Vertex<T>> connectedComponent = dfs(v).exitTimes().keySet();
-        result.add(subGraph(() -> connectedComponent));
-        availableVertices.removeAll(connectedComponent);
-      }
-    }
-    
-    return result;
-  }
-  
   @Override
   public Set<Graph<T>> connectedComponents() throws UnsupportedOperationException {
+    return connectedComponentIds().subGraphs();
+  }
+
+  @Override
+  public Set<Graph<T>> stronglyConnectedComponents() {
+    return stronglyConnectedComponentIds().subGraphs();
+  }
+
+  @Override
+  public ComponentsResult<T> connectedComponentIds() throws UnsupportedOperationException {
     if (!isUndirected()) {
       throw new UnsupportedOperationException("For directed graphs, check Strongly Connected Components");
     }
-    
-    return findComponents(getVertices());
+    GrowableDisjointSet c = components();
+    //The union-find may hold vertices added after the snapshot: only the snapshot's are listed.
+    //Partitions are wrapped around this graph, since subGraphs() reads edges after the
+    //snapshot is closed, and they already handle the vertices added later
+    return read(g -> {
+      synchronized (c) {
+        return IndexedAlgorithms.wrapComponents(this, IndexedAlgorithms.componentIds(g, c));
+      }
+    });
   }
 
   @Override
-  public Set<Graph<T>> stronglyConnectedComponents() {
-    if (isUndirected()) {
-      //Connected and Strongly connected components are the same in an undirected graph
-      //But it's a lot more efficient 
-      return connectedComponents();
-    }
-    return findComponents(inverse().topologicalOrder());
+  public ComponentsResult<T> stronglyConnectedComponentIds() {
+    return read(g -> IndexedAlgorithms.wrapComponents(this, IndexedAlgorithms.stronglyConnectedComponents(g)));
   }
 
   @Override
   public boolean isBipartite() {
-    Map<Vertex<T>, Boolean> colors = new HashMap<>();
-    
-    for (Vertex<T> v : getVertices()) {
-      if (!colors.containsKey(v)) {
-        colors.put(v, false);
-        //Explicit stack for a dfs
-        Stack<Vertex<T>> stack = new Stack<>();
-        stack.push(v);
-        while (!stack.isEmpty()) {
-          //INVARIANT: u is on the stack, so its color is already set
-          Vertex<T> u = stack.pop();
-          Boolean currentColor = !colors.get(u);
-          for (Vertex<T> w : getNeighbours(u)) {
-            if (colors.containsKey(w)) {
-              if (colors.get(w) != currentColor) {
-                //Found a neighbour with same color as u
-                return false;
-              }
-            } else {
-              //INVARIANT: vertices are added to the stack at most once, before they are painted
-              colors.put(w, currentColor);
-              stack.push(w);
-            }
-          }
-        }
-      }
-    }
-    return true;
+    return read(g -> IndexedAlgorithms.isBipartite(g));
   }
 
   /**
@@ -1313,38 +1868,52 @@ public class SimpleGraph<T> implements GraphInternal<T> {
    */
   @Override
   public Map<Vertex<T>, Byte> vertexColoring() {
-    Map<Vertex<T>, Byte> colors = new HashMap<>(size());
-    Queue<Vertex<T>> byDegree = new ArrayDeque<>(verticesByDegree());
-    
-    
-    byte currentColor = -1;
-    while (!byDegree.isEmpty()) {
-      Vertex<T> v = byDegree.poll();
-      
-      if (!colors.containsKey(v)) {
-        Set<Vertex<T>> vNeighbours = new HashSet<>(getAdjacentVertices(v));
-        final Queue<Vertex<T>> tmpQueue = new ArrayDeque<>(byDegree.size());
-        currentColor += 1;  
-        final byte col = currentColor;
-        colors.put(v,  currentColor);      
-        
-        byDegree.stream()
-          .forEach(u -> {
-            if (colors.containsKey(u) ||
-                vNeighbours.contains(v) ||
-                getAdjacentVertices(u).stream().anyMatch(w -> {
-                  return colors.containsKey(w) && colors.get(w) == col; 
-                })) {
-              tmpQueue.add(u);
-            } else {
-              colors.put(u, col);              
-            }
-          });
-        //Copy the temporary queue over the main one
-        byDegree = tmpQueue;
-      } 
-    }
-    return colors;
+    return read(g -> VertexColoring.welshPowell(g));
+  }
+
+  @Override
+  public ColoringResult<T> dsaturColoring() {
+    return read(g -> IndexedAlgorithms.wrapColoring(this, VertexColoring.dsatur(g)));
+  }
+
+  @Override
+  public ColoringResult<T> parallelColoring() {
+    return read(g -> IndexedAlgorithms.wrapColoring(this, VertexColoring.jonesPlassmann(g, VertexColoring.DEFAULT_SEED)));
+  }
+
+
+  /**
+   * Creates an immutable, compact snapshot of this graph: later changes to this graph
+   * won't be reflected in the snapshot.
+   * 
+   * @return A CompactGraph with the same vertices and edges.
+   */
+  @Override
+  public CompactGraph<T> freeze() {
+    return CompactGraph.fromGraph(this);
+  }
+
+  @Override
+  public ContractionHierarchy<T> contractionHierarchy() throws IllegalArgumentException {
+    return ContractionHierarchy.fromGraph(this);
+  }
+
+  /**
+   * Shortest path tree from source, updated incrementally as edges are added through it.
+   *
+   * @throws IllegalArgumentException If source doesn't belong to the graph, or if any edge
+   *         has a negative weight.
+   */
+  public DynamicShortestPaths<T> dynamicShortestPaths(Vertex<T> source) throws NullPointerException, IllegalArgumentException {
+    return DynamicShortestPaths.fromSource(this, source);
   }
 
+  /**
+   * Topological order of this graph, updated incrementally as edges are added through it.
+   *
+   * @throws IllegalArgumentException If the graph has a cycle.
+   */
+  public IncrementalTopologicalOrder<T> incrementalTopologicalOrder() throws IllegalArgumentException {
+    return IncrementalTopologicalOrder.fromGraph(this);
+  }
 }
@@ -0,0 +1,125 @@
+package mlarocca.java99.graphs;
+
+import static mlarocca.java99.graphs.IndexedAlgorithms.NONE;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Lazily enumerates the simple paths from a source vertex to a target, or the simple
+ * cycles through the source vertex, with a depth first search that is resumed each
+ * time the next path is requested.
+ *
+ * Only the current path is kept in memory: the stack of vertices on it, the position
+ * reached in the adjacency list of each of them, and a bit per vertex marking the
+ * vertices on the path. A spliterator owns a range of the edges leaving the source,
+ * and splitting it hands the first half of the first hops not yet explored to a new
+ * one. Once a path has been started, the spliterator no longer splits: the paths still
+ * to come from that first hop precede the prefix, and splitting would break the order.
+ */
+final class SimplePathSpliterator<T> implements Spliterator<List<Vertex<T>>> {
+
+  private final IndexedGraph<T> graph;
+  private final int source;
+  //NONE to enumerate the cycles through source
+  private final int target;
+
+  //Range of the edges leaving source that are still to be explored
+  private int nextHop;
+  private final int lastHop;
+  private int hopEnd;
+
+  //The current path (source included) and, for each vertex on it, the next edge to follow
+  private int[] path = new int[16];
+  private int[] cursors = new int[16];
+  private int length = 0;
+  private BitSet onPath;
+
+  /**
+   * @param target Index of the target vertex (different from source), or NONE for cycles.
+   */
+  SimplePathSpliterator(IndexedGraph<T> graph, int source, int target) {
+    this(graph, source, target, 0, graph.outDegreeAt(source));
+  }
+
+  private SimplePathSpliterator(IndexedGraph<T> graph, int source, int target, int nextHop, int lastHop) {
+    this.graph = graph;
+    this.source = source;
+    this.target = target;
+    this.nextHop = nextHop;
+    this.lastHop = lastHop;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super List<Vertex<T>>> action) {
+    if (onPath == null) {
+      onPath = new BitSet(graph.size());
+    }
+    while (length > 0 || nextHop < lastHop) {
+      if (length == 0) {
+        //Source only follows a single edge for each first hop
+        push(source);
+        cursors[0] = nextHop++;
+        hopEnd = nextHop;
+      }
+      int u = path[length - 1];
+      int end = length == 1 ? hopEnd : graph.outDegreeAt(u);
+      if (cursors[length - 1] < end) {
+        int v = graph.targetAt(u, cursors[length - 1]++);
+        if (v == target || (target == NONE && v == source)) {
+          int[] result = Arrays.copyOf(path, length + 1);
+          result[length] = v;
+          action.accept(IndexedAlgorithms.toVertices(graph, result));
+          return true;
+        }
+        if (!onPath.get(v)) {
+          push(v);
+        }
+      } else {
+        pop();
+      }
+    }
+    return false;
+  }
+
+  private void push(int v) {
+    if (length == path.length) {
+      path = Arrays.copyOf(path, 2 * length);
+      cursors = Arrays.copyOf(cursors, 2 * length);
+    }
+    path[length] = v;
+    cursors[length] = 0;
+    length += 1;
+    onPath.set(v);
+  }
+
+  private void pop() {
+    length -= 1;
+    onPath.clear(path[length]);
+  }
+
+  @Override
+  public Spliterator<List<Vertex<T>>> trySplit() {
+    int remaining = lastHop - nextHop;
+    if (length > 0 || remaining < 2) {
+      return null;
+    }
+    int middle = nextHop + remaining / 2;
+    Spliterator<List<Vertex<T>>> prefix = new SimplePathSpliterator<>(graph, source, target, nextHop, middle);
+    nextHop = middle;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | DISTINCT | NONNULL;
+  }
+}
@@ -0,0 +1,294 @@
+package mlarocca.java99.graphs;
+
+import static mlarocca.java99.graphs.IndexedAlgorithms.NONE;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Spanning trees of a graph: a spanning tree is a set of |V| - 1 edges through which some
+ * root reaches every vertex. On undirected graphs, whose edges are pairs of opposite arcs,
+ * each tree is found once for each of its possible roots, unless the enumeration is
+ * restricted to a single root (which, on a connected undirected graph, lists each tree
+ * once, oriented away from that root).
+ *
+ * Edges are numbered as the graph's arcs, vertex after vertex: edge e is the k-th arc
+ * leaving vertex i when e = offsets[i] + k.
+ *
+ * Trees are enumerated lazily, for each root, by binary partition: the first arc
+ * leaving the current tree is either added to it, or excluded from the rest of the
+ * search. Including an arc never prevents the tree from being completed, and excluding
+ * it is only tried if every vertex is still reachable from the tree without excluded
+ * arcs, so every branch of the search ends with a new tree: the delay between two
+ * trees is O(E (V + E)), independently of the number of edge subsets.
+ */
+final class SpanningTrees<T> implements Iterator<int[]> {
+
+  private final IndexedGraph<T> graph;
+  private final int n;
+  private final int[] offsets;
+  private final int[] sources;
+  private final int[] targets;
+
+  private int root = NONE;
+  //If not NONE, the only root whose trees are listed
+  private final int onlyRoot;
+  private final boolean[] inTree;
+  private final boolean[] excluded;
+  //Arcs on the current branch, and whether each of them is included or excluded
+  private final int[] branch;
+  private final boolean[] isIncluded;
+  private int depth = 0;
+  private int treeSize = 0;
+
+  private int[] nextTree;
+  private boolean isFinished = false;
+
+  /**
+   * @param onlyRoot The only vertex trees are rooted at, or NONE for all the vertices.
+   */
+  SpanningTrees(IndexedGraph<T> graph, int onlyRoot) {
+    this.graph = graph;
+    this.onlyRoot = onlyRoot;
+    n = graph.size();
+    offsets = new int[n + 1];
+    for (int v = 0; v < n; v++) {
+      offsets[v + 1] = offsets[v] + graph.outDegreeAt(v);
+    }
+    int m = offsets[n];
+    sources = new int[m];
+    targets = new int[m];
+    for (int v = 0; v < n; v++) {
+      for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+        sources[offsets[v] + k] = v;
+        targets[offsets[v] + k] = graph.targetAt(v, k);
+      }
+    }
+    inTree = new boolean[n];
+    excluded = new boolean[m];
+    branch = new int[m];
+    isIncluded = new boolean[m];
+  }
+
+  int source(int edge) {
+    return sources[edge];
+  }
+
+  int target(int edge) {
+    return targets[edge];
+  }
+
+  //Position of the edge among the arcs leaving its source
+  int position(int edge) {
+    return edge - offsets[sources[edge]];
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (nextTree == null && !isFinished) {
+      nextTree = advance();
+      isFinished = nextTree == null;
+    }
+    return nextTree != null;
+  }
+
+  /**
+   * @return The indices of the edges in the next tree.
+   */
+  @Override
+  public int[] next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    int[] tree = nextTree;
+    nextTree = null;
+    return tree;
+  }
+
+  private int[] advance() {
+    //Resume from the last tree found, if any
+    boolean descend = treeSize == n - 1 && root != NONE ? backtrack() : false;
+    while (true) {
+      if (!descend) {
+        root = nextRoot(root + 1);
+        if (root == NONE) {
+          return null;
+        }
+        Arrays.fill(inTree, false);
+        inTree[root] = true;
+        treeSize = 0;
+        depth = 0;
+      }
+      //Descend, always including the first arc leaving the tree
+      while (treeSize < n - 1) {
+        int e = firstArcLeavingTree();
+        branch[depth] = e;
+        isIncluded[depth++] = true;
+        include(e);
+      }
+      if (treeSize == n - 1) {
+        int[] tree = new int[n - 1];
+        for (int i = 0, j = 0; i < depth; i++) {
+          if (isIncluded[i]) {
+            tree[j++] = branch[i];
+          }
+        }
+        return tree;
+      }
+      descend = backtrack();
+    }
+  }
+
+  /**
+   * Undoes the branch up to the deepest included arc that can be excluded instead.
+   *
+   * @return False if there is no such arc, and the search from root is over.
+   */
+  private boolean backtrack() {
+    while (depth > 0) {
+      int e = branch[--depth];
+      if (isIncluded[depth]) {
+        inTree[targets[e]] = false;
+        treeSize--;
+        excluded[e] = true;
+        if (everyVertexReachable()) {
+          isIncluded[depth++] = false;
+          return true;
+        }
+      }
+      excluded[e] = false;
+    }
+    return false;
+  }
+
+  private void include(int e) {
+    inTree[targets[e]] = true;
+    treeSize++;
+  }
+
+  private int firstArcLeavingTree() {
+    for (int e = 0; e < sources.length; e++) {
+      if (!excluded[e] && inTree[sources[e]] && !inTree[targets[e]]) {
+        return e;
+      }
+    }
+    throw new IllegalStateException("The tree can't be completed");
+  }
+
+  //True iff every vertex can be reached from the tree through arcs not excluded
+  private boolean everyVertexReachable() {
+    boolean[] reached = inTree.clone();
+    int[] stack = new int[n];
+    int top = 0;
+    int count = 0;
+    for (int v = 0; v < n; v++) {
+      if (reached[v]) {
+        stack[top++] = v;
+        count++;
+      }
+    }
+    while (top > 0) {
+      int u = stack[--top];
+      for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+        int v = targets[e];
+        if (!excluded[e] && !reached[v]) {
+          reached[v] = true;
+          stack[top++] = v;
+          count++;
+        }
+      }
+    }
+    return count == n;
+  }
+
+  //The first vertex, from start onwards, that reaches every vertex
+  private int nextRoot(int start) {
+    if (onlyRoot != NONE) {
+      return start <= onlyRoot && IndexedAlgorithms.reachableCount(graph, onlyRoot) == n ? onlyRoot : NONE;
+    }
+    for (int r = start; r < n; r++) {
+      if (IndexedAlgorithms.reachableCount(graph, r) == n) {
+        return r;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Kirchhoff's matrix-tree theorem, on the in-degree Laplacian L = D - A.
+   * On undirected graphs, the number of trees is any cofactor of L, so row and column 0
+   * are dropped. On directed graphs, the trees rooted at r are counted by the cofactor
+   * of (r, r): since the columns of L sum to 0, every cofactor in column r is the same,
+   * and the sum over all roots is det(L + J) / n, with J the all-ones matrix (matrix
+   * determinant lemma).
+   * A single determinant is computed exactly with Bareiss' fraction-free elimination:
+   * O(V^2) memory and O(V^3) operations on big integers.
+   *
+   * @return The number of spanning trees: on undirected graphs, each tree is counted once
+   *         (not once per root).
+   */
+  static <T> BigInteger count(IndexedGraph<T> graph) {
+    int n = graph.size();
+    if (n == 0) {
+      return BigInteger.ZERO;
+    }
+    boolean isUndirected = graph.isUndirected();
+    //Undirected: vertex 0 is dropped, so vertex v goes to row and column v - 1
+    int shift = isUndirected ? 1 : 0;
+    long[][] matrix = new long[n - shift][n - shift];
+    if (!isUndirected) {
+      for (long[] row : matrix) {
+        Arrays.fill(row, 1);
+      }
+    }
+    for (int u = 0; u < n; u++) {
+      for (int k = 0, degree = graph.outDegreeAt(u); k < degree; k++) {
+        int v = graph.targetAt(u, k);
+        if (u != v && v >= shift) {
+          matrix[v - shift][v - shift] += 1;
+          if (u >= shift) {
+            matrix[u - shift][v - shift] -= 1;
+          }
+        }
+      }
+    }
+    BigInteger determinant = determinant(matrix);
+    return isUndirected ? determinant : determinant.divide(BigInteger.valueOf(n));
+  }
+
+  private static BigInteger determinant(long[][] matrix) {
+    int size = matrix.length;
+    BigInteger[][] a = new BigInteger[size][size];
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        a[i][j] = BigInteger.valueOf(matrix[i][j]);
+      }
+    }
+    BigInteger sign = BigInteger.ONE;
+    BigInteger previous = BigInteger.ONE;
+    for (int k = 0; k < size; k++) {
+      if (a[k][k].signum() == 0) {
+        int pivot = k + 1;
+        while (pivot < size && a[pivot][k].signum() == 0) {
+          pivot++;
+        }
+        if (pivot == size) {
+          return BigInteger.ZERO;
+        }
+        BigInteger[] tmp = a[k];
+        a[k] = a[pivot];
+        a[pivot] = tmp;
+        sign = sign.negate();
+      }
+      for (int i = k + 1; i < size; i++) {
+        for (int j = k + 1; j < size; j++) {
+          a[i][j] = a[i][j].multiply(a[k][k]).subtract(a[i][k].multiply(a[k][j])).divide(previous);
+        }
+      }
+      previous = a[k][k];
+    }
+    return size == 0 ? BigInteger.ONE : sign.multiply(a[size - 1][size - 1]);
+  }
+}
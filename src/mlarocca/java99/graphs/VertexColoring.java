@@ -0,0 +1,291 @@
+package mlarocca.java99.graphs;
+
+import static mlarocca.java99.graphs.IndexedAlgorithms.NONE;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Greedy vertex coloring on vertices' indices. Vertices are adjacent when there is an
+ * edge between them in either direction, and self loops are ignored.
+ * Each engine only differs in the order vertices are colored in: each vertex gets the
+ * smallest color not used by its neighbours colored before it.
+ */
+final class VertexColoring {
+
+  //Seed for the priorities of parallel colorings exposed by the graphs
+  static final long DEFAULT_SEED = 0x5DEECE66DL;
+
+  private VertexColoring() {
+  }
+
+  /**
+   * Welsh-Powell: vertices are taken by decreasing degree, and each new color is given to
+   * as many of the remaining vertices as possible, in the same order (the order of
+   * verticesByDegree()).
+   */
+  static <T> Map<Vertex<T>, Byte> welshPowell(IndexedGraph<T> graph) {
+    int n = graph.size();
+    int[] order = graph.verticesByDegree().stream().mapToInt(graph::indexOf).toArray();
+    int[] colors = new int[n];
+    //blockedBy[v] == c + 1 iff a neighbour of v has color c
+    int[] blockedBy = new int[n];
+    Arrays.fill(colors, NONE);
+    int left = n;
+    for (int color = 0; left > 0; color++) {
+      for (int v : order) {
+        if (colors[v] == NONE && blockedBy[v] != color + 1) {
+          colors[v] = color;
+          left--;
+          for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+            blockedBy[graph.targetAt(v, k)] = color + 1;
+          }
+          for (int k = 0, degree = graph.inDegreeAt(v); k < degree; k++) {
+            blockedBy[graph.sourceAt(v, k)] = color + 1;
+          }
+        }
+      }
+    }
+    Map<Vertex<T>, Byte> result = new HashMap<>(n);
+    for (int v = 0; v < n; v++) {
+      result.put(graph.vertexAt(v), (byte) colors[v]);
+    }
+    return result;
+  }
+
+  /**
+   * DSatur: the next vertex colored is the one whose neighbours already use the most
+   * distinct colors (its saturation).
+   * Uncolored vertices are kept in a bucket for each saturation, as doubly linked lists, so
+   * that each step takes O(1) plus the time to update the neighbours of the vertex
+   * colored: O(V + E) overall, besides the sets of colors around each vertex. Within a
+   * bucket, the last vertex to enter it comes first; vertices enter the first bucket by
+   * increasing degree, so that the vertex colored first has the largest degree.
+   */
+  static <T> int[] dsatur(IndexedGraph<T> graph) {
+    int n = graph.size();
+    int[] colors = new int[n];
+    int[] saturation = new int[n];
+    BitSet[] neighbourColors = new BitSet[n];
+    Arrays.fill(colors, NONE);
+    Buckets buckets = new Buckets(n);
+    for (int v : byIncreasingDegree(graph)) {
+      buckets.push(0, v);
+    }
+
+    int top = 0;
+    for (int colored = 0; colored < n; colored++) {
+      while (buckets.isEmpty(top)) {
+        top--;
+      }
+      int v = buckets.pop(top);
+      int color = neighbourColors[v] == null ? 0 : neighbourColors[v].nextClearBit(0);
+      colors[v] = color;
+      neighbourColors[v] = null;
+      for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+        top = Math.max(top, saturate(graph.targetAt(v, k), color, colors, saturation, neighbourColors, buckets));
+      }
+      for (int k = 0, degree = graph.inDegreeAt(v); k < degree; k++) {
+        top = Math.max(top, saturate(graph.sourceAt(v, k), color, colors, saturation, neighbourColors, buckets));
+      }
+    }
+    return colors;
+  }
+
+  /**
+   * Records that a neighbour of w got a color, moving w to the next bucket if the color
+   * is new around it.
+   *
+   * @return The bucket w is in (0 if w is already colored).
+   */
+  private static int saturate(
+      int w,
+      int color,
+      int[] colors,
+      int[] saturation,
+      BitSet[] neighbourColors,
+      Buckets buckets) {
+    if (colors[w] != NONE) {
+      return 0;
+    }
+    if (neighbourColors[w] == null) {
+      neighbourColors[w] = new BitSet();
+    }
+    if (!neighbourColors[w].get(color)) {
+      neighbourColors[w].set(color);
+      buckets.remove(saturation[w], w);
+      buckets.push(++saturation[w], w);
+    }
+    return saturation[w];
+  }
+
+  private static <T> int[] byIncreasingDegree(IndexedGraph<T> graph) {
+    int n = graph.size();
+    int[] degrees = new int[n];
+    int maxDegree = 0;
+    for (int v = 0; v < n; v++) {
+      degrees[v] = graph.outDegreeAt(v) + graph.inDegreeAt(v);
+      maxDegree = Math.max(maxDegree, degrees[v]);
+    }
+    //Counting sort
+    int[] starts = new int[maxDegree + 2];
+    for (int v = 0; v < n; v++) {
+      starts[degrees[v] + 1]++;
+    }
+    for (int d = 0; d <= maxDegree; d++) {
+      starts[d + 1] += starts[d];
+    }
+    int[] order = new int[n];
+    for (int v = 0; v < n; v++) {
+      order[starts[degrees[v]]++] = v;
+    }
+    return order;
+  }
+
+  /**
+   * Disjoint stacks of vertices, stored as doubly linked lists.
+   */
+  private static final class Buckets {
+    private final int[] heads;
+    private final int[] next;
+    private final int[] previous;
+
+    Buckets(int n) {
+      //A vertex's saturation can't be larger than the number of colors, nor than n
+      heads = new int[n + 1];
+      next = new int[n];
+      previous = new int[n];
+      Arrays.fill(heads, NONE);
+    }
+
+    boolean isEmpty(int bucket) {
+      return heads[bucket] == NONE;
+    }
+
+    void push(int bucket, int v) {
+      int head = heads[bucket];
+      next[v] = head;
+      previous[v] = NONE;
+      if (head != NONE) {
+        previous[head] = v;
+      }
+      heads[bucket] = v;
+    }
+
+    int pop(int bucket) {
+      int v = heads[bucket];
+      remove(bucket, v);
+      return v;
+    }
+
+    void remove(int bucket, int v) {
+      if (previous[v] == NONE) {
+        heads[bucket] = next[v];
+      } else {
+        next[previous[v]] = next[v];
+      }
+      if (next[v] != NONE) {
+        previous[next[v]] = previous[v];
+      }
+    }
+  }
+
+  /**
+   * Jones-Plassmann: vertices get random priorities, and each vertex is colored as soon
+   * as all its neighbours with higher priority are. The vertices ready at the same time
+   * are never adjacent, so each round colors all of them in parallel; rounds are
+   * O(log V / log log V) in expectation for bounded degrees.
+   * Priorities only depend on the seed, and the coloring only on the priorities.
+   *
+   * Each vertex keeps an atomic count of the neighbours it is waiting for, and finds its
+   * color with a 64-bit mask of the colors around it (and a bit set for larger colors).
+   */
+  static <T> int[] jonesPlassmann(IndexedGraph<T> graph, long seed) {
+    int n = graph.size();
+    int[] priorities = new Random(seed).ints(n).toArray();
+    int[] colors = new int[n];
+    Arrays.fill(colors, NONE);
+    AtomicIntegerArray waiting = new AtomicIntegerArray(n);
+    IntStream.range(0, n)
+      .parallel()
+      .forEach(v -> {
+        int count = 0;
+        for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+          count += precedes(priorities, graph.targetAt(v, k), v) ? 1 : 0;
+        }
+        for (int k = 0, degree = graph.inDegreeAt(v); k < degree; k++) {
+          count += precedes(priorities, graph.sourceAt(v, k), v) ? 1 : 0;
+        }
+        waiting.set(v, count);
+      });
+
+    int[] ready = IntStream.range(0, n)
+      .parallel()
+      .filter(v -> waiting.get(v) == 0)
+      .toArray();
+    while (ready.length > 0) {
+      Arrays.stream(ready)
+        .parallel()
+        .forEach(v -> colors[v] = smallestFreeColor(graph, colors, v));
+      //A vertex is ready once the last of its predecessors releases it
+      ready = Arrays.stream(ready)
+        .parallel()
+        .flatMap(v -> {
+          IntStream.Builder released = IntStream.builder();
+          for (int k = 0, degree = graph.outDegreeAt(v); k < degree; k++) {
+            release(priorities, waiting, v, graph.targetAt(v, k), released);
+          }
+          for (int k = 0, degree = graph.inDegreeAt(v); k < degree; k++) {
+            release(priorities, waiting, v, graph.sourceAt(v, k), released);
+          }
+          return released.build();
+        })
+        .toArray();
+    }
+    return colors;
+  }
+
+  //Total order on priorities, with ties broken by index (self loops never count)
+  private static boolean precedes(int[] priorities, int u, int v) {
+    return priorities[u] > priorities[v] || (priorities[u] == priorities[v] && u < v);
+  }
+
+  private static void release(int[] priorities, AtomicIntegerArray waiting, int v, int w, IntStream.Builder released) {
+    if (precedes(priorities, v, w) && waiting.decrementAndGet(w) == 0) {
+      released.add(w);
+    }
+  }
+
+  //Only v's predecessors are colored when v is ready
+  private static <T> int smallestFreeColor(IndexedGraph<T> graph, int[] colors, int v) {
+    long mask = 0L;
+    BitSet larger = null;
+    for (int side = 0; side < 2; side++) {
+      int degree = side == 0 ? graph.outDegreeAt(v) : graph.inDegreeAt(v);
+      for (int k = 0; k < degree; k++) {
+        int w = side == 0 ? graph.targetAt(v, k) : graph.sourceAt(v, k);
+        int color = colors[w];
+        if (w == v || color == NONE) {
+          continue;
+        }
+        if (color < Long.SIZE) {
+          mask |= 1L << color;
+        } else {
+          if (larger == null) {
+            larger = new BitSet();
+          }
+          larger.set(color - Long.SIZE);
+        }
+      }
+    }
+    if (mask != -1L) {
+      return Long.numberOfTrailingZeros(~mask);
+    }
+    return Long.SIZE + (larger == null ? 0 : larger.nextClearBit(0));
+  }
+}
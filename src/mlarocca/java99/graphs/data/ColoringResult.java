@@ -0,0 +1,25 @@
+package mlarocca.java99.graphs.data;
+
+import java.util.List;
+
+import mlarocca.java99.graphs.Vertex;
+
+/**
+ * Proper coloring of a graph's vertices, with colors identified by the integers in
+ * [0, count()): vertices joined by an edge, in either direction, never share a color
+ * (self loops aside).
+ */
+public interface ColoringResult<T> {
+  public int count();
+
+  /**
+   * @throws IllegalArgumentException If v doesn't belong to the graph.
+   */
+  public int colorOf(Vertex<T> v) throws NullPointerException, IllegalArgumentException;
+
+  /**
+   * @return The number of vertices with a color.
+   */
+  public int size(int color);
+  public List<Vertex<T>> vertices(int color);
+}
@@ -0,0 +1,31 @@
+package mlarocca.java99.graphs.data;
+
+import java.util.List;
+import java.util.Set;
+
+import mlarocca.java99.graphs.Graph;
+import mlarocca.java99.graphs.Vertex;
+
+/**
+ * Partition of a graph's vertices into (strongly) connected components, identified by
+ * the integers in [0, count()).
+ */
+public interface ComponentsResult<T> {
+  public int count();
+
+  /**
+   * @throws IllegalArgumentException If v doesn't belong to the graph.
+   */
+  public int componentOf(Vertex<T> v) throws NullPointerException, IllegalArgumentException;
+
+  /**
+   * @return The number of vertices in a component.
+   */
+  public int size(int component);
+  public List<Vertex<T>> vertices(int component);
+
+  /**
+   * @return A new graph for each component, with its vertices and the edges between them.
+   */
+  public Set<Graph<T>> subGraphs();
+}
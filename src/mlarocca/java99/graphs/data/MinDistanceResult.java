@@ -9,4 +9,23 @@ public interface MinDistanceResult<T> {
   public Map<Vertex<T>, Vertex<T>> predecessors();
   public Map<Vertex<T>, Double> distances();
   public List<Vertex<T>> path();
+
+  /**
+   * @return The distance of v from the source, or positive infinity if v wasn't reached.
+   */
+  public default double distanceTo(Vertex<T> v) {
+    return distances().getOrDefault(v, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * @return The vertex preceding v on the path from the source, or null if v is the source
+   *         or it wasn't reached.
+   */
+  public default Vertex<T> predecessorOf(Vertex<T> v) {
+    return predecessors().get(v);
+  }
+
+  public default boolean isReached(Vertex<T> v) {
+    return distances().containsKey(v);
+  }
 }
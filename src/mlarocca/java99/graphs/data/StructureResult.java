@@ -7,4 +7,15 @@ import mlarocca.java99.graphs.Vertex;
 public interface StructureResult<T> {
   public Boolean isAcyclic();
   public Map<Vertex<T>, Integer> exitTimes();
+
+  /**
+   * @return The exit time of v, or -1 if v wasn't reached.
+   */
+  public default int exitTime(Vertex<T> v) {
+    return exitTimes().getOrDefault(v, -1);
+  }
+
+  public default boolean isReached(Vertex<T> v) {
+    return exitTimes().containsKey(v);
+  }
 }
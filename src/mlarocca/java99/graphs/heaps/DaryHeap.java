@@ -0,0 +1,161 @@
+package mlarocca.java99.graphs.heaps;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed d-ary heap: O(log_d n) add, decreasePriority and poll.
+ * Wider heaps are shallower, which makes decreasePriority (the most frequent
+ * operation in Dijkstra's algorithm on dense graphs) cheaper, at the price of
+ * more comparisons when polling.
+ */
+public class DaryHeap implements IndexedPriorityQueue {
+
+  private static final int NOT_IN_HEAP = -1;
+  
+  private final int branching;
+  //heap[i] is the key stored at position i
+  private final int[] heap;
+  //positions[key] is the position of key in heap, or NOT_IN_HEAP
+  private final int[] positions;
+  private final double[] priorities;
+  private int size;
+  
+  /**
+   * Creates a binary heap.
+   * 
+   * @param capacity Keys will be in [0, capacity).
+   */
+  public DaryHeap(int capacity) {
+    this(capacity, 2);
+  }
+  
+  /**
+   * @param capacity Keys will be in [0, capacity).
+   * @param branching Number of children of each node.
+   */
+  public DaryHeap(int capacity, int branching) throws IllegalArgumentException {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Capacity can't be negative");
+    }
+    if (branching < 2) {
+      throw new IllegalArgumentException("Each node must have at least 2 children");
+    }
+    this.branching = branching;
+    heap = new int[capacity];
+    positions = new int[capacity];
+    priorities = new double[capacity];
+    Arrays.fill(positions, NOT_IN_HEAP);
+    size = 0;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean contains(int key) {
+    return positions[key] != NOT_IN_HEAP;
+  }
+
+  @Override
+  public double priority(int key) throws NoSuchElementException {
+    if (!contains(key)) {
+      throw new NoSuchElementException("Key not in the heap");
+    }
+    return priorities[key];
+  }
+
+  @Override
+  public void add(int key, double priority) throws IllegalArgumentException {
+    if (contains(key)) {
+      throw new IllegalArgumentException("Key already in the heap");
+    }
+    priorities[key] = priority;
+    heap[size] = key;
+    positions[key] = size;
+    size += 1;
+    bubbleUp(size - 1);
+  }
+
+  @Override
+  public void decreasePriority(int key, double priority) throws NoSuchElementException, IllegalArgumentException {
+    if (priority > priority(key)) {
+      throw new IllegalArgumentException("New priority is larger than the current one");
+    }
+    priorities[key] = priority;
+    bubbleUp(positions[key]);
+  }
+
+  @Override
+  public int peek() throws NoSuchElementException {
+    if (isEmpty()) {
+      throw new NoSuchElementException("Empty heap");
+    }
+    return heap[0];
+  }
+
+  @Override
+  public int poll() throws NoSuchElementException {
+    int top = peek();
+    size -= 1;
+    positions[top] = NOT_IN_HEAP;
+    if (size > 0) {
+      int last = heap[size];
+      heap[0] = last;
+      positions[last] = 0;
+      pushDown(0);
+    }
+    return top;
+  }
+  
+  private void bubbleUp(int position) {
+    int key = heap[position];
+    double priority = priorities[key];
+    while (position > 0) {
+      int parentPosition = (position - 1) / branching;
+      int parent = heap[parentPosition];
+      if (priorities[parent] <= priority) {
+        break;
+      }
+      heap[position] = parent;
+      positions[parent] = position;
+      position = parentPosition;
+    }
+    heap[position] = key;
+    positions[key] = position;
+  }
+  
+  private void pushDown(int position) {
+    int key = heap[position];
+    double priority = priorities[key];
+    while (true) {
+      int firstChild = branching * position + 1;
+      if (firstChild >= size) {
+        break;
+      }
+      int lastChild = Math.min(firstChild + branching, size);
+      int minChildPosition = firstChild;
+      for (int c = firstChild + 1; c < lastChild; c++) {
+        if (priorities[heap[c]] < priorities[heap[minChildPosition]]) {
+          minChildPosition = c;
+        }
+      }
+      int minChild = heap[minChildPosition];
+      if (priorities[minChild] >= priority) {
+        break;
+      }
+      heap[position] = minChild;
+      positions[minChild] = position;
+      position = minChildPosition;
+    }
+    heap[position] = key;
+    positions[key] = position;
+  }
+}
@@ -0,0 +1,158 @@
+package mlarocca.java99.graphs.heaps;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Dial's bucket queue, for integer priorities.
+ * 
+ * All the priorities in the queue must be within a window [m, m + maxSpread], where m
+ * is the last priority polled (or the smallest one added since then). This holds for
+ * Dijkstra's algorithm when edge weights are integers in [0, maxSpread], and for Prim's
+ * algorithm as well. Each of the maxSpread + 1 buckets, used circularly, then holds keys
+ * with a single priority, so add and decreasePriority are O(1) and poll is O(maxSpread)
+ * in the worst case.
+ */
+public class DialHeap implements IndexedPriorityQueue {
+
+  private static final int NIL = -1;
+
+  private final int bucketsNumber;
+  private final int[] bucketHeads;
+  //Doubly linked lists of the keys in each bucket
+  private final int[] next;
+  private final int[] previous;
+  private final long[] priorities;
+  private final boolean[] inQueue;
+  //Lower bound for the priorities in the queue
+  private long cursor;
+  private int size;
+  
+  /**
+   * @param capacity Keys will be in [0, capacity).
+   * @param maxSpread Largest difference between two priorities in the queue at
+   *        the same time, e.g. the largest edge weight.
+   */
+  public DialHeap(int capacity, int maxSpread) throws IllegalArgumentException {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Capacity can't be negative");
+    }
+    if (maxSpread < 0 || maxSpread == Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid spread");
+    }
+    bucketsNumber = maxSpread + 1;
+    bucketHeads = new int[bucketsNumber];
+    next = new int[capacity];
+    previous = new int[capacity];
+    priorities = new long[capacity];
+    inQueue = new boolean[capacity];
+    Arrays.fill(bucketHeads, NIL);
+    cursor = 0;
+    size = 0;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean contains(int key) {
+    return inQueue[key];
+  }
+
+  @Override
+  public double priority(int key) throws NoSuchElementException {
+    if (!contains(key)) {
+      throw new NoSuchElementException("Key not in the queue");
+    }
+    return priorities[key];
+  }
+  
+  private long checkPriority(double priority) throws IllegalArgumentException {
+    if (Double.isInfinite(priority) || priority != Math.rint(priority)) {
+      throw new IllegalArgumentException("DialHeap only supports integer priorities");
+    }
+    long p = (long) priority;
+    if (!isEmpty() && p > cursor + bucketsNumber - 1) {
+      throw new IllegalArgumentException("Priority out of the queue's window");
+    }
+    return p;
+  }
+  
+  private int bucket(long priority) {
+    return (int) Math.floorMod(priority, (long) bucketsNumber);
+  }
+
+  private void link(int key, long priority) {
+    if (isEmpty() || priority < cursor) {
+      cursor = priority;
+    }
+    int b = bucket(priority);
+    priorities[key] = priority;
+    previous[key] = NIL;
+    next[key] = bucketHeads[b];
+    if (bucketHeads[b] != NIL) {
+      previous[bucketHeads[b]] = key;
+    }
+    bucketHeads[b] = key;
+  }
+  
+  private void unlink(int key) {
+    if (previous[key] != NIL) {
+      next[previous[key]] = next[key];
+    } else {
+      bucketHeads[bucket(priorities[key])] = next[key];
+    }
+    if (next[key] != NIL) {
+      previous[next[key]] = previous[key];
+    }
+  }
+  
+  @Override
+  public void add(int key, double priority) throws IllegalArgumentException {
+    if (contains(key)) {
+      throw new IllegalArgumentException("Key already in the queue");
+    }
+    long p = checkPriority(priority);
+    link(key, p);
+    inQueue[key] = true;
+    size += 1;
+  }
+
+  @Override
+  public void decreasePriority(int key, double priority) throws NoSuchElementException, IllegalArgumentException {
+    if (priority > priority(key)) {
+      throw new IllegalArgumentException("New priority is larger than the current one");
+    }
+    long p = checkPriority(priority);
+    unlink(key);
+    link(key, p);
+  }
+
+  @Override
+  public int peek() throws NoSuchElementException {
+    if (isEmpty()) {
+      throw new NoSuchElementException("Empty queue");
+    }
+    //INVARIANT: all priorities are in [cursor, cursor + bucketsNumber - 1]
+    while (bucketHeads[bucket(cursor)] == NIL) {
+      cursor += 1;
+    }
+    return bucketHeads[bucket(cursor)];
+  }
+
+  @Override
+  public int poll() throws NoSuchElementException {
+    int key = peek();
+    unlink(key);
+    inQueue[key] = false;
+    size -= 1;
+    return key;
+  }
+}
@@ -0,0 +1,59 @@
+package mlarocca.java99.graphs.heaps;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Min priority queue whose elements are integer keys in [0, capacity), typically
+ * the indices of a graph's vertices, with primitive double priorities.
+ * Knowing where each key is stored allows priorities to be decreased in place.
+ */
+public interface IndexedPriorityQueue {
+  public boolean isEmpty();
+  public int size();
+  public boolean contains(int key);
+  
+  /**
+   * @throws NoSuchElementException If key isn't in the queue.
+   */
+  public double priority(int key) throws NoSuchElementException;
+  
+  /**
+   * @throws IllegalArgumentException If key is already in the queue, or if the
+   *         priority isn't supported by the implementation.
+   */
+  public void add(int key, double priority) throws IllegalArgumentException;
+  
+  /**
+   * @throws NoSuchElementException If key isn't in the queue.
+   * @throws IllegalArgumentException If priority is larger than the current one.
+   */
+  public void decreasePriority(int key, double priority) throws NoSuchElementException, IllegalArgumentException;
+  
+  /**
+   * @return The key with the smallest priority, without removing it.
+   * @throws NoSuchElementException If the queue is empty.
+   */
+  public int peek() throws NoSuchElementException;
+  
+  /**
+   * @return The key with the smallest priority, after removing it from the queue.
+   * @throws NoSuchElementException If the queue is empty.
+   */
+  public int poll() throws NoSuchElementException;
+  
+  /**
+   * Adds key to the queue, or lowers its priority if it's already in the queue.
+   * 
+   * @return True iff the queue was changed.
+   */
+  public default boolean addOrDecreasePriority(int key, double priority) {
+    if (!contains(key)) {
+      add(key, priority);
+      return true;
+    } else if (priority < priority(key)) {
+      decreasePriority(key, priority);
+      return true;
+    }
+    return false;
+  }
+}
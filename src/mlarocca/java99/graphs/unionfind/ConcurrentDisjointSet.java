@@ -0,0 +1,93 @@
+package mlarocca.java99.graphs.unionfind;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free union-find, safe to use from several threads at once.
+ * Roots are linked with a compare-and-set on their parent, always from the larger to
+ * the smaller index (so that no cycle can be created), and paths are shortened with
+ * path halving, also through compare-and-set.
+ */
+public class ConcurrentDisjointSet implements UnionFind {
+
+  private final AtomicIntegerArray parents;
+  private final AtomicInteger count;
+
+  /**
+   * Creates size singleton sets.
+   */
+  public ConcurrentDisjointSet(int size) throws IllegalArgumentException {
+    if (size < 0) {
+      throw new IllegalArgumentException("Size can't be negative");
+    }
+    parents = new AtomicIntegerArray(size);
+    for (int i = 0; i < size; i++) {
+      parents.set(i, i);
+    }
+    count = new AtomicInteger(size);
+  }
+
+  @Override
+  public int size() {
+    return parents.length();
+  }
+
+  @Override
+  public int count() {
+    return count.get();
+  }
+
+  @Override
+  public int find(int x) throws IndexOutOfBoundsException {
+    int parent = parents.get(x);
+    while (parent != x) {
+      int grandParent = parents.get(parent);
+      //Path halving: if it fails, another thread already changed x's parent
+      parents.compareAndSet(x, parent, grandParent);
+      x = grandParent;
+      parent = parents.get(x);
+    }
+    return x;
+  }
+
+  @Override
+  public boolean union(int x, int y) throws IndexOutOfBoundsException {
+    while (true) {
+      int rootX = find(x);
+      int rootY = find(y);
+      if (rootX == rootY) {
+        return false;
+      }
+      if (rootX < rootY) {
+        int tmp = rootX;
+        rootX = rootY;
+        rootY = tmp;
+      }
+      //Fails if rootX stopped being a root in the meantime: retry from the new roots
+      if (parents.compareAndSet(rootX, rootX, rootY)) {
+        count.decrementAndGet();
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Safe while other threads are merging sets: the answer is exact when it returns true,
+   * and reflects some moment during the call when it returns false.
+   */
+  @Override
+  public boolean connected(int x, int y) throws IndexOutOfBoundsException {
+    while (true) {
+      int rootX = find(x);
+      int rootY = find(y);
+      if (rootX == rootY) {
+        return true;
+      }
+      //If rootX is still a root, then x and y were in different sets when rootY was found
+      if (parents.get(rootX) == rootX) {
+        return false;
+      }
+    }
+  }
+}
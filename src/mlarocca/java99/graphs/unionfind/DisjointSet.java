@@ -0,0 +1,72 @@
+package mlarocca.java99.graphs.unionfind;
+
+/**
+ * Union-find with union by rank and path compression: a sequence of m operations
+ * takes O(m alpha(n)) time. Not thread safe: see {@link ConcurrentDisjointSet}.
+ */
+public class DisjointSet implements UnionFind {
+
+  private final int[] parents;
+  private final byte[] ranks;
+  private int count;
+
+  /**
+   * Creates size singleton sets.
+   */
+  public DisjointSet(int size) throws IllegalArgumentException {
+    if (size < 0) {
+      throw new IllegalArgumentException("Size can't be negative");
+    }
+    parents = new int[size];
+    ranks = new byte[size];
+    for (int i = 0; i < size; i++) {
+      parents[i] = i;
+    }
+    count = size;
+  }
+
+  @Override
+  public int size() {
+    return parents.length;
+  }
+
+  @Override
+  public int count() {
+    return count;
+  }
+
+  @Override
+  public int find(int x) throws IndexOutOfBoundsException {
+    int root = x;
+    while (parents[root] != root) {
+      root = parents[root];
+    }
+    //Path compression: every vertex on the path now points to the root
+    while (parents[x] != root) {
+      int next = parents[x];
+      parents[x] = root;
+      x = next;
+    }
+    return root;
+  }
+
+  @Override
+  public boolean union(int x, int y) throws IndexOutOfBoundsException {
+    int rootX = find(x);
+    int rootY = find(y);
+    if (rootX == rootY) {
+      return false;
+    }
+    //Union by rank: the shallower tree goes under the root of the deeper one
+    if (ranks[rootX] < ranks[rootY]) {
+      parents[rootX] = rootY;
+    } else if (ranks[rootX] > ranks[rootY]) {
+      parents[rootY] = rootX;
+    } else {
+      parents[rootY] = rootX;
+      ranks[rootX] += 1;
+    }
+    count -= 1;
+    return true;
+  }
+}
@@ -0,0 +1,97 @@
+package mlarocca.java99.graphs.unionfind;
+
+import java.util.Arrays;
+
+/**
+ * Union-find whose elements can be added at any time, keeping track of the size of each
+ * set: union by size and path halving, so that a sequence of m operations takes
+ * O(m alpha(n)) amortized time. Not thread safe.
+ */
+public class GrowableDisjointSet implements UnionFind {
+
+  private int[] parents;
+  //Only meaningful for representatives: the number of elements in their set
+  private int[] sizes;
+  private int size;
+  private int count;
+
+  /**
+   * Creates size singleton sets.
+   */
+  public GrowableDisjointSet(int size) throws IllegalArgumentException {
+    if (size < 0) {
+      throw new IllegalArgumentException("Size can't be negative");
+    }
+    parents = new int[Math.max(size, 8)];
+    sizes = new int[parents.length];
+    while (this.size < size) {
+      add();
+    }
+  }
+
+  /**
+   * Adds a new singleton set.
+   *
+   * @return The new element, size() - 1.
+   */
+  public int add() {
+    if (size == parents.length) {
+      parents = Arrays.copyOf(parents, 2 * size);
+      sizes = Arrays.copyOf(sizes, 2 * size);
+    }
+    parents[size] = size;
+    sizes[size] = 1;
+    count += 1;
+    return size++;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int count() {
+    return count;
+  }
+
+  @Override
+  public int find(int x) throws IndexOutOfBoundsException {
+    if (x < 0 || x >= size) {
+      throw new IndexOutOfBoundsException();
+    }
+    while (parents[x] != x) {
+      //Path halving: every other vertex on the path skips its parent
+      parents[x] = parents[parents[x]];
+      x = parents[x];
+    }
+    return x;
+  }
+
+  @Override
+  public boolean union(int x, int y) throws IndexOutOfBoundsException {
+    int rootX = find(x);
+    int rootY = find(y);
+    if (rootX == rootY) {
+      return false;
+    }
+    //Union by size: the smaller tree goes under the root of the larger one
+    if (sizes[rootX] < sizes[rootY]) {
+      int tmp = rootX;
+      rootX = rootY;
+      rootY = tmp;
+    }
+    parents[rootY] = rootX;
+    sizes[rootX] += sizes[rootY];
+    count -= 1;
+    return true;
+  }
+
+  /**
+   * @return The number of elements in the set containing x.
+   * @throws IndexOutOfBoundsException If x isn't in [0, size()).
+   */
+  public int setSize(int x) throws IndexOutOfBoundsException {
+    return sizes[find(x)];
+  }
+}
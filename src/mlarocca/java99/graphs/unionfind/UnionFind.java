@@ -0,0 +1,32 @@
+package mlarocca.java99.graphs.unionfind;
+
+/**
+ * Partition of the integers in [0, size()) into disjoint sets, each identified by one
+ * of its elements (its representative).
+ */
+public interface UnionFind {
+  public int size();
+
+  /**
+   * @return The number of disjoint sets.
+   */
+  public int count();
+
+  /**
+   * @return The representative of the set containing x.
+   * @throws IndexOutOfBoundsException If x isn't in [0, size()).
+   */
+  public int find(int x) throws IndexOutOfBoundsException;
+
+  /**
+   * Merges the sets containing x and y.
+   *
+   * @return True iff x and y were in different sets.
+   * @throws IndexOutOfBoundsException If x or y aren't in [0, size()).
+   */
+  public boolean union(int x, int y) throws IndexOutOfBoundsException;
+
+  public default boolean connected(int x, int y) throws IndexOutOfBoundsException {
+    return find(x) == find(y);
+  }
+}
@@ -0,0 +1,240 @@
+package mlarocca.java99.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import mlarocca.java99.graphs.data.MinDistanceResult;
+
+public class CompactGraphTest {
+
+  private static Graph<String> directedGraph;
+  private static Graph<String> weightedGraph;
+  private static Graph<String> undirectedGraph;
+
+  private static CompactGraph<String> compactDirectedGraph;
+  private static CompactGraph<String> compactWeightedGraph;
+  private static CompactGraph<String> compactUndirectedGraph;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    directedGraph = SimpleGraph.fromString("[c>a, c>b, c>d, f>c, c>h, d>e, d>f, i>e, f>g, g>i, h>i, i>c, j]");
+    weightedGraph = SimpleGraph.fromString("[a>b/1, b>c/4, c>d/2.5, d>a/2, a>c/7, b>d/1, d>d/3]");
+    undirectedGraph = SimpleGraph.fromString("[u-v/1, v-w/4, w-z/2.5, z-u/2, v-z/3]");
+
+    compactDirectedGraph = CompactGraph.fromGraph(directedGraph);
+    compactWeightedGraph = CompactGraph.fromGraph(weightedGraph);
+    compactUndirectedGraph = CompactGraph.fromGraph(undirectedGraph);
+  }
+
+  private static <T> Vertex<T> vertex(Graph<T> g, String label) {
+    return g.getVertex(label).get();
+  }
+
+  @Test
+  public void testFreeze() {
+    assertEquals(directedGraph.getVertices(), compactDirectedGraph.getVertices());
+    assertEquals(directedGraph.getEdges(), compactDirectedGraph.getEdges());
+    assertEquals(directedGraph.size(), compactDirectedGraph.size());
+    assertEquals(directedGraph.edgesSize(), compactDirectedGraph.edgesSize());
+    assertEquals(directedGraph.hashCode(), compactDirectedGraph.hashCode());
+
+    CompactGraph<String> frozen = ((SimpleGraph<String>) weightedGraph).freeze();
+    assertEquals(compactWeightedGraph, frozen);
+    assertSame(frozen, frozen.freeze());
+  }
+
+  @Test
+  public void testThaw() {
+    assertEquals(weightedGraph, compactWeightedGraph.thaw());
+    assertEquals(directedGraph, compactDirectedGraph.thaw());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAddVertex() {
+    compactDirectedGraph.addVertex("z");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAddEdge() {
+    compactDirectedGraph.addEdge(vertex(compactDirectedGraph, "a"), vertex(compactDirectedGraph, "b"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetOrAddMissingVertex() {
+    compactDirectedGraph.getOrAddVertex("z");
+  }
+
+  @Test
+  public void testGetOrAddExistingVertex() {
+    assertEquals(vertex(directedGraph, "a"), compactDirectedGraph.getOrAddVertex("a"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetEdgesFromInvalidVertex() {
+    compactDirectedGraph.getEdgesFrom(new SimpleVertex<>("banana"));
+  }
+
+  @Test
+  public void testAdjacency() {
+    for (Vertex<String> v : directedGraph.getVertices()) {
+      assertEquals(new HashSet<>(directedGraph.getEdgesFrom(v)), new HashSet<>(compactDirectedGraph.getEdgesFrom(v)));
+      assertEquals(directedGraph.getEdgesTo(v), compactDirectedGraph.getEdgesTo(v));
+      assertEquals(directedGraph.getNeighbours(v), compactDirectedGraph.getNeighbours(v));
+      assertEquals(directedGraph.getAdjacentVertices(v), compactDirectedGraph.getAdjacentVertices(v));
+      assertEquals(directedGraph.inDegree(v), compactDirectedGraph.inDegree(v));
+      assertEquals(directedGraph.outDegree(v), compactDirectedGraph.outDegree(v));
+    }
+    Vertex<String> a = vertex(weightedGraph, "a");
+    Vertex<String> c = vertex(weightedGraph, "c");
+    assertEquals(7.0, compactWeightedGraph.getEdgeBetween(a, c).get().getWeight(), 0.0);
+    assertFalse(compactWeightedGraph.getEdgeBetween(c, a).isPresent());
+  }
+
+  @Test
+  public void testDfs() {
+    //Exit times depend on the order edges are followed: thaw() adds them in the same order as the compact graph
+    Graph<String> thawed = compactDirectedGraph.thaw();
+    assertEquals(thawed.dfs().exitTimes(), compactDirectedGraph.dfs().exitTimes());
+    assertEquals(directedGraph.dfs().isAcyclic(), compactDirectedGraph.dfs().isAcyclic());
+    for (Vertex<String> v : directedGraph.getVertices()) {
+      assertEquals(thawed.dfs(v).exitTimes(), compactDirectedGraph.dfs(v).exitTimes());
+      assertEquals(directedGraph.dfs(v).exitTimes().keySet(), compactDirectedGraph.dfs(v).exitTimes().keySet());
+    }
+    assertEquals(directedGraph.topologicalOrder(), compactDirectedGraph.topologicalOrder());
+    assertEquals(weightedGraph.topologicalOrder(), compactWeightedGraph.topologicalOrder());
+  }
+
+  @Test
+  public void testDfsFromVertexToTarget() {
+    Vertex<String> c = vertex(directedGraph, "c");
+    Vertex<String> e = vertex(directedGraph, "e");
+    Vertex<String> j = vertex(directedGraph, "j");
+    assertEquals(directedGraph.dfs(c, e), compactDirectedGraph.dfs(c, e));
+    assertNull(compactDirectedGraph.dfs(c, j));
+  }
+
+  @Test
+  public void testBfs() {
+    for (Vertex<String> v : directedGraph.getVertices()) {
+      MinDistanceResult<String> expected = directedGraph.bfs(v);
+      MinDistanceResult<String> result = compactDirectedGraph.bfs(v);
+      assertEquals(expected.distances(), result.distances());
+      assertEquals(expected.predecessors().keySet(), result.predecessors().keySet());
+      //Ties may be broken differently, but every predecessor must be on a shortest path
+      result.predecessors().forEach((u, p) -> {
+        if (p != null) {
+          assertEquals(result.distances().get(p) + 1.0, result.distances().get(u), 0.0);
+        }
+      });
+      assertNull(result.path());
+    }
+    Vertex<String> c = vertex(directedGraph, "c");
+    Vertex<String> e = vertex(directedGraph, "e");
+    assertEquals(Arrays.asList("c", "d", "e"), labels(compactDirectedGraph.bfs(c, e).path()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBfsFromInvalidVertex() {
+    compactDirectedGraph.bfs(new SimpleVertex<>("banana"));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testBfsFromNullVertex() {
+    compactDirectedGraph.bfs(null);
+  }
+
+  @Test
+  public void testDijkstra() {
+    for (Vertex<String> v : weightedGraph.getVertices()) {
+      assertEquals(weightedGraph.dijkstra(v).distances(), compactWeightedGraph.dijkstra(v).distances());
+      for (Vertex<String> u : weightedGraph.getVertices()) {
+        assertEquals(weightedGraph.dijkstra(v, u).path(), compactWeightedGraph.dijkstra(v, u).path());
+      }
+    }
+    Vertex<String> a = vertex(weightedGraph, "a");
+    Vertex<String> d = vertex(weightedGraph, "d");
+    MinDistanceResult<String> result = compactWeightedGraph.dijkstra(a, d);
+    assertEquals(Arrays.asList("a", "b", "d"), labels(result.path()));
+    assertEquals((Double) 2.0, result.distances().get(d));
+  }
+
+  @Test
+  public void testAStar() {
+    Vertex<String> a = vertex(weightedGraph, "a");
+    Vertex<String> c = vertex(weightedGraph, "c");
+    MinDistanceResult<String> result = compactWeightedGraph.AStar(a, c, v -> v.getLabel().equals("b") ? 4.0 : 0.0);
+    assertEquals(Arrays.asList("a", "b", "c"), labels(result.path()));
+    assertEquals((Double) 5.0, result.distances().get(c));
+  }
+
+  @Test
+  public void testBidirectionalDijkstra() {
+    for (Vertex<String> v : weightedGraph.getVertices()) {
+      for (Vertex<String> u : weightedGraph.getVertices()) {
+        MinDistanceResult<String> expected = weightedGraph.dijkstra(v, u);
+        MinDistanceResult<String> result = compactWeightedGraph.bidirectionalDijkstra(v, u);
+        assertEquals(expected.distanceTo(u), result.distanceTo(u), 0.0);
+        assertEquals(expected.path(), result.path());
+      }
+    }
+  }
+
+  @Test
+  public void testPrim() {
+    assertEquals(undirectedGraph.prim(), compactUndirectedGraph.prim());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testPrimDirected() {
+    compactWeightedGraph.prim();
+  }
+
+  @Test
+  public void testStructure() {
+    for (Graph<String> g : Arrays.asList(directedGraph, weightedGraph, undirectedGraph,
+        SimpleGraph.<String>fromString("[a>b, b>c]"), SimpleGraph.<String>fromString("[a-b, c]"), new SimpleGraph<String>())) {
+      CompactGraph<String> compact = CompactGraph.fromGraph(g);
+      assertEquals(g.isConnected(), compact.isConnected());
+      assertEquals(g.isAcyclic(), compact.isAcyclic());
+      assertEquals(g.isTree(), compact.isTree());
+      assertEquals(g.isUndirected(), compact.isUndirected());
+      assertEquals(g.isBipartite(), compact.isBipartite());
+      assertEquals(g.verticesByDegree(), compact.verticesByDegree());
+    }
+  }
+
+  @Test
+  public void testInverse() {
+    assertEquals(directedGraph.inverse().getEdges(), compactDirectedGraph.inverse().getEdges());
+    assertEquals(compactWeightedGraph, compactWeightedGraph.inverse().inverse());
+  }
+
+  @Test
+  public void testSubGraph() {
+    Set<String> subset = new HashSet<>(Arrays.asList("c", "d", "f", "j"));
+    assertEquals(directedGraph.subGraph(subset), compactDirectedGraph.subGraph(subset));
+  }
+
+  @Test
+  public void testVerticesByDepthFrom() {
+    assertEquals(directedGraph.verticesByDepthFrom("c"), compactDirectedGraph.verticesByDepthFrom("c"));
+  }
+
+  @Test
+  public void testComponents() {
+    assertEquals(directedGraph.stronglyConnectedComponents(), compactDirectedGraph.stronglyConnectedComponents());
+    assertEquals(undirectedGraph.connectedComponents(), compactUndirectedGraph.connectedComponents());
+  }
+
+  private static <T> List<String> labels(List<Vertex<T>> path) {
+    return path.stream().map(Vertex::getLabel).collect(Collectors.toList());
+  }
+}
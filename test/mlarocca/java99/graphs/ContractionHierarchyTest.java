@@ -0,0 +1,139 @@
+package mlarocca.java99.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import mlarocca.java99.graphs.data.MinDistanceResult;
+
+public class ContractionHierarchyTest {
+
+  private static Graph<String> weightedGraph;
+  private static Graph<Integer> network;
+  private static ContractionHierarchy<String> weightedHierarchy;
+  private static ContractionHierarchy<Integer> networkHierarchy;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    weightedGraph = SimpleGraph.fromString("[a>b/1, b>c/4, c>d/2.5, d>a/2, a>c/7, b>d/1, d>d/3, e]");
+    weightedHierarchy = weightedGraph.contractionHierarchy();
+    network = randomNetwork(300, 900, 5);
+    networkHierarchy = network.contractionHierarchy();
+  }
+
+  //A random spanning path plus random chords, so that most pairs are connected
+  private static Graph<Integer> randomNetwork(int size, int chords, long seed) {
+    Random random = new Random(seed);
+    Graph<Integer> graph = new SimpleGraph<>();
+    for (int i = 0; i < size; i++) {
+      graph.addVertex("v" + i, i);
+    }
+    List<Vertex<Integer>> vertices = graph.getVertices();
+    for (int i = 1; i < size; i++) {
+      graph.addEdge(vertices.get(i - 1), vertices.get(i), 1 + random.nextInt(10));
+    }
+    for (int i = 0; i < chords; i++) {
+      graph.addEdge(vertices.get(random.nextInt(size)), vertices.get(random.nextInt(size)), 1 + random.nextInt(10));
+    }
+    return graph;
+  }
+
+  private static <T> double pathLength(Graph<T> graph, List<Vertex<T>> path) {
+    double length = 0.0;
+    for (int i = 1; i < path.size(); i++) {
+      length += graph.getEdgeBetween(path.get(i - 1), path.get(i)).get().getWeight();
+    }
+    return length;
+  }
+
+  @Test
+  public void testQuery() {
+    for (Vertex<String> v : weightedGraph.getVertices()) {
+      for (Vertex<String> u : weightedGraph.getVertices()) {
+        MinDistanceResult<String> expected = weightedGraph.dijkstra(v, u);
+        MinDistanceResult<String> result = weightedHierarchy.query(v, u);
+        assertEquals(expected.distanceTo(u), result.distanceTo(u), 0.0);
+        assertEquals(expected.distanceTo(u), weightedHierarchy.distance(v, u), 0.0);
+        assertEquals(expected.path(), result.path());
+      }
+    }
+  }
+
+  @Test
+  public void testQueryUnreachable() {
+    Vertex<String> a = weightedGraph.getVertex("a").get();
+    Vertex<String> e = weightedGraph.getVertex("e").get();
+    MinDistanceResult<String> result = weightedHierarchy.query(a, e);
+    assertNull(result.path());
+    assertFalse(result.isReached(e));
+    assertEquals(0.0, result.distanceTo(a), 0.0);
+    assertEquals(Double.POSITIVE_INFINITY, weightedHierarchy.distance(a, e), 0.0);
+  }
+
+  @Test
+  public void testRandomNetwork() {
+    Random random = new Random(11);
+    List<Vertex<Integer>> vertices = network.getVertices();
+    for (int i = 0; i < 200; i++) {
+      Vertex<Integer> source = vertices.get(random.nextInt(vertices.size()));
+      Vertex<Integer> target = vertices.get(random.nextInt(vertices.size()));
+      MinDistanceResult<Integer> expected = network.dijkstra(source, target);
+      MinDistanceResult<Integer> result = networkHierarchy.query(source, target);
+      assertEquals(expected.distanceTo(target), networkHierarchy.distance(source, target), 0.0);
+      assertEquals(expected.distanceTo(target), result.distanceTo(target), 0.0);
+      if (expected.path() == null) {
+        assertNull(result.path());
+      } else {
+        //Ties may be broken differently, but the unpacked path must use the original edges
+        List<Vertex<Integer>> path = result.path();
+        assertEquals(source, path.get(0));
+        assertEquals(target, path.get(path.size() - 1));
+        assertEquals(expected.distanceTo(target), pathLength(network, path), 0.0);
+        for (int k = 1; k < path.size(); k++) {
+          assertEquals(path.get(k - 1), result.predecessorOf(path.get(k)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testUndirected() {
+    Graph<String> g = SimpleGraph.fromString("[u-v/1, v-w/4, w-z/2.5, z-u/2, v-z/3]");
+    ContractionHierarchy<String> hierarchy = ContractionHierarchy.fromGraph(g);
+    for (Vertex<String> v : g.getVertices()) {
+      for (Vertex<String> u : g.getVertices()) {
+        assertEquals(g.dijkstra(v, u).distanceTo(u), hierarchy.distance(v, u), 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testSnapshot() {
+    Graph<String> g = SimpleGraph.fromString("[a>b/5]");
+    ContractionHierarchy<String> hierarchy = g.contractionHierarchy();
+    Vertex<String> a = g.getVertex("a").get();
+    Vertex<String> b = g.getVertex("b").get();
+    g.addEdge(a, g.addVertex("c"), 1);
+    g.addEdge(g.getVertex("c").get(), b, 1);
+    assertEquals(5.0, hierarchy.distance(a, b), 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeWeights() {
+    SimpleGraph.fromString("[a>b/-1]").contractionHierarchy();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testQueryFromInvalidVertex() {
+    weightedHierarchy.query(new SimpleVertex<>("banana"), weightedGraph.getVertex("a").get());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testQueryToNullVertex() {
+    weightedHierarchy.distance(weightedGraph.getVertex("a").get(), null);
+  }
+}
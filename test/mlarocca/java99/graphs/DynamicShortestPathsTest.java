@@ -0,0 +1,133 @@
+package mlarocca.java99.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import mlarocca.java99.graphs.data.MinDistanceResult;
+
+public class DynamicShortestPathsTest {
+
+  private static <T> void assertSameTree(Graph<T> graph, DynamicShortestPaths<T> paths) {
+    MinDistanceResult<T> expected = graph.dijkstra(paths.source());
+    for (Vertex<T> v : graph.getVertices()) {
+      assertEquals(expected.distanceTo(v), paths.distanceTo(v), 1e-9);
+      Vertex<T> predecessor = paths.predecessorOf(v);
+      if (predecessor != null) {
+        //Ties can be broken differently, but the tree edge must be on a shortest path
+        double weight = graph.getEdgeBetween(predecessor, v).get().getWeight();
+        assertEquals(paths.distanceTo(v), paths.distanceTo(predecessor) + weight, 1e-9);
+      } else {
+        assertTrue(v.equals(paths.source()) || paths.distanceTo(v) == Double.POSITIVE_INFINITY);
+      }
+    }
+    assertEquals(expected.distances(), paths.shortestPaths().distances());
+  }
+
+  @Test
+  public void testAddEdge() {
+    SimpleGraph<String> g = (SimpleGraph<String>) SimpleGraph.<String>fromString("[a>b/4, b>c/4, c>d/1, a>e/10, f]");
+    Vertex<String> a = g.getVertex("a").get();
+    Vertex<String> b = g.getVertex("b").get();
+    Vertex<String> c = g.getVertex("c").get();
+    Vertex<String> d = g.getVertex("d").get();
+    Vertex<String> e = g.getVertex("e").get();
+    Vertex<String> f = g.getVertex("f").get();
+    DynamicShortestPaths<String> paths = g.dynamicShortestPaths(a);
+    assertEquals(9, paths.distanceTo(d), 0.0);
+    assertEquals(Double.POSITIVE_INFINITY, paths.distanceTo(f), 0.0);
+    assertNull(paths.pathTo(f));
+
+    //New edge
+    paths.addEdge(a, c, 3);
+    assertEquals(4, paths.distanceTo(d), 0.0);
+    assertEquals(Arrays.asList(a, c, d), paths.pathTo(d));
+    //Decrease
+    paths.addEdge(a, e, 1);
+    paths.addEdge(e, f, 1);
+    assertEquals(2, paths.distanceTo(f), 0.0);
+    assertSameTree(g, paths);
+    //Increase of a tree edge, and of an edge out of the tree
+    paths.addEdge(a, c, 9);
+    assertEquals(8, paths.distanceTo(c), 0.0);
+    assertEquals(b, paths.predecessorOf(c));
+    paths.addEdge(a, c, 12);
+    assertSameTree(g, paths);
+
+    //Vertices added to the graph directly
+    Vertex<String> x = g.addVertex("x");
+    assertEquals(Double.POSITIVE_INFINITY, paths.distanceTo(x), 0.0);
+    paths.addEdge(d, x, 0.5);
+    assertEquals(9.5, paths.distanceTo(x), 0.0);
+    assertSameTree(g, paths);
+
+    //Changes made to the graph directly
+    g.addEdge(a, x, 1);
+    paths.recompute();
+    assertEquals(1, paths.distanceTo(x), 0.0);
+    assertSameTree(g, paths);
+  }
+
+  @Test
+  public void testRandomUpdates() {
+    Random random = new Random(17);
+    int n = 400;
+    SimpleGraph<Integer> g = new SimpleGraph<>();
+    for (int i = 0; i < n; i++) {
+      g.addVertex("" + i, i);
+    }
+    for (int k = 0; k < 2 * n; k++) {
+      g.addEdge(g.vertexAt(random.nextInt(n)), g.vertexAt(random.nextInt(n)), 1 + random.nextInt(100));
+    }
+    DynamicShortestPaths<Integer> paths = g.dynamicShortestPaths(g.vertexAt(0));
+    assertSameTree(g, paths);
+    for (int k = 0; k < 300; k++) {
+      Vertex<Integer> u = g.vertexAt(random.nextInt(n));
+      Vertex<Integer> v = g.vertexAt(random.nextInt(n));
+      //Mostly decreases, a few increases
+      double weight = g.getEdgeBetween(u, v)
+        .map(e -> random.nextInt(5) == 0 ? e.getWeight() + 20 : e.getWeight() / 2)
+        .orElse(1.0 + random.nextInt(100));
+      paths.addEdge(u, v, weight);
+      if (k % 10 == 0) {
+        assertSameTree(g, paths);
+      }
+    }
+    assertSameTree(g, paths);
+  }
+
+  @Test
+  public void testInvalidArguments() {
+    SimpleGraph<String> g = (SimpleGraph<String>) SimpleGraph.<String>fromString("[a>b/1, c]");
+    Vertex<String> a = g.getVertex("a").get();
+    try {
+      g.dynamicShortestPaths(new SimpleVertex<>("x"));
+      fail();
+    } catch (IllegalArgumentException e) {
+      //Expected
+    }
+    DynamicShortestPaths<String> paths = g.dynamicShortestPaths(a);
+    try {
+      paths.addEdge(a, g.getVertex("c").get(), -1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertFalse(g.getEdgeBetween(a, g.getVertex("c").get()).isPresent());
+    }
+    try {
+      paths.addEdge(a, new SimpleVertex<>("x"), 1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      //Expected
+    }
+    g.addEdge(g.getVertex("c").get(), a, -1);
+    try {
+      g.dynamicShortestPaths(a);
+      fail();
+    } catch (IllegalArgumentException e) {
+      //Expected
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package mlarocca.java99.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GraphBuilderTest {
+
+  /**
+   * Same vertices, same edges and weights, in both directions, and same indexed views.
+   */
+  private static <T> void assertSameGraph(Graph<T> expected, Graph<T> actual) {
+    assertEquals(expected, actual);
+    assertEquals(expected.hashCode(), actual.hashCode());
+    assertEquals(expected.edgesSize(), actual.edgesSize());
+    for (Vertex<T> v : expected.getVertices()) {
+      assertEquals(expected.getVertex(v.getLabel()).get().getValue(), actual.getVertex(v.getLabel()).get().getValue());
+      assertEquals(expected.inDegree(v), actual.inDegree(v));
+      for (Edge<T> e : expected.getEdgesFrom(v)) {
+        assertEquals(e.getWeight(), actual.getEdgeBetween(e.getSource(), e.getDestination()).get().getWeight(), 0.0);
+      }
+      for (Edge<T> e : expected.getEdgesTo(v)) {
+        assertTrue(actual.getEdgesTo(v).stream().anyMatch(f -> f.equals(e) && f.getWeight() == e.getWeight()));
+      }
+    }
+    Vertex<T> source = expected.getVertices().get(0);
+    Vertex<T> target = expected.getVertices().get(expected.size() - 1);
+    assertEquals(expected.dijkstra(source).distances(), actual.dijkstra(source).distances());
+    assertEquals(
+        expected.bidirectionalDijkstra(source, target).distanceTo(target),
+        actual.bidirectionalDijkstra(source, target).distanceTo(target),
+        1e-9);
+  }
+
+  @Test
+  public void testBuild() {
+    Random random = new Random(3);
+    int n = 300;
+    GraphBuilder<Integer> builder = new GraphBuilder<>();
+    Graph<Integer> expected = new SimpleGraph<>();
+    for (int i = 0; i < n; i++) {
+      builder.addVertex("v" + i, i);
+      expected.addVertex("v" + i, i);
+    }
+    //Plenty of repeated edges, with different weights
+    for (int k = 0; k < 6 * n; k++) {
+      int u = random.nextInt(n);
+      int v = random.nextInt(n / 10);
+      double weight = 1 + random.nextInt(10);
+      builder.addEdge("v" + u, "v" + v, weight);
+      expected.addEdge(expected.getVertex("v" + u).get(), expected.getVertex("v" + v).get(), weight);
+    }
+    assertSameGraph(expected, builder.build());
+  }
+
+  @Test
+  public void testBuildAddsVertices() {
+    Graph<String> g = new GraphBuilder<String>()
+      .addVertex("f")
+      .addEdge("a", "b", 2)
+      .addUndirectedEdge("b", "c")
+      .addEdge("c", "a")
+      .addEdge("a", "b", 3)
+      .build();
+    assertSameGraph(SimpleGraph.fromString("[a>b/3, b-c, c>a, f]"), g);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBuildTwice() {
+    GraphBuilder<String> builder = new GraphBuilder<String>().addEdge("a", "b");
+    builder.build();
+    builder.addVertex("c");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateVertex() {
+    new GraphBuilder<String>().addEdge("a", "b").addVertex("a");
+  }
+
+  @Test
+  public void testAddEdges() {
+    Graph<String> g = SimpleGraph.fromString("[a>b/1, b>c/2, c>a/3, c>c/1, d]");
+    Graph<String> expected = SimpleGraph.fromString("[a>b/1, b>c/2, c>a/3, c>c/1, d]");
+    Vertex<String> a = g.getVertex("a").get();
+    Vertex<String> b = g.getVertex("b").get();
+    Vertex<String> c = g.getVertex("c").get();
+    Vertex<String> d = g.getVertex("d").get();
+    List<Edge<String>> batch = Arrays.asList(
+        new SimpleEdge<>(b, c, 5),
+        new SimpleEdge<>(a, d, 1),
+        new SimpleEdge<>(c, c, 4),
+        new SimpleEdge<>(d, a, 2),
+        new SimpleEdge<>(a, d, 7));
+    g.addEdges(batch);
+    batch.forEach(expected::addEdge);
+    assertSameGraph(expected, g);
+
+    g.addEdges(new ArrayList<>());
+    assertSameGraph(expected, g);
+  }
+
+  @Test
+  public void testAddEdgesInvalid() {
+    Graph<String> g = SimpleGraph.fromString("[a>b, c]");
+    Vertex<String> a = g.getVertex("a").get();
+    Vertex<String> c = g.getVertex("c").get();
+    try {
+      g.addEdges(Arrays.asList(new SimpleEdge<>(a, c), new SimpleEdge<>(a, new SimpleVertex<>("x"))));
+      fail();
+    } catch (IllegalArgumentException e) {
+      //Nothing was added
+      assertSameGraph(SimpleGraph.fromString("[a>b, c]"), g);
+    }
+    try {
+      g.addEdges(Arrays.asList(new SimpleEdge<>(a, c), null));
+      fail();
+    } catch (NullPointerException e) {
+      assertSameGraph(SimpleGraph.fromString("[a>b, c]"), g);
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAddEdgesToCompactGraph() {
+    Graph<String> g = SimpleGraph.<String>fromString("[a>b, c]").freeze();
+    g.addEdges(Arrays.asList(new SimpleEdge<>(g.getVertex("a").get(), g.getVertex("c").get())));
+  }
+}
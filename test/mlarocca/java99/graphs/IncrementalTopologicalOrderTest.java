@@ -0,0 +1,98 @@
+package mlarocca.java99.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IncrementalTopologicalOrderTest {
+
+  private static <T> void assertTopologicalOrder(Graph<T> graph, List<Vertex<T>> order) {
+    assertEquals(graph.size(), order.size());
+    Map<Vertex<T>, Integer> positions = new HashMap<>();
+    for (int p = 0; p < order.size(); p++) {
+      positions.put(order.get(p), p);
+    }
+    assertEquals(graph.size(), positions.size());
+    for (Edge<T> e : graph.getEdges()) {
+      assertTrue(positions.get(e.getSource()) < positions.get(e.getDestination()));
+    }
+  }
+
+  @Test
+  public void testAddEdge() {
+    SimpleGraph<String> g = (SimpleGraph<String>) SimpleGraph.<String>fromString("[a>b, b>c, d>e, f]");
+    Vertex<String> a = g.getVertex("a").get();
+    Vertex<String> b = g.getVertex("b").get();
+    Vertex<String> c = g.getVertex("c").get();
+    Vertex<String> d = g.getVertex("d").get();
+    Vertex<String> e = g.getVertex("e").get();
+    Vertex<String> f = g.getVertex("f").get();
+    IncrementalTopologicalOrder<String> order = g.incrementalTopologicalOrder();
+    assertTopologicalOrder(g, order.topologicalOrder());
+
+    assertTrue(order.addEdge(e, a, 2));
+    assertTrue(order.addEdge(f, d));
+    assertTrue(order.comesBefore(d, c));
+    assertTopologicalOrder(g, order.topologicalOrder());
+    //Replacing an edge is always fine
+    assertTrue(order.addEdge(e, a, 3));
+    assertEquals(3, g.getEdgeBetween(e, a).get().getWeight(), 0.0);
+
+    //Cycles are refused, and leave the graph unchanged
+    assertFalse(order.addEdge(c, d));
+    assertFalse(order.addEdge(b, b));
+    assertFalse(g.getEdgeBetween(c, d).isPresent());
+    assertFalse(g.getEdgeBetween(b, b).isPresent());
+    assertTrue(g.isAcyclic());
+    assertTopologicalOrder(g, order.topologicalOrder());
+
+    //Vertices added to the graph directly
+    Vertex<String> x = g.addVertex("x");
+    assertTrue(order.addEdge(x, b));
+    assertTopologicalOrder(g, order.topologicalOrder());
+
+    //Changes made to the graph directly
+    g.addEdge(c, d);
+    try {
+      order.recompute();
+      fail();
+    } catch (IllegalStateException ex) {
+      //Expected
+    }
+  }
+
+  @Test
+  public void testRandomEdges() {
+    Random random = new Random(23);
+    int n = 300;
+    SimpleGraph<Integer> g = new SimpleGraph<>();
+    for (int i = 0; i < n; i++) {
+      g.addVertex("" + i, i);
+    }
+    IncrementalTopologicalOrder<Integer> order = g.incrementalTopologicalOrder();
+    int added = 0;
+    for (int k = 0; k < 3 * n; k++) {
+      Vertex<Integer> u = g.vertexAt(random.nextInt(n));
+      Vertex<Integer> v = g.vertexAt(random.nextInt(n));
+      boolean closesCycle = u.equals(v) || g.dfs(v, u) != null;
+      assertEquals(!closesCycle, order.addEdge(u, v));
+      added += closesCycle ? 0 : 1;
+      if (k % 50 == 0) {
+        assertTopologicalOrder(g, order.topologicalOrder());
+      }
+    }
+    assertTrue(added > n);
+    assertTrue(g.isAcyclic());
+    assertTopologicalOrder(g, order.topologicalOrder());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCyclicGraph() {
+    ((SimpleGraph<String>) SimpleGraph.<String>fromString("[a>b, b>c, c>a]")).incrementalTopologicalOrder();
+  }
+}
@@ -0,0 +1,122 @@
+package mlarocca.java99.graphs;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import mlarocca.java99.graphs.Landmarks.Selection;
+import mlarocca.java99.graphs.data.MinDistanceResult;
+
+public class LandmarksTest {
+
+  private static Graph<Integer> grid;
+  private static Graph<String> weightedGraph;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    grid = randomGrid(25, 7);
+    weightedGraph = SimpleGraph.fromString("[a>b/1, b>c/4, c>d/2.5, d>a/2, a>c/7, b>d/1, d>d/3, e>a/1]");
+  }
+
+  //Directed grid with random weights in [1, 5] in each direction
+  private static Graph<Integer> randomGrid(int size, long seed) {
+    Random random = new Random(seed);
+    Graph<Integer> grid = new SimpleGraph<>();
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        grid.addVertex(x + "_" + y, x * size + y);
+      }
+    }
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        Vertex<Integer> from = grid.getVertex(x + "_" + y).get();
+        if (x + 1 < size) {
+          Vertex<Integer> to = grid.getVertex((x + 1) + "_" + y).get();
+          grid.addEdge(from, to, 1 + random.nextInt(5));
+          grid.addEdge(to, from, 1 + random.nextInt(5));
+        }
+        if (y + 1 < size) {
+          Vertex<Integer> to = grid.getVertex(x + "_" + (y + 1)).get();
+          grid.addEdge(from, to, 1 + random.nextInt(5));
+          grid.addEdge(to, from, 1 + random.nextInt(5));
+        }
+      }
+    }
+    return grid;
+  }
+
+  @Test
+  public void testAdmissible() {
+    for (Selection selection : Selection.values()) {
+      Landmarks<String> landmarks = Landmarks.select(weightedGraph, 2, selection);
+      assertEquals(2, landmarks.landmarks().size());
+      for (Vertex<String> v : weightedGraph.getVertices()) {
+        MinDistanceResult<String> distances = weightedGraph.dijkstra(v);
+        for (Vertex<String> u : weightedGraph.getVertices()) {
+          assertTrue(landmarks.lowerBound(v, u) <= distances.distanceTo(u));
+          assertTrue(landmarks.lowerBound(v, u) >= 0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testAStar() {
+    Random random = new Random(3);
+    List<Vertex<Integer>> vertices = grid.getVertices();
+    for (Selection selection : Selection.values()) {
+      Landmarks<Integer> landmarks = Landmarks.select(grid, 8, selection);
+      int dijkstraReached = 0;
+      int altReached = 0;
+      for (int i = 0; i < 30; i++) {
+        Vertex<Integer> source = vertices.get(random.nextInt(vertices.size()));
+        Vertex<Integer> target = vertices.get(random.nextInt(vertices.size()));
+        MinDistanceResult<Integer> expected = grid.dijkstra(source, target);
+        MinDistanceResult<Integer> result = grid.AStar(source, target, landmarks.heuristicTo(target));
+        assertEquals(expected.distanceTo(target), result.distanceTo(target), 0.0);
+        assertEquals(expected.distanceTo(target),
+            grid.bidirectionalAStar(source, target, landmarks.heuristic()).distanceTo(target), 0.0);
+        dijkstraReached += expected.distances().size();
+        altReached += result.distances().size();
+      }
+      assertTrue(altReached < dijkstraReached);
+    }
+  }
+
+  @Test
+  public void testFromVertices() {
+    Vertex<String> a = weightedGraph.getVertex("a").get();
+    Vertex<String> c = weightedGraph.getVertex("c").get();
+    Landmarks<String> landmarks = Landmarks.fromVertices(weightedGraph, Arrays.asList(a, c, a));
+    assertEquals(Arrays.asList(a, c), landmarks.landmarks());
+    Vertex<String> b = weightedGraph.getVertex("b").get();
+    Vertex<String> d = weightedGraph.getVertex("d").get();
+    //d(b, a) >= d(b, c) - d(a, c) = 4 - 5 and d(b, a) >= d(b, a) - d(a, a) = 3
+    assertEquals(3.0, landmarks.lowerBound(b, a), 0.0);
+    assertEquals(0.0, landmarks.lowerBound(d, new SimpleVertex<>("banana")), 0.0);
+    assertEquals(0.0, landmarks.heuristicTo(new SimpleVertex<>("banana")).apply(b), 0.0);
+  }
+
+  @Test
+  public void testMoreLandmarksThanVertices() {
+    Landmarks<String> landmarks = Landmarks.select(weightedGraph, 100, Selection.AVOID);
+    assertEquals(new HashSet<>(weightedGraph.getVertices()), new HashSet<>(landmarks.landmarks()));
+    assertTrue(Landmarks.select(new SimpleGraph<String>(), 3, Selection.FARTHEST).landmarks().isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCount() {
+    Landmarks.select(weightedGraph, 0, Selection.FARTHEST);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLandmark() {
+    Landmarks.fromVertices(weightedGraph, Arrays.asList(new SimpleVertex<>("banana")));
+  }
+}
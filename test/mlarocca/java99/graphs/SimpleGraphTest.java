@@ -2,21 +2,33 @@ package mlarocca.java99.graphs;
 
 import static org.junit.Assert.*;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import mlarocca.java99.graphs.data.ColoringResult;
+import mlarocca.java99.graphs.data.ComponentsResult;
 import mlarocca.java99.graphs.data.MinDistanceResult;
+import mlarocca.java99.graphs.data.StructureResult;
+import mlarocca.java99.graphs.heaps.DaryHeap;
+import mlarocca.java99.graphs.heaps.DialHeap;
 
 public class SimpleGraphTest {
   private static final double DEFAULT_EDGE_WEIGHT = 0.0;
@@ -431,6 +443,18 @@ public class SimpleGraphTest {
     assertEquals(Arrays.asList(eVU), graph.getEdgesTo(u));
   }
 
+  @Test
+  public void testGetEdgesToReplacedEdge() {
+    graph.addVertex(vLabel);
+    graph.addVertex(uLabel);
+    graph.addEdge(eUV);
+    graph.addEdge(eUVWeighted);
+
+    assertEquals(1, graph.inDegree(v));
+    assertEquals(0, graph.inDegree(u));
+    assertEquals((Double)eUVWeighted.getWeight(), (Double)graph.getEdgesTo(v).get(0).getWeight());
+  }
+
   @Test(expected = NullPointerException.class)
   public void testInDegreeNullVertex() {
     graph.inDegree((Vertex<Integer>)null);
@@ -652,6 +676,20 @@ public class SimpleGraphTest {
     assertEquals((Integer)4, exitTimes.get(v));   
   }
   
+  @Test
+  public void testDfsExitTime() {
+    StructureResult<String> result = connectedGraph1.dfs(c);
+    for (Vertex<String> x : connectedGraph1.getVertices()) {
+      assertEquals((int) result.exitTimes().get(x), result.exitTime(x));
+      assertTrue(result.isReached(x));
+    }
+    result = connectedGraph1.dfs(a);
+    assertEquals(1, result.exitTime(a));
+    assertEquals(-1, result.exitTime(c));
+    assertFalse(result.isReached(c));
+    assertFalse(result.isReached(new SimpleVertex<>("banana")));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testDfsFromInvalidVertex() {
     cycleGraph.dfs(new SimpleVertex<>("banana"));
@@ -699,6 +737,124 @@ public class SimpleGraphTest {
   public void testDfsFromVertexToNullTarget() {
     cycleGraph.dfs(u, null);
   }
+
+  @Test
+  public void testDepthFirstTraversal() {
+    Graph<String> g = SimpleGraph.fromString("[a>b, b>c, c>a, a>c, c>c, d>c]");
+    List<String> events = new ArrayList<>();
+    assertTrue(g.depthFirstTraversal(new DfsVisitor<String>() {
+      @Override
+      public boolean preVisit(Vertex<String> v) {
+        events.add("pre " + v.getLabel());
+        return true;
+      }
+
+      @Override
+      public void postVisit(Vertex<String> v) {
+        events.add("post " + v.getLabel());
+      }
+
+      @Override
+      public void treeEdge(Vertex<String> u, Vertex<String> v) {
+        events.add("tree " + u.getLabel() + v.getLabel());
+      }
+
+      @Override
+      public void backEdge(Vertex<String> u, Vertex<String> v) {
+        events.add("back " + u.getLabel() + v.getLabel());
+      }
+
+      @Override
+      public void forwardEdge(Vertex<String> u, Vertex<String> v) {
+        events.add("forward " + u.getLabel() + v.getLabel());
+      }
+
+      @Override
+      public void crossEdge(Vertex<String> u, Vertex<String> v) {
+        events.add("cross " + u.getLabel() + v.getLabel());
+      }
+    }));
+    assertEquals(Arrays.asList("pre a", "tree ab", "pre b", "tree bc", "pre c", "back ca", "back cc", "post c",
+        "post b", "forward ac", "post a", "pre d", "cross dc", "post d"), events);
+  }
+
+  @Test
+  public void testDepthFirstTraversalEarlyStop() {
+    List<Vertex<String>> visited = new ArrayList<>();
+    assertFalse(connectedGraph1.depthFirstTraversal(c, new DfsVisitor<String>() {
+      @Override
+      public boolean preVisit(Vertex<String> v) {
+        visited.add(v);
+        return true;
+      }
+
+      @Override
+      public boolean isDone() {
+        return visited.size() == 3;
+      }
+    }));
+    assertEquals(3, visited.size());
+    assertEquals(c, visited.get(0));
+
+    //Stopping at the end of a tree: the next tree isn't started
+    List<String> left = new ArrayList<>();
+    assertFalse(SimpleGraph.<String>fromString("[a>b, c]").depthFirstTraversal(new DfsVisitor<String>() {
+      @Override
+      public boolean preVisit(Vertex<String> v) {
+        left.add("pre " + v.getLabel());
+        return true;
+      }
+
+      @Override
+      public void postVisit(Vertex<String> v) {
+        left.add("post " + v.getLabel());
+      }
+
+      @Override
+      public boolean isDone() {
+        return left.contains("post a");
+      }
+    }));
+    assertEquals(Arrays.asList("pre a", "pre b", "post b", "post a"), left);
+
+    //Pruned vertices are left right away
+    List<Vertex<String>> pruned = new ArrayList<>();
+    assertTrue(connectedGraph1.depthFirstTraversal(c, new DfsVisitor<String>() {
+      @Override
+      public boolean preVisit(Vertex<String> v) {
+        pruned.add(v);
+        return v.equals(c);
+      }
+    }));
+    assertEquals(new HashSet<>(connectedGraph1.getNeighbours(c)), new HashSet<>(pruned.subList(1, pruned.size())));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDepthFirstTraversalFromInvalidVertex() {
+    cycleGraph.depthFirstTraversal(new SimpleVertex<>("banana"), new DfsVisitor<Integer>() {});
+  }
+
+  @Test
+  public void testDeepChain() {
+    int n = 200000;
+    Graph<Integer> chain = new SimpleGraph<>();
+    Vertex<Integer> previous = chain.addVertex("0", 0);
+    Vertex<Integer> first = previous;
+    for (int k = 1; k < n; k++) {
+      Vertex<Integer> next = chain.addVertex(Integer.toString(k), k);
+      chain.addEdge(previous, next);
+      previous = next;
+    }
+    Vertex<Integer> last = previous;
+    assertTrue(chain.dfs().isAcyclic());
+    assertEquals(n, chain.dfs(first).exitTime(first));
+    assertEquals(first, chain.topologicalOrder().get(0));
+    assertEquals(n, chain.dfs(first, last).size());
+    assertEquals(n, chain.allAcyclicPaths(first, last).iterator().next().size());
+    assertEquals(n, chain.verticesByDepthFrom("0").size());
+    chain.addEdge(last, first);
+    assertEquals(n + 1, chain.allCycles(first).iterator().next().size());
+  }
   
 
   @Test
@@ -815,6 +971,64 @@ public class SimpleGraphTest {
     assertEquals(Arrays.asList(v, w, z), result.path());  
   }
   
+  @Test
+  public void testBfsParallel() {
+    //Random graph with a few hubs, so that both top-down and bottom-up steps are used
+    Random random = new Random(11);
+    Graph<Integer> randomGraph = new SimpleGraph<>();
+    for (int k = 0; k < 500; k++) {
+      randomGraph.addVertex("r" + k);
+    }
+    List<Vertex<Integer>> vertices = randomGraph.getVertices();
+    for (int k = 0; k < 3000; k++) {
+      Vertex<Integer> from = vertices.get(random.nextInt(10) == 0 ? random.nextInt(5) : random.nextInt(500));
+      randomGraph.addEdge(from, vertices.get(random.nextInt(500)));
+    }
+
+    for (Graph<?> graph : Arrays.asList(connectedGraph1, cycleGraph, disconnectedGraph1, pathGraph, randomGraph)) {
+      checkBfsParallel(graph);
+    }
+  }
+
+  private static <R> void checkBfsParallel(Graph<R> graph) {
+    for (Vertex<R> source : graph.getVertices()) {
+      MinDistanceResult<R> expected = graph.bfs(source);
+      MinDistanceResult<R> result = graph.bfsParallel(source);
+      assertEquals(expected.distances(), result.distances());
+      assertNull(result.predecessorOf(source));
+      result.predecessors().forEach((x, p) -> {
+        if (p != null) {
+          assertTrue(graph.getEdgeBetween(p, x).isPresent());
+          assertEquals(result.distanceTo(x), result.distanceTo(p) + 1.0, 0.0);
+        }
+      });
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBfsParallelFromInvalidVertex() {
+    cycleGraph.bfsParallel(new SimpleVertex<>("banana"));
+  }
+
+  @Test
+  public void testMinDistanceAccessors() {
+    MinDistanceResult<Integer> result = cycleGraph.bfs(v);
+    for (Vertex<Integer> x : cycleGraph.getVertices()) {
+      assertEquals(result.distances().get(x), result.distanceTo(x), 0.0);
+      assertEquals(result.predecessors().get(x), result.predecessorOf(x));
+      assertTrue(result.isReached(x));
+    }
+
+    result = disconnectedGraph1.bfs(v);
+    assertEquals(1.0, result.distanceTo(w), 0.0);
+    assertEquals(v, result.predecessorOf(w));
+    assertNull(result.predecessorOf(v));
+    assertEquals(Double.POSITIVE_INFINITY, result.distanceTo(u), 0.0);
+    assertNull(result.predecessorOf(u));
+    assertFalse(result.isReached(u));
+    assertFalse(result.isReached(new SimpleVertex<>("banana")));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testBfsFromInvalidVertexToTarget() {
     cycleGraph.bfs(new SimpleVertex<>("banana"), v);
@@ -911,6 +1125,139 @@ public class SimpleGraphTest {
     assertEquals(expectedResult, cycleGraph.allCycles(w));  
   }
   
+  @Test
+  public void testAcyclicPathsStream() {
+    assertEquals(disconnectedGraph4.allAcyclicPaths(a, b), disconnectedGraph4.acyclicPaths(a, b).collect(Collectors.toSet()));
+    assertEquals(Arrays.asList(Arrays.asList(a)), disconnectedGraph4.acyclicPaths(a, a).collect(Collectors.toList()));
+    assertEquals(0, disconnectedGraph4.acyclicPaths(b, a).count());
+    assertEquals(connectedGraph1.allCycles(c), connectedGraph1.cycles(c).collect(Collectors.toSet()));
+    assertEquals(Arrays.asList(Arrays.asList(u, v, w, z, u)), cycleGraph.cycles(u).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testAcyclicPathsStreamLimit() {
+    //A complete graph on 12 vertices has more than 10^7 simple paths between any two vertices
+    Graph<String> complete = new SimpleGraph<>();
+    for (int k = 0; k < 12; k++) {
+      complete.addVertex("v" + k);
+    }
+    for (Vertex<String> x : complete.getVertices()) {
+      for (Vertex<String> y : complete.getVertices()) {
+        if (!x.equals(y)) {
+          complete.addEdge(x, y);
+        }
+      }
+    }
+    Vertex<String> first = complete.getVertex("v0").get();
+    Vertex<String> last = complete.getVertex("v11").get();
+    List<List<Vertex<String>>> paths = complete.acyclicPaths(first, last).limit(1000).collect(Collectors.toList());
+    assertEquals(1000, paths.size());
+    assertEquals(1000, new HashSet<>(paths).size());
+    paths.forEach(path -> {
+      assertEquals(first, path.get(0));
+      assertEquals(last, path.get(path.size() - 1));
+      assertEquals(path.size(), new HashSet<>(path).size());
+    });
+    assertEquals(12, complete.cycles(first).filter(cycle -> cycle.size() == 13).limit(12).count());
+  }
+
+  @Test
+  public void testAcyclicPathsParallelStream() {
+    Graph<String> g = SimpleGraph.fromString("[a-b, a-c, a-d, a-e, b-c, c-d, d-e, e-b, b-f, c-f, d-f, e-f]");
+    Vertex<String> x = g.getVertex("a").get();
+    Vertex<String> y = g.getVertex("f").get();
+    Set<List<Vertex<String>>> expected = g.allAcyclicPaths(x, y);
+    List<List<Vertex<String>>> paths = g.acyclicPaths(x, y).parallel().collect(Collectors.toList());
+    assertEquals(expected.size(), paths.size());
+    assertEquals(expected, new HashSet<>(paths));
+    //Splitting preserves the encounter order
+    assertEquals(g.acyclicPaths(x, y).collect(Collectors.toList()), paths);
+    assertEquals(g.allCycles(x), g.cycles(x).parallel().collect(Collectors.toSet()));
+  }
+
+  @Test
+  public void testAcyclicPathsStreamReadsASnapshot() {
+    SimpleGraph<String> g = (SimpleGraph<String>) SimpleGraph.<String>fromString("[a>b, b>c, a>c]");
+    Vertex<String> x = g.getVertex("a").get();
+    Vertex<String> y = g.getVertex("c").get();
+    Stream<List<Vertex<String>>> paths = g.acyclicPaths(x, y);
+    Stream<Graph<String>> trees = g.spanningTrees();
+    Vertex<String> d = g.addVertex("d");
+    g.addEdge(x, d);
+    g.addEdge(d, y);
+    //Streams see the graph as it was when they were created
+    assertEquals(2, paths.count());
+    assertEquals(2, trees.count());
+    assertEquals(3, g.acyclicPaths(x, y).parallel().count());
+    try (Stream<List<Vertex<String>>> first = g.acyclicPaths(x, y)) {
+      assertEquals(1, first.limit(1).count());
+    }
+  }
+
+  @Test
+  public void testAcyclicPathsSplitAfterAdvance() {
+    Graph<String> g = SimpleGraph.fromString("[a-b, a-c, a-d, a-e, b-c, c-d, d-e, e-b, b-f, c-f, d-f, e-f]");
+    Vertex<String> x = g.getVertex("a").get();
+    Vertex<String> y = g.getVertex("f").get();
+    Spliterator<List<Vertex<String>>> paths = g.acyclicPaths(x, y).spliterator();
+    List<List<Vertex<String>>> ordered = new ArrayList<>();
+    assertTrue(paths.tryAdvance(ordered::add));
+    //Once a path has been started, splitting would break the encounter order
+    assertNull(paths.trySplit());
+    paths.forEachRemaining(ordered::add);
+    assertEquals(g.acyclicPaths(x, y).collect(Collectors.toList()), ordered);
+  }
+
+  //Rotates a cycle so that it starts from its smallest vertex, for comparisons
+  private static <T> List<Vertex<T>> normalizeCycle(List<Vertex<T>> cycle) {
+    List<Vertex<T>> open = cycle.subList(0, cycle.size() - 1);
+    int first = open.indexOf(Collections.min(open));
+    List<Vertex<T>> result = new ArrayList<>(open.subList(first, open.size()));
+    result.addAll(open.subList(0, first));
+    result.add(result.get(0));
+    return result;
+  }
+
+  @Test
+  public void testAllElementaryCycles() {
+    for (Graph<String> g : Arrays.asList(connectedGraph1, SimpleGraph.<String>fromString("[a>b, b>a, b>c, c>a, c>c, d>e, e>d, a>d]"),
+        SimpleGraph.<String>fromString("[a-b, b-c, c-a]"), SimpleGraph.<String>fromString("[a>b, b>c]"), new SimpleGraph<String>())) {
+      Set<List<Vertex<String>>> expected = g.getVertices().stream()
+          .flatMap(x -> g.allCycles(x).stream())
+          .map(SimpleGraphTest::normalizeCycle)
+          .collect(Collectors.toSet());
+      List<List<Vertex<String>>> cycles = g.allElementaryCycles().collect(Collectors.toList());
+      //Each cycle is found exactly once
+      assertEquals(expected.size(), cycles.size());
+      assertEquals(expected, cycles.stream().map(SimpleGraphTest::normalizeCycle).collect(Collectors.toSet()));
+      assertEquals(expected.size(), g.countElementaryCycles());
+      assertEquals(expected.size(), CompactGraph.fromGraph(g).countElementaryCycles());
+    }
+  }
+
+  @Test
+  public void testCountElementaryCycles() {
+    //A complete directed graph on k vertices has sum_{i=2..k} C(k, i) (i - 1)! elementary cycles
+    Graph<String> complete = new SimpleGraph<>();
+    for (int k = 0; k < 7; k++) {
+      complete.addVertex("v" + k);
+    }
+    for (Vertex<String> x : complete.getVertices()) {
+      for (Vertex<String> y : complete.getVertices()) {
+        if (!x.equals(y)) {
+          complete.addEdge(x, y);
+        }
+      }
+    }
+    assertEquals(21 + 70 + 210 + 504 + 840 + 720, complete.countElementaryCycles());
+    assertEquals(5, complete.allElementaryCycles().limit(5).count());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCyclesStreamFromInvalidVertex() {
+    cycleGraph.cycles(new SimpleVertex<>("banana"));
+  }
+
   @Test
   public void isConnected() {
     assertTrue(pathGraph.isConnected());
@@ -1016,6 +1363,70 @@ public class SimpleGraphTest {
     assertEquals(expectedResult, cycleGraph.allSpanningTrees());
   }
   
+  @Test
+  public void testSpanningTrees() {
+    //Each of the 3 trees of a triangle, rooted at each of its vertices
+    Graph<String> triangle = SimpleGraph.fromString("[a-b/1, b-c/2, c-a/3]");
+    List<Set<Edge<String>>> trees = triangle.spanningTrees()
+        .map(tree -> new HashSet<>(tree.getEdges()))
+        .collect(Collectors.toList());
+    assertEquals(9, trees.size());
+    assertEquals(9, new HashSet<>(trees).size());
+    triangle.spanningTrees().forEach(tree -> {
+      assertTrue(tree.isTree());
+      assertEquals(triangle.getVertices(), tree.getVertices());
+      assertTrue(triangle.getEdges().containsAll(tree.getEdges()));
+    });
+    //Kirchhoff's count, and allSpanningTrees, list each tree once
+    assertEquals(BigInteger.valueOf(3), triangle.countSpanningTrees());
+    assertEquals(3, triangle.allSpanningTrees().size());
+    Vertex<String> a = triangle.getVertices().get(0);
+    triangle.allSpanningTrees().forEach(tree -> assertEquals(0, tree.inDegree(a)));
+
+    assertEquals(4, cycleGraph.spanningTrees().count());
+    assertEquals(BigInteger.valueOf(4), cycleGraph.countSpanningTrees());
+    assertEquals(BigInteger.ZERO, SimpleGraph.fromString("[a>b, c>b]").countSpanningTrees());
+    assertEquals(0, SimpleGraph.fromString("[a>b, c>b]").spanningTrees().count());
+    assertEquals(BigInteger.ONE, SimpleGraph.fromString("[a]").countSpanningTrees());
+    assertEquals(1, SimpleGraph.fromString("[a]").spanningTrees().count());
+    assertEquals(BigInteger.ZERO, new SimpleGraph<String>().countSpanningTrees());
+  }
+
+  @Test
+  public void testCountSpanningTrees() {
+    //Cayley: n^(n-2) trees on the complete graph, each listed by spanningTrees() for its n roots
+    Graph<String> complete = new SimpleGraph<>();
+    for (int k = 0; k < 6; k++) {
+      complete.addVertex("v" + k);
+    }
+    for (Vertex<String> x : complete.getVertices()) {
+      for (Vertex<String> y : complete.getVertices()) {
+        if (!x.equals(y)) {
+          complete.addEdge(x, y);
+        }
+      }
+    }
+    assertEquals(BigInteger.valueOf(6 * 6 * 6 * 6), complete.countSpanningTrees());
+    assertEquals(6 * 6 * 6 * 6 * 6, complete.spanningTrees().count());
+    assertEquals(complete.countSpanningTrees(), CompactGraph.fromGraph(complete).countSpanningTrees());
+
+    Graph<String> directed = SimpleGraph.fromString("[a>b, b>c, c>a, a>c, c>d, d>b]");
+    assertEquals(BigInteger.valueOf(directed.spanningTrees().count()), directed.countSpanningTrees());
+    assertEquals(directed.allSpanningTrees().size(), directed.countSpanningTrees().intValue());
+
+    //Trees rooted at different vertices, summed
+    Random random = new Random(16);
+    Graph<Integer> randomGraph = new SimpleGraph<>();
+    for (int i = 0; i < 7; i++) {
+      randomGraph.addVertex("" + i, i);
+    }
+    for (int k = 0; k < 16; k++) {
+      randomGraph.addEdge(randomGraph.getVertices().get(random.nextInt(7)), randomGraph.getVertices().get(random.nextInt(7)));
+    }
+    assertFalse(randomGraph.isUndirected());
+    assertEquals(BigInteger.valueOf(randomGraph.spanningTrees().count()), randomGraph.countSpanningTrees());
+  }
+
   @Test
   public void testPrimUndirected() {
     //Prim doesn't work on certain directed Graphs
@@ -1028,6 +1439,209 @@ public class SimpleGraphTest {
     //Prim doesn't work on certain directed Graphs
     weightedGraph1.prim();
   }
+
+  private static double totalWeight(Graph<?> graph) {
+    return graph.getEdges().stream().mapToDouble(Edge::getWeight).sum();
+  }
+
+  @Test
+  public void testKruskal() {
+    Graph<Integer> expectedResult = weightedUndirectedGraph.allSpanningTrees().stream().min(GraphComparatorByWeight).get();
+    Graph<Integer> mst = weightedUndirectedGraph.kruskal();
+    assertEquals(weightedUndirectedGraph.getVertices(), mst.getVertices());
+    assertEquals(weightedUndirectedGraph.size() - 1, mst.edgesSize());
+    assertEquals(totalWeight(expectedResult), totalWeight(mst), 0.0);
+
+    Graph<Integer> grid = SimpleGraph.fromString("[a-b/4, a-c/1, c-b/2, b-d/5, c-d/8, d-e/3, c-e/9, e-f/1, f-a/7]");
+    assertEquals(totalWeight(grid.prim()), totalWeight(grid.kruskal()), 0.0);
+
+    assertNull(new SimpleGraph<Integer>().kruskal());
+    assertNull(SimpleGraph.fromString("[a-b/1, c-d/2]").kruskal());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testKruskalDirected() {
+    weightedGraph1.kruskal();
+  }
+
+  @Test
+  public void testBoruvka() {
+    assertEquals(weightedUndirectedGraph.prim(), weightedUndirectedGraph.boruvka());
+    Graph<Integer> g = SimpleGraph.fromString("[a-b/4, a-c/1, c-b/2, b-d/5, c-d/8, d-e/3, c-e/9, e-f/1, f-a/7]");
+    assertEquals(g.prim(), g.boruvka());
+
+    //Many equal weights: any minimum spanning tree will do
+    Graph<Integer> grid = randomGrid(20, 9);
+    Graph<Integer> undirectedGrid = new SimpleGraph<>();
+    grid.getVertices().forEach(x -> undirectedGrid.addVertex(x));
+    //The last weight set for each pair is used in both directions
+    grid.getEdges().forEach(edge -> {
+      undirectedGrid.addEdge(edge.getSource(), edge.getDestination(), edge.getWeight());
+      undirectedGrid.addEdge(edge.getDestination(), edge.getSource(), edge.getWeight());
+    });
+    Graph<Integer> mst = undirectedGrid.boruvka();
+    assertEquals(undirectedGrid.size(), mst.size());
+    assertEquals(undirectedGrid.size() - 1, mst.edgesSize());
+    assertTrue(mst.isConnected());
+    assertEquals(totalWeight(undirectedGrid.prim()), totalWeight(mst), 0.0);
+
+    assertNull(SimpleGraph.fromString("[a-b/1, c-d/2]").boruvka());
+    assertNull(new SimpleGraph<Integer>().boruvka());
+    assertEquals(SimpleGraph.fromString("[a]"), SimpleGraph.fromString("[a]").boruvka());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testBoruvkaDirected() {
+    weightedGraph1.boruvka();
+  }
+
+  @Test
+  public void testMinimumSpanningForest() {
+    Graph<Integer> g = SimpleGraph.fromString("[a-b/1, b-c/2, a-c/3, e, d-f/5, f-g/1, d-g/2]");
+    Graph<Integer> forest = g.minimumSpanningForest();
+    assertEquals(g.getVertices(), forest.getVertices());
+    assertEquals(4, forest.edgesSize());
+    assertEquals(6.0, totalWeight(forest), 0.0);
+    //One tree for each connected component
+    assertEquals(3, forest.size() - forest.edgesSize());
+    assertTrue(new SimpleGraph<Integer>().minimumSpanningForest().getVertices().isEmpty());
+  }
+
+  @Test
+  public void testPrimDisconnected() {
+    assertNull(SimpleGraph.fromString("[a-b/1, c-d/2]").prim());
+    assertNull(new SimpleGraph<Integer>().prim());
+  }
+
+  @Test
+  public void testPriorityQueueFactory() {
+    SimpleGraph<String> g = (SimpleGraph<String>) SimpleGraph.<String>fromString("[a-b/4, a-c/1, c-b/2, b-d/5, c-d/8, d-e/3, c-e/9]");
+    Vertex<String> a = g.getVertex("a").get();
+    Vertex<String> e = g.getVertex("e").get();
+    MinDistanceResult<String> expected = g.dijkstra(a, e);
+    Graph<String> expectedMst = g.prim();
+
+    g.setPriorityQueueFactory(n -> new DialHeap(n, 9));
+    MinDistanceResult<String> result = g.dijkstra(a, e);
+    assertEquals(expected.distances(), result.distances());
+    assertEquals(expected.path(), result.path());
+    assertEquals(expectedMst, g.prim());
+
+    g.setPriorityQueueFactory(n -> new DaryHeap(n, 4));
+    assertEquals(expected.path(), g.dijkstra(a, e).path());
+  }
+
+  /**
+   * A size x size grid with edges in both directions and random weights, never
+   * smaller than 1 (so that the Manhattan distance is a consistent heuristic).
+   */
+  private static Graph<Integer> randomGrid(int size, long seed) {
+    Random random = new Random(seed);
+    Graph<Integer> grid = new SimpleGraph<>();
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        grid.addVertex(x + "_" + y, x * size + y);
+      }
+    }
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        Vertex<Integer> from = grid.getVertex(x + "_" + y).get();
+        if (x + 1 < size) {
+          Vertex<Integer> to = grid.getVertex((x + 1) + "_" + y).get();
+          grid.addEdge(from, to, 1 + random.nextInt(5));
+          grid.addEdge(to, from, 1 + random.nextInt(5));
+        }
+        if (y + 1 < size) {
+          Vertex<Integer> to = grid.getVertex(x + "_" + (y + 1)).get();
+          grid.addEdge(from, to, 1 + random.nextInt(5));
+          grid.addEdge(to, from, 1 + random.nextInt(5));
+        }
+      }
+    }
+    return grid;
+  }
+
+  private static double pathLength(Graph<Integer> graph, List<Vertex<Integer>> path) {
+    double length = 0.0;
+    for (int k = 1; k < path.size(); k++) {
+      length += graph.getEdgeBetween(path.get(k - 1), path.get(k)).get().getWeight();
+    }
+    return length;
+  }
+
+  @Test
+  public void testBidirectionalDijkstra() {
+    for (Graph<Integer> graph : Arrays.asList(weightedGraph1, weightedUndirectedGraph, cycleGraph, disconnectedGraph1, randomGrid(6, 42))) {
+      for (Vertex<Integer> source : graph.getVertices()) {
+        MinDistanceResult<Integer> expected = graph.dijkstra(source);
+        for (Vertex<Integer> target : graph.getVertices()) {
+          MinDistanceResult<Integer> result = graph.bidirectionalDijkstra(source, target);
+          assertEquals(expected.distanceTo(target), result.distanceTo(target), 1e-9);
+          if (expected.isReached(target)) {
+            List<Vertex<Integer>> path = result.path();
+            assertEquals(source, path.get(0));
+            assertEquals(target, path.get(path.size() - 1));
+            assertEquals(expected.distanceTo(target), pathLength(graph, path), 1e-9);
+          } else {
+            assertNull(result.path());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBidirectionalAStar() {
+    Graph<Integer> grid = randomGrid(8, 7);
+    BiFunction<Vertex<Integer>, Vertex<Integer>, Double> manhattan = (p, q) -> {
+      int pValue = p.getValue().get();
+      int qValue = q.getValue().get();
+      return (double) (Math.abs(pValue / 8 - qValue / 8) + Math.abs(pValue % 8 - qValue % 8));
+    };
+    for (Vertex<Integer> source : grid.getVertices()) {
+      MinDistanceResult<Integer> expected = grid.dijkstra(source);
+      for (Vertex<Integer> target : grid.getVertices()) {
+        MinDistanceResult<Integer> result = grid.bidirectionalAStar(source, target, manhattan);
+        assertEquals(expected.distanceTo(target), result.distanceTo(target), 1e-9);
+        assertEquals(expected.distanceTo(target), pathLength(grid, result.path()), 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void testDijkstraParallel() {
+    for (Graph<Integer> graph : Arrays.asList(weightedGraph1, weightedUndirectedGraph, cycleGraph, disconnectedGraph1, randomGrid(12, 3))) {
+      for (double delta : new double[]{ 0.5, 1.0, 3.0, 100.0 }) {
+        for (Vertex<Integer> source : graph.getVertices()) {
+          MinDistanceResult<Integer> expected = graph.dijkstra(source);
+          MinDistanceResult<Integer> result = graph.dijkstraParallel(source, delta);
+          assertEquals(expected.distances(), result.distances());
+          assertNull(result.predecessorOf(source));
+          result.predecessors().forEach((x, p) -> {
+            if (p != null) {
+              double weight = graph.getEdgeBetween(p, x).get().getWeight();
+              assertEquals(result.distanceTo(x), result.distanceTo(p) + weight, 1e-9);
+            }
+          });
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDijkstraParallelInvalidDelta() {
+    weightedGraph1.dijkstraParallel(u, 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBidirectionalDijkstraToInvalidTarget() {
+    cycleGraph.bidirectionalDijkstra(u, new SimpleVertex<>("banana"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBidirectionalDijkstraFromInvalidSource() {
+    cycleGraph.bidirectionalDijkstra(new SimpleVertex<>("banana"), u);
+  }
   
   @Test
   public void testIsIsomorphic() {
@@ -1048,6 +1662,91 @@ public class SimpleGraphTest {
     assertTrue(SimpleGraph.fromString("[a>b/2, b-c]").isIsomorphicTo(SimpleGraph.fromString("[a>c/44, c-d]")));
   }
 
+  /**
+   * Copy of graph with its vertices renamed and added in random order, and
+   * (unless skipLast) all its edges.
+   */
+  private static Graph<Integer> shuffledCopy(Graph<Integer> graph, long seed, boolean skipLast) {
+    List<Vertex<Integer>> vertices = new ArrayList<>(graph.getVertices());
+    Collections.shuffle(vertices, new Random(seed));
+    Graph<Integer> copy = new SimpleGraph<>();
+    for (int i = 0; i < vertices.size(); i++) {
+      copy.addVertex("v" + vertices.get(i).getLabel(), i);
+    }
+    List<Edge<Integer>> edges = new ArrayList<>(graph.getEdges());
+    Collections.shuffle(edges, new Random(seed));
+    for (Edge<Integer> e : edges.subList(0, skipLast ? edges.size() - 1 : edges.size())) {
+      copy.addEdge(
+          copy.getVertex("v" + e.getSource().getLabel()).get(),
+          copy.getVertex("v" + e.getDestination().getLabel()).get());
+    }
+    return copy;
+  }
+
+  @Test
+  public void testIsIsomorphicLarger() {
+    Graph<Integer> grid = randomGrid(12, 5);
+    Graph<Integer> shuffled = shuffledCopy(grid, 17, false);
+    assertTrue(grid.isIsomorphicTo(shuffled));
+    assertTrue(shuffled.freeze().isIsomorphicTo(grid));
+    //One of the arcs is missing
+    assertFalse(grid.isIsomorphicTo(shuffledCopy(grid, 17, true)));
+
+    //Color refinement can't tell these apart, the matching must
+    Graph<String> hexagon = SimpleGraph.fromString("[a-b, b-c, c-d, d-e, e-f, f-a]");
+    Graph<String> triangles = SimpleGraph.fromString("[a-b, b-c, c-a, d-e, e-f, f-d]");
+    assertFalse(hexagon.isIsomorphicTo(triangles));
+    assertTrue(hexagon.isIsomorphicTo(SimpleGraph.fromString("[a-c, c-e, e-b, b-d, d-f, f-a]")));
+    //Self loops
+    assertFalse(SimpleGraph.fromString("[a>a, b]").isIsomorphicTo(SimpleGraph.fromString("[a>b]")));
+    assertTrue(SimpleGraph.fromString("[a>a, a>b]").isIsomorphicTo(SimpleGraph.fromString("[d>d, d>c]")));
+    assertFalse(SimpleGraph.fromString("[a>a, a>b]").isIsomorphicTo(SimpleGraph.fromString("[c>d, d>d]")));
+  }
+
+  @Test
+  public void testInvariantHash() {
+    Graph<Integer> grid = randomGrid(12, 5);
+    assertEquals(grid.invariantHash(), shuffledCopy(grid, 17, false).invariantHash());
+    assertEquals(grid.invariantHash(), grid.freeze().invariantHash());
+    assertNotEquals(grid.invariantHash(), shuffledCopy(grid, 17, true).invariantHash());
+
+    assertEquals(SimpleGraph.fromString("[a>b/2, b-c]").invariantHash(), SimpleGraph.fromString("[x>c, c-d/5]").invariantHash());
+    assertNotEquals(SimpleGraph.fromString("[a>b]").invariantHash(), SimpleGraph.fromString("[a-b]").invariantHash());
+    assertNotEquals(SimpleGraph.fromString("[a>b, c]").invariantHash(), SimpleGraph.fromString("[a>b]").invariantHash());
+  }
+
+  @Test
+  public void testEqualsAndHashCode() {
+    Graph<String> g = SimpleGraph.fromString("[a>b/2, b-c, d]");
+    //Insertion order and weights don't matter
+    Graph<String> same = SimpleGraph.fromString("[d, c-b, a>b]");
+    assertEquals(g, same);
+    assertEquals(g.hashCode(), same.hashCode());
+    assertEquals(g.freeze(), same.freeze());
+    assertEquals(g.freeze().hashCode(), g.hashCode());
+
+    //Same vertices, same number of edges
+    assertNotEquals(g, SimpleGraph.fromString("[a>b, b>c, c>d]"));
+    assertNotEquals(g, SimpleGraph.fromString("[a>b, b-c, e]"));
+    assertNotEquals(g, SimpleGraph.fromString("[b>a, b-c, d]"));
+    assertNotEquals(g.freeze(), SimpleGraph.fromString("[b>a, b-c, d]").freeze());
+    assertNotEquals(g, g.freeze());
+
+    //The hash follows additions, but not the replacement of an edge
+    Graph<String> growing = new SimpleGraph<>();
+    int hash = growing.hashCode();
+    Vertex<String> a = growing.addVertex("a");
+    assertNotEquals(hash, hash = growing.hashCode());
+    growing.addEdge(a, a, 1);
+    assertNotEquals(hash, hash = growing.hashCode());
+    growing.addEdge(a, a, 3);
+    assertEquals(hash, growing.hashCode());
+    assertEquals(1, growing.edgesSize());
+
+    Set<Graph<String>> graphs = new HashSet<>(Arrays.asList(g, same, g.freeze(), SimpleGraph.fromString("[b>a, b-c, d]")));
+    assertEquals(3, graphs.size());
+  }
+
   private <T> List<Vertex<T>> listLabels2ListVertex(Graph<T> g, List<String> list) {
     return list.stream()
       .map(v -> g.getVertex(v).get())
@@ -1225,6 +1924,47 @@ public class SimpleGraphTest {
     assertEquals(expectedResult5, g5.stronglyConnectedComponents());  
   }
   
+  @Test
+  public void testStronglyConnectedComponentIds() {
+    Graph<Byte> g = SimpleGraph.fromString("[a>b, b>c, e, c>a, c>d, d>f, f>g, g>d, g>h]");
+    ComponentsResult<Byte> result = g.stronglyConnectedComponentIds();
+    assertEquals(4, result.count());
+    Vertex<Byte> a = g.getVertex("a").get();
+    Vertex<Byte> d = g.getVertex("d").get();
+    assertEquals(result.componentOf(a), result.componentOf(g.getVertex("c").get()));
+    assertEquals(result.componentOf(d), result.componentOf(g.getVertex("g").get()));
+    assertNotEquals(result.componentOf(a), result.componentOf(d));
+    assertEquals(3, result.size(result.componentOf(a)));
+    assertEquals(1, result.size(result.componentOf(g.getVertex("e").get())));
+    assertEquals(new HashSet<>(Arrays.asList("d", "f", "g")),
+        result.vertices(result.componentOf(d)).stream().map(Vertex::getLabel).collect(Collectors.toSet()));
+    //Reverse topological order: edges never go to a component with a higher id
+    for (Edge<Byte> edge : g.getEdges()) {
+      assertTrue(result.componentOf(edge.getSource()) >= result.componentOf(edge.getDestination()));
+    }
+    assertEquals(g.stronglyConnectedComponents(), result.subGraphs());
+  }
+
+  @Test
+  public void testConnectedComponentIds() {
+    Graph<Byte> g = SimpleGraph.fromString("[a-b, b-c, e, a-c, d-f, f-g]");
+    ComponentsResult<Byte> result = g.connectedComponentIds();
+    assertEquals(3, result.count());
+    assertEquals(result.componentOf(g.getVertex("d").get()), result.componentOf(g.getVertex("g").get()));
+    assertNotEquals(result.componentOf(g.getVertex("a").get()), result.componentOf(g.getVertex("g").get()));
+    assertEquals(0, new SimpleGraph<Byte>().connectedComponentIds().count());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testConnectedComponentIdsDirected() {
+    SimpleGraph.fromString("[b>a/7, c>b/3.1415]").connectedComponentIds();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testComponentOfInvalidVertex() {
+    SimpleGraph.<Byte>fromString("[a>b]").stronglyConnectedComponentIds().componentOf(new SimpleVertex<>("banana"));
+  }
+
   @Test
   public void testIsBipartite() {
     assertTrue(new SimpleGraph<String>().isBipartite());
@@ -1258,4 +1998,463 @@ public class SimpleGraphTest {
     assertEquals((Byte)((byte)2), coloring.get(g.getVertex("j").get()));
     assertEquals((Byte)((byte)2), coloring.get(g.getVertex("b").get()));
   }
+
+  private static <T> void assertProperColoring(Graph<T> g, ColoringResult<T> coloring) {
+    for (Edge<T> e : g.getEdges()) {
+      if (!e.getSource().equals(e.getDestination())) {
+        assertNotEquals(coloring.colorOf(e.getSource()), coloring.colorOf(e.getDestination()));
+      }
+    }
+    int colored = 0;
+    for (int c = 0; c < coloring.count(); c++) {
+      assertTrue(coloring.size(c) > 0);
+      colored += coloring.vertices(c).size();
+    }
+    assertEquals(g.size(), colored);
+  }
+
+  @Test
+  public void testDsaturColoring() {
+    //Bipartite graphs get 2 colors
+    Graph<Integer> grid = randomGrid(30, 1);
+    ColoringResult<Integer> coloring = grid.dsaturColoring();
+    assertProperColoring(grid, coloring);
+    assertEquals(2, coloring.count());
+    assertEquals(2, grid.freeze().dsaturColoring().count());
+
+    Graph<String> oddCycle = SimpleGraph.fromString("[a-b, b-c, c-d, d-e, e-a]");
+    assertEquals(3, oddCycle.dsaturColoring().count());
+    //Direction and self loops don't matter
+    Graph<String> complete = SimpleGraph.fromString("[a>b, a>c, a>d, b>c, d>b, c>d, a>a]");
+    assertProperColoring(complete, complete.dsaturColoring());
+    assertEquals(4, complete.dsaturColoring().count());
+    assertEquals(0, new SimpleGraph<String>().dsaturColoring().count());
+  }
+
+  @Test
+  public void testParallelColoring() {
+    Random random = new Random(11);
+    Graph<Integer> g = new SimpleGraph<>();
+    int n = 20000;
+    for (int i = 0; i < n; i++) {
+      g.addVertex("" + i, i);
+    }
+    for (int k = 0; k < 5 * n; k++) {
+      g.addEdge(g.getVertex("" + random.nextInt(n)).get(), g.getVertex("" + random.nextInt(n)).get());
+    }
+    ColoringResult<Integer> coloring = g.parallelColoring();
+    assertProperColoring(g, coloring);
+    int maxDegree = g.getVertices().stream().mapToInt(v -> g.getAdjacentVertices(v).size()).max().getAsInt();
+    assertTrue(coloring.count() <= maxDegree + 1);
+    //Deterministic, regardless of the threads' schedule
+    ColoringResult<Integer> again = g.parallelColoring();
+    for (Vertex<Integer> v : g.getVertices()) {
+      assertEquals(coloring.colorOf(v), again.colorOf(v));
+    }
+
+    Graph<String> complete = SimpleGraph.fromString("[a-b, a-c, a-d, b-c, b-d, c-d]");
+    assertEquals(4, complete.parallelColoring().count());
+  }
+
+  @Test
+  public void testConcurrentWriters() throws InterruptedException {
+    int n = 500;
+    int threads = 4;
+    SimpleGraph<Integer> g = new SimpleGraph<>();
+    Graph<Integer> expected = new SimpleGraph<>();
+    for (int i = 0; i < n; i++) {
+      g.addVertex("" + i, i);
+      expected.addVertex("" + i, i);
+    }
+    //Each thread adds edges leaving a different set of vertices, plus edges it replaces
+    List<Thread> writers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int offset = t;
+      writers.add(new Thread(() -> {
+        Random random = new Random(offset);
+        for (int i = offset; i < n; i += threads) {
+          for (int k = 0; k < 10; k++) {
+            g.addEdge(g.getVertex("" + i).get(), g.getVertex("" + random.nextInt(n)).get(), random.nextInt(5));
+          }
+        }
+      }));
+    }
+    //Readers only see consistent lists, and graphs that only grow
+    List<Thread> readers = new ArrayList<>();
+    List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    for (int t = 0; t < 2; t++) {
+      readers.add(new Thread(() -> {
+        try {
+          int previous = 0;
+          while (previous < 10 * n) {
+            int edges = g.getEdges().size();
+            assertTrue(edges >= previous);
+            previous = Math.max(previous, g.edgesSize());
+            for (int i = 0; i < n; i += 37) {
+              Vertex<Integer> v = g.getVertex("" + i).get();
+              List<Edge<Integer>> out = g.getEdgesFrom(v);
+              assertEquals(out.size(), new HashSet<>(out).size());
+              assertTrue(out.stream().allMatch(e -> e.getSource().equals(v)));
+            }
+            g.dijkstra(g.getVertex("0").get());
+            if (g.getEdges().size() == g.edgesSize() && g.edgesSize() == previous && previous >= 9 * n) {
+              break;
+            }
+          }
+        } catch (Throwable e) {
+          errors.add(e);
+        }
+      }));
+    }
+    readers.forEach(Thread::start);
+    writers.forEach(Thread::start);
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertEquals(Collections.emptyList(), errors);
+
+    for (int t = 0; t < threads; t++) {
+      Random random = new Random(t);
+      for (int i = t; i < n; i += threads) {
+        for (int k = 0; k < 10; k++) {
+          expected.addEdge(expected.getVertex("" + i).get(), expected.getVertex("" + random.nextInt(n)).get(), random.nextInt(5));
+        }
+      }
+    }
+    assertEquals(expected, g);
+    for (Edge<Integer> e : expected.getEdges()) {
+      assertEquals(e.getWeight(), g.getEdgeBetween(e.getSource(), e.getDestination()).get().getWeight(), 0.0);
+    }
+    assertEquals(expected.dijkstra(expected.getVertex("0").get()).distances(), g.dijkstra(g.getVertex("0").get()).distances());
+  }
+
+  @Test
+  public void testTraversalsDuringWrites() throws InterruptedException {
+    int n = 2000;
+    SimpleGraph<Integer> g = new SimpleGraph<>();
+    Vertex<Integer> s = g.addVertex("s", -1);
+    //The writer adds vertices, and edges to them right away: a traversal that read the
+    //number of vertices before they were added still finds those edges on the live graph
+    Thread writer = new Thread(() -> {
+      Vertex<Integer> previous = s;
+      for (int i = 0; i < n; i++) {
+        Vertex<Integer> v = g.addVertex("" + i, i);
+        g.addEdge(previous, v, 1);
+        g.addEdge(s, v, i + 1);
+        previous = v;
+      }
+    });
+    List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> readers = new ArrayList<>();
+    for (int t = 0; t < 2; t++) {
+      readers.add(new Thread(() -> {
+        try {
+          while (writer.isAlive()) {
+            int size = g.bfs(s).distances().size();
+            assertTrue(size >= 1 && size <= g.size());
+            //Path s, 0, ..., k-1 has weight k, as does the edge s->k-1
+            MinDistanceResult<Integer> distances = g.dijkstra(s);
+            distances.distances().forEach((v, d) -> assertEquals(v.equals(s) ? 0 : v.getValue().get() + 1, d, 0.0));
+            //Point-to-point queries too: any vertex but the last has all its edges
+            int vertices = g.size();
+            if (vertices >= 3) {
+              Vertex<Integer> v = g.vertexAt(vertices / 2);
+              double expected = v.getValue().get() + 1;
+              assertEquals(expected, g.dijkstra(s, v).distances().get(v), 0.0);
+              assertEquals(expected, g.bidirectionalDijkstra(s, v).distances().get(v), 0.0);
+            }
+            StructureResult<Integer> dfs = g.dfs(s);
+            assertTrue(dfs.isAcyclic());
+            assertTrue(g.dfs().isAcyclic());
+            g.depthFirstTraversal(new DfsVisitor<Integer>() {});
+            g.topologicalOrder();
+            g.isConnected();
+            g.stronglyConnectedComponentIds();
+            g.dsaturColoring();
+            //Only the last vertex can still miss its edge from s
+            CompactGraph<Integer> frozen = g.freeze();
+            assertTrue(frozen.outDegree(frozen.getVertex("s").get()) >= frozen.size() - 2);
+          }
+        } catch (Throwable e) {
+          errors.add(e);
+        }
+      }));
+    }
+    readers.forEach(Thread::start);
+    writer.start();
+    writer.join();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertEquals(Collections.emptyList(), errors);
+    assertEquals(n + 1, g.size());
+    //s->0 is added twice
+    assertEquals(2 * n - 1, g.edgesSize());
+  }
+
+  @Test
+  public void testSnapshot() {
+    SimpleGraph<String> g = (SimpleGraph<String>) SimpleGraph.<String>fromString("[a>b/1, b>c/2, c>a/3, d]");
+    Graph<String> before = SimpleGraph.fromString("[a>b/1, b>c/2, c>a/3, d]");
+    GraphSnapshot<String> snapshot = g.snapshot();
+    Vertex<String> a = g.getVertex("a").get();
+    Vertex<String> b = g.getVertex("b").get();
+    Vertex<String> d = g.getVertex("d").get();
+    g.addEdge(a, b, 5);
+    g.addEdge(b, d, 1);
+    Vertex<String> e = g.addVertex("e");
+    g.addEdge(e, a, 1);
+    g.addEdges(Arrays.asList(new SimpleEdge<>(d, e, 2), new SimpleEdge<>(b, d, 4)));
+    GraphSnapshot<String> later = g.snapshot();
+    g.addEdge(a, d, 1);
+
+    assertEquals(before, snapshot);
+    assertEquals(before.hashCode(), snapshot.hashCode());
+    assertEquals(3, snapshot.edgesSize());
+    assertFalse(snapshot.hasVertex("e"));
+    assertEquals(1, snapshot.getEdgeBetween(a, b).get().getWeight(), 0.0);
+    assertEquals(Optional.empty(), snapshot.getEdgeBetween(b, d));
+    assertEquals(before.dijkstra(a).distances(), snapshot.dijkstra(a).distances());
+    assertEquals(before.freeze(), snapshot.freeze());
+
+    Graph<String> expected = SimpleGraph.fromString("[a>b/5, b>c/2, c>a/3, b>d/4, e>a/1, d>e/2]");
+    assertEquals(expected, later);
+    assertEquals(4, later.getEdgeBetween(b, d).get().getWeight(), 0.0);
+    assertEquals(expected.edgesSize() + 1, g.edgesSize());
+
+    //Closing a snapshot doesn't affect the others
+    snapshot.close();
+    assertEquals(expected, later);
+    try (GraphSnapshot<String> copy = later.snapshot()) {
+      later.close();
+      assertEquals(expected, copy);
+      assertEquals(expected.freeze(), copy.freeze());
+    }
+    try {
+      snapshot.getEdgesFrom(a);
+      fail();
+    } catch (IllegalStateException ex) {
+      //Expected
+    }
+    try {
+      later.addEdge(a, b);
+      fail();
+    } catch (UnsupportedOperationException ex) {
+      //Expected
+    }
+    CompactGraph<String> frozen = g.freeze();
+    assertSame(frozen, frozen.snapshot());
+  }
+
+  @Test
+  public void testSnapshotDuringWrites() throws InterruptedException {
+    int n = 2000;
+    SimpleGraph<Integer> g = new SimpleGraph<>();
+    for (int i = 0; i < n; i++) {
+      g.addVertex("" + i, i);
+    }
+    Thread writer = new Thread(() -> {
+      Random random = new Random(5);
+      for (int k = 0; k < 20 * n; k++) {
+        g.addEdge(g.vertexAt(random.nextInt(n)), g.vertexAt(random.nextInt(n)), random.nextInt(10));
+      }
+    });
+    writer.start();
+    List<GraphSnapshot<Integer>> snapshots = new ArrayList<>();
+    List<Graph<Integer>> copies = new ArrayList<>();
+    while (writer.isAlive()) {
+      GraphSnapshot<Integer> snapshot = g.snapshot();
+      Graph<Integer> copy = snapshot.freeze();
+      assertEquals(snapshot.edgesSize(), copy.edgesSize());
+      snapshots.add(snapshot);
+      copies.add(copy);
+      if (snapshots.size() > 3) {
+        snapshots.remove(0).close();
+        copies.remove(0);
+      }
+    }
+    writer.join();
+    //Each snapshot still reads the same graph
+    for (int k = 0; k < snapshots.size(); k++) {
+      assertEquals(copies.get(k), snapshots.get(k).freeze());
+      snapshots.get(k).close();
+    }
+    try (GraphSnapshot<Integer> last = g.snapshot()) {
+      assertEquals(g, last);
+      assertEquals(g.freeze(), last.freeze());
+    }
+  }
+
+  @Test
+  public void testSnapshotOfClosingSnapshot() throws InterruptedException {
+    int n = 500;
+    SimpleGraph<Integer> g = new SimpleGraph<>();
+    for (int i = 0; i < n; i++) {
+      g.addVertex("" + i, i);
+    }
+    Thread writer = new Thread(() -> {
+      Random random = new Random(22);
+      for (int k = 0; k < 100 * n; k++) {
+        g.addEdge(g.vertexAt(random.nextInt(n)), g.vertexAt(random.nextInt(n)), random.nextInt(10));
+      }
+    });
+    writer.start();
+    //A snapshot taken from a snapshot while it's being closed either fails, or reads the
+    //same graph: the rows it needs are never pruned
+    while (writer.isAlive()) {
+      GraphSnapshot<Integer> snapshot = g.snapshot();
+      Graph<Integer> copy = snapshot.freeze();
+      Thread closer = new Thread(snapshot::close);
+      closer.start();
+      GraphSnapshot<Integer> nested = null;
+      try {
+        nested = snapshot.snapshot();
+      } catch (IllegalStateException e) {
+        //Closed first
+      }
+      closer.join();
+      if (nested != null) {
+        assertEquals(copy, nested.freeze());
+        nested.close();
+      }
+    }
+    writer.join();
+  }
+
+  @Test
+  public void testSnapshotsFromSeveralThreads() throws InterruptedException {
+    int n = 300;
+    SimpleGraph<Integer> g = new SimpleGraph<>();
+    for (int i = 0; i < n; i++) {
+      g.addVertex("" + i, i);
+    }
+    List<Thread> writers = new ArrayList<>();
+    for (int w = 0; w < 2; w++) {
+      int seed = w;
+      writers.add(new Thread(() -> {
+        Random random = new Random(seed);
+        for (int k = 0; k < 50 * n; k++) {
+          g.addEdge(g.vertexAt(random.nextInt(n)), g.vertexAt(random.nextInt(n)), random.nextInt(10));
+        }
+      }));
+    }
+    //Snapshots are taken by several threads at once, without locking: each one must still
+    //see both lists of an edge, or neither, and count exactly the edges it sees
+    List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> readers = new ArrayList<>();
+    for (int t = 0; t < 3; t++) {
+      readers.add(new Thread(() -> {
+        try {
+          while (writers.stream().anyMatch(Thread::isAlive)) {
+            try (GraphSnapshot<Integer> snapshot = g.snapshot()) {
+              SimpleGraph<Integer> s = (SimpleGraph<Integer>) snapshot;
+              int outTotal = 0;
+              int inTotal = 0;
+              for (int i = 0; i < s.size(); i++) {
+                outTotal += s.outDegreeAt(i);
+                inTotal += s.inDegreeAt(i);
+                int u = i;
+                for (int k = 0; k < s.outDegreeAt(u); k++) {
+                  int v = s.targetAt(u, k);
+                  double weight = s.weightAt(u, k);
+                  assertTrue(IntStream.range(0, s.inDegreeAt(v)).anyMatch(q -> s.sourceAt(v, q) == u && s.inWeightAt(v, q) == weight));
+                }
+              }
+              assertEquals(outTotal, inTotal);
+              assertEquals(outTotal, s.edgesSize());
+            }
+          }
+        } catch (Throwable e) {
+          errors.add(e);
+        }
+      }));
+    }
+    readers.forEach(Thread::start);
+    writers.forEach(Thread::start);
+    for (Thread thread : writers) {
+      thread.join();
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertEquals(Collections.emptyList(), errors);
+    try (GraphSnapshot<Integer> last = g.snapshot()) {
+      assertEquals(g, last);
+      assertEquals(g.hashCode(), last.hashCode());
+      assertEquals(g.isUndirected(), last.isUndirected());
+    }
+  }
+
+  //Compares the components kept up to date by g with components computed from scratch
+  private static <T> void assertSameComponents(SimpleGraph<T> g) {
+    CompactGraph<T> frozen = g.freeze();
+    int[] ids = IndexedAlgorithms.componentIds(frozen, IndexedAlgorithms.weakComponents(frozen));
+    int count = Arrays.stream(ids).max().orElse(-1) + 1;
+    assertEquals(count, g.componentsCount());
+    assertEquals(count, frozen.componentsCount());
+    assertEquals(frozen.isUndirected(), g.isUndirected());
+    assertEquals(IndexedAlgorithms.isConnected(frozen), g.isConnected());
+    int[] sizes = new int[count];
+    Arrays.stream(ids).forEach(id -> sizes[id]++);
+    Random random = new Random(g.size());
+    for (int k = 0; k < 200; k++) {
+      int i = random.nextInt(frozen.size());
+      int j = random.nextInt(frozen.size());
+      assertEquals(ids[i] == ids[j], g.sameComponent(frozen.vertexAt(i), frozen.vertexAt(j)));
+      assertEquals(sizes[ids[i]], g.componentSize(frozen.vertexAt(i)));
+      assertEquals(sizes[ids[i]], frozen.componentSize(frozen.vertexAt(i)));
+    }
+  }
+
+  @Test
+  public void testIncrementalComponents() {
+    Random random = new Random(29);
+    int n = 300;
+    SimpleGraph<Integer> g = new SimpleGraph<>();
+    for (int i = 0; i < n; i++) {
+      g.addVertex("" + i, i);
+    }
+    assertEquals(n, g.componentsCount());
+    assertEquals(1, g.componentSize(g.vertexAt(7)));
+    for (int round = 0; round < 6; round++) {
+      //Undirected edges, with a few one-way edges and weight changes in between
+      for (int k = 0; k < n / 4; k++) {
+        Vertex<Integer> u = g.vertexAt(random.nextInt(g.size()));
+        Vertex<Integer> v = g.vertexAt(random.nextInt(g.size()));
+        double weight = random.nextInt(3);
+        g.addEdge(u, v, weight);
+        if (random.nextInt(10) > 0) {
+          g.addEdge(v, u, weight);
+        }
+      }
+      assertSameComponents(g);
+      List<Edge<Integer>> batch = new ArrayList<>();
+      for (Edge<Integer> e : g.getEdges()) {
+        if (!g.getEdgeBetween(e.getDestination(), e.getSource()).isPresent() || random.nextInt(20) == 0) {
+          batch.add(new SimpleEdge<>(e.getDestination(), e.getSource(), e.getWeight()));
+        }
+      }
+      g.addEdges(batch);
+      assertSameComponents(g);
+      g.addVertex("new" + round);
+      assertSameComponents(g);
+    }
+
+    SimpleGraph<String> path = (SimpleGraph<String>) SimpleGraph.<String>fromString("[a-b, b-c, d]");
+    assertFalse(path.isConnected());
+    path.addEdge(path.getVertex("c").get(), path.getVertex("d").get());
+    assertFalse(path.isUndirected());
+    assertTrue(path.isConnected());
+    assertEquals(1, path.componentsCount());
+    try (GraphSnapshot<String> snapshot = path.snapshot()) {
+      path.addVertex("e");
+      assertEquals(2, path.componentsCount());
+      assertEquals(1, snapshot.componentsCount());
+      assertEquals(4, snapshot.componentSize(path.getVertex("a").get()));
+      assertFalse(snapshot.isUndirected());
+    }
+  }
 }
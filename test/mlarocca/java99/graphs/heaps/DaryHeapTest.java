@@ -0,0 +1,106 @@
+package mlarocca.java99.graphs.heaps;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DaryHeapTest {
+
+  @Test
+  public void testAddAndPoll() {
+    DaryHeap heap = new DaryHeap(5);
+    assertTrue(heap.isEmpty());
+    heap.add(3, 2.5);
+    heap.add(0, 7.0);
+    heap.add(4, -1.0);
+    heap.add(1, 3.0);
+    assertEquals(4, heap.size());
+    assertTrue(heap.contains(0));
+    assertFalse(heap.contains(2));
+    assertEquals(4, heap.peek());
+    assertEquals(4, heap.poll());
+    assertEquals(3, heap.poll());
+    assertEquals(1, heap.poll());
+    assertEquals(0, heap.poll());
+    assertTrue(heap.isEmpty());
+    assertFalse(heap.contains(0));
+  }
+
+  @Test
+  public void testDecreasePriority() {
+    DaryHeap heap = new DaryHeap(4, 3);
+    heap.add(0, 10.0);
+    heap.add(1, 20.0);
+    heap.add(2, 30.0);
+    heap.decreasePriority(2, 5.0);
+    assertEquals(5.0, heap.priority(2), 0.0);
+    assertEquals(2, heap.poll());
+    assertFalse(heap.addOrDecreasePriority(1, 25.0));
+    assertTrue(heap.addOrDecreasePriority(1, 1.0));
+    assertTrue(heap.addOrDecreasePriority(3, 2.0));
+    assertEquals(1, heap.poll());
+    assertEquals(3, heap.poll());
+    assertEquals(0, heap.poll());
+  }
+
+  @Test
+  public void testRandomOrder() {
+    Random random = new Random(42);
+    for (int branching = 2; branching <= 5; branching++) {
+      int n = 200;
+      DaryHeap heap = new DaryHeap(n, branching);
+      double[] priorities = new double[n];
+      for (int i = 0; i < n; i++) {
+        priorities[i] = random.nextDouble();
+        heap.add(i, priorities[i]);
+      }
+      for (int i = 0; i < n; i += 3) {
+        priorities[i] /= 2;
+        heap.decreasePriority(i, priorities[i]);
+      }
+      List<Double> expected = new ArrayList<>();
+      for (double p : priorities) {
+        expected.add(p);
+      }
+      Collections.sort(expected);
+      for (double p : expected) {
+        assertEquals(p, priorities[heap.poll()], 0.0);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddDuplicate() {
+    DaryHeap heap = new DaryHeap(2);
+    heap.add(1, 1.0);
+    heap.add(1, 2.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIncreasePriority() {
+    DaryHeap heap = new DaryHeap(2);
+    heap.add(1, 1.0);
+    heap.decreasePriority(1, 2.0);
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testDecreaseMissingKey() {
+    new DaryHeap(2).decreasePriority(1, 2.0);
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testPollEmpty() {
+    new DaryHeap(2).poll();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBranching() {
+    new DaryHeap(2, 1);
+  }
+}
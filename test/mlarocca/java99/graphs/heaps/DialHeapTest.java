@@ -0,0 +1,71 @@
+package mlarocca.java99.graphs.heaps;
+
+import static org.junit.Assert.*;
+
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+public class DialHeapTest {
+
+  @Test
+  public void testAddAndPoll() {
+    DialHeap heap = new DialHeap(5, 10);
+    heap.add(3, 4);
+    heap.add(0, 10);
+    heap.add(4, 0);
+    heap.add(1, 7);
+    assertEquals(4, heap.size());
+    assertEquals(4, heap.poll());
+    assertEquals(3, heap.poll());
+    //After polling 4, priorities up to 14 fit in the window
+    heap.add(2, 14);
+    assertEquals(1, heap.poll());
+    assertEquals(0, heap.poll());
+    assertEquals(2, heap.poll());
+    assertTrue(heap.isEmpty());
+  }
+
+  @Test
+  public void testDecreasePriority() {
+    DialHeap heap = new DialHeap(3, 5);
+    heap.add(0, 3);
+    heap.add(1, 5);
+    heap.add(2, 4);
+    heap.decreasePriority(1, 1);
+    assertEquals(1.0, heap.priority(1), 0.0);
+    assertEquals(1, heap.poll());
+    assertTrue(heap.addOrDecreasePriority(2, 2));
+    assertEquals(2, heap.poll());
+    assertEquals(0, heap.poll());
+  }
+
+  @Test
+  public void testPriorityBelowCursor() {
+    //Prim's keys aren't monotone: a smaller priority can be added after a poll
+    DialHeap heap = new DialHeap(3, 5);
+    heap.add(0, 4);
+    assertEquals(0, heap.poll());
+    heap.add(1, 5);
+    heap.add(2, 1);
+    assertEquals(2, heap.poll());
+    assertEquals(1, heap.poll());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonIntegerPriority() {
+    new DialHeap(2, 3).add(0, 1.5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPriorityOutOfWindow() {
+    DialHeap heap = new DialHeap(2, 3);
+    heap.add(0, 1);
+    heap.add(1, 5);
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void testPollEmpty() {
+    new DialHeap(2, 3).poll();
+  }
+}
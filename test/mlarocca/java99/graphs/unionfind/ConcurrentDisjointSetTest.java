@@ -0,0 +1,48 @@
+package mlarocca.java99.graphs.unionfind;
+
+import static org.junit.Assert.*;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class ConcurrentDisjointSetTest {
+
+  @Test
+  public void testUnion() {
+    ConcurrentDisjointSet set = new ConcurrentDisjointSet(5);
+    assertEquals(5, set.count());
+    assertTrue(set.union(4, 3));
+    assertTrue(set.union(3, 0));
+    assertFalse(set.union(0, 4));
+    assertTrue(set.connected(4, 0));
+    assertFalse(set.connected(1, 2));
+    assertEquals(3, set.count());
+  }
+
+  @Test
+  public void testParallelUnions() {
+    //Links i to i + 1 unless i is a multiple of 1000: 100 chains, merged from several threads
+    int n = 100000;
+    ConcurrentDisjointSet set = new ConcurrentDisjointSet(n);
+    IntStream.range(0, n - 1)
+      .parallel()
+      .filter(i -> (i + 1) % 1000 != 0)
+      .forEach(i -> set.union(i + 1, i));
+    assertEquals(100, set.count());
+    for (int i = 0; i < n; i++) {
+      assertEquals(set.find(i / 1000 * 1000), set.find(i));
+    }
+    assertFalse(set.connected(999, 1000));
+
+    //Now merge all the chains, again in parallel
+    IntStream.range(0, 99).parallel().forEach(c -> set.union(c * 1000, (c + 1) * 1000 + 500));
+    assertEquals(1, set.count());
+    assertTrue(set.connected(0, n - 1));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testFindOutOfRange() {
+    new ConcurrentDisjointSet(3).find(-1);
+  }
+}
@@ -0,0 +1,72 @@
+package mlarocca.java99.graphs.unionfind;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DisjointSetTest {
+
+  @Test
+  public void testUnion() {
+    DisjointSet set = new DisjointSet(6);
+    assertEquals(6, set.size());
+    assertEquals(6, set.count());
+    assertFalse(set.connected(0, 1));
+
+    assertTrue(set.union(0, 1));
+    assertTrue(set.union(2, 3));
+    assertTrue(set.union(1, 3));
+    assertFalse(set.union(0, 2));
+    assertEquals(3, set.count());
+    assertTrue(set.connected(0, 3));
+    assertEquals(set.find(0), set.find(2));
+    assertFalse(set.connected(0, 4));
+    assertEquals(5, set.find(5));
+  }
+
+  @Test
+  public void testRandomUnions() {
+    //Compares with a naive labeling
+    Random random = new Random(5);
+    int n = 200;
+    DisjointSet set = new DisjointSet(n);
+    int[] labels = new int[n];
+    for (int i = 0; i < n; i++) {
+      labels[i] = i;
+    }
+    int count = n;
+    for (int k = 0; k < 150; k++) {
+      int x = random.nextInt(n);
+      int y = random.nextInt(n);
+      int labelX = labels[x];
+      int labelY = labels[y];
+      assertEquals(labelX != labelY, set.union(x, y));
+      if (labelX != labelY) {
+        count -= 1;
+        for (int i = 0; i < n; i++) {
+          if (labels[i] == labelY) {
+            labels[i] = labelX;
+          }
+        }
+      }
+      assertEquals(count, set.count());
+    }
+    for (int k = 0; k < 1000; k++) {
+      int x = random.nextInt(n);
+      int y = random.nextInt(n);
+      assertEquals(labels[x] == labels[y], set.connected(x, y));
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testFindOutOfRange() {
+    new DisjointSet(3).find(3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeSize() {
+    new DisjointSet(-1);
+  }
+}
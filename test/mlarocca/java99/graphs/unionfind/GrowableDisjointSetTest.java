@@ -0,0 +1,80 @@
+package mlarocca.java99.graphs.unionfind;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GrowableDisjointSetTest {
+
+  @Test
+  public void testUnion() {
+    GrowableDisjointSet set = new GrowableDisjointSet(3);
+    assertEquals(3, set.size());
+    assertEquals(3, set.count());
+    assertTrue(set.union(0, 1));
+    assertEquals(2, set.setSize(1));
+    assertEquals(3, set.add());
+    assertEquals(4, set.size());
+    assertEquals(3, set.count());
+    assertTrue(set.union(3, 2));
+    assertTrue(set.union(0, 3));
+    assertFalse(set.union(1, 2));
+    assertEquals(1, set.count());
+    assertEquals(4, set.setSize(2));
+    assertEquals(1, set.setSize(set.add()));
+  }
+
+  @Test
+  public void testRandomUnions() {
+    //Compares with a naive labeling, adding elements along the way
+    Random random = new Random(9);
+    GrowableDisjointSet set = new GrowableDisjointSet(0);
+    int[] labels = new int[500];
+    int n = 0;
+    int count = 0;
+    for (int k = 0; k < 1000; k++) {
+      if (n < labels.length && (n < 2 || random.nextInt(3) == 0)) {
+        assertEquals(n, set.add());
+        labels[n] = n;
+        n += 1;
+        count += 1;
+        continue;
+      }
+      int x = random.nextInt(n);
+      int y = random.nextInt(n);
+      int labelX = labels[x];
+      int labelY = labels[y];
+      assertEquals(labelX != labelY, set.union(x, y));
+      if (labelX != labelY) {
+        count -= 1;
+        for (int i = 0; i < n; i++) {
+          if (labels[i] == labelY) {
+            labels[i] = labelX;
+          }
+        }
+      }
+      assertEquals(count, set.count());
+      int labelOfX = labels[x];
+      assertEquals(Arrays.stream(labels, 0, n).filter(l -> l == labelOfX).count(), set.setSize(x));
+    }
+    for (int k = 0; k < 1000; k++) {
+      int x = random.nextInt(n);
+      int y = random.nextInt(n);
+      assertEquals(labels[x] == labels[y], set.connected(x, y));
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testFindOutOfRange() {
+    GrowableDisjointSet set = new GrowableDisjointSet(3);
+    set.find(3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeSize() {
+    new GrowableDisjointSet(-1);
+  }
+}